@@ -0,0 +1,59 @@
+package tdl.client.queue;
+
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import tdl.client.audit.AuditLevel;
+import tdl.client.queue.abstractions.Request;
+import tdl.client.queue.abstractions.response.ValidResponse;
+import tdl.client.queue.serialization.JsonRpcSerializationProvider;
+import tdl.client.queue.transport.StringMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes a request and writes its audit line at every audit level, the audit stream discards the line.
+ *
+ * Run with: ./gradlew jmh, the gc profiler adds the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuditBenchmark {
+
+    @Param({"OFF", "ERRORS", "SUMMARY", "FULL"})
+    public AuditLevel level;
+
+    private String requestText;
+    private JsonRpcSerializationProvider provider;
+    private QueueBasedImplementationRunner.Audit audit;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        StringBuilder array = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            array.append(i == 0 ? "" : ",").append(i);
+        }
+        requestText = "{\"method\":\"sum\",\"params\":[[" + array + "],\"text\"],\"id\":\"X1\"}";
+        provider = new JsonRpcSerializationProvider();
+        audit = new QueueBasedImplementationRunner.Audit(new ImplementationRunnerConfig()
+                .setAuditStream(blackhole::consume)
+                .setAuditLevel(level), new RunnerMetrics());
+    }
+
+    @Benchmark
+    public Object decodeAndAudit() throws Exception {
+        ActiveMQTextMessage received = new ActiveMQTextMessage();
+        received.setText(requestText);
+        Request request = provider.deserialize(new StringMessage(received)).orElseThrow();
+
+        audit.startLine();
+        audit.log(request);
+        audit.log(new ValidResponse(request.getId(), 4950));
+        audit.endLine();
+        return request;
+    }
+}
@@ -0,0 +1,130 @@
+package tdl.client.queue;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.TransportConnector;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.openjdk.jmh.annotations.*;
+import tdl.client.audit.AuditLevel;
+
+import javax.jms.Connection;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The queue runner working through a backlog of requests whose solution spends its time blocked, like a call to
+ * another service, with the worker threads of each execution mode.
+ *
+ * Run with: ./gradlew jmh
+ * Virtual threads are only used when the benchmark JVM is Java 21 or newer.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionModeBenchmark {
+    private static final int REQUESTS = 2000;
+    private static final long SOLUTION_BLOCKED_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Param({"PLATFORM_THREADS", "VIRTUAL_THREADS"})
+    public ExecutionMode executionMode;
+
+    @Param({"16", "256"})
+    public int workerThreads;
+
+    private BrokerService broker;
+    private ActiveMQConnectionFactory connectionFactory;
+    private int iteration;
+    private String requestQueue;
+    private String responseQueue;
+
+    @Setup(Level.Trial)
+    public void startBroker() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName("execution-mode-benchmark");
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        TransportConnector connector = broker.addConnector("tcp://localhost:0");
+        broker.start();
+        broker.waitUntilStarted();
+        connectionFactory = new ActiveMQConnectionFactory(connector.getPublishableConnectString());
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+    }
+
+    /**
+     * Fresh queues for every run, holding the backlog and the end of stream marker
+     */
+    @Setup(Level.Iteration)
+    public void fillRequestQueue() throws Exception {
+        iteration++;
+        requestQueue = "bench.req." + iteration;
+        responseQueue = "bench.resp." + iteration;
+        Connection connection = connectionFactory.createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue(requestQueue));
+            for (int i = 0; i < REQUESTS; i++) {
+                producer.send(session.createTextMessage(
+                        "{\"method\":\"lookup\",\"params\":[" + i + "],\"id\":\"X" + i + "\"}"));
+            }
+            TextMessage endOfStream = session.createTextMessage("");
+            endOfStream.setBooleanProperty("end_of_stream", true);
+            producer.send(endOfStream);
+        } finally {
+            connection.close();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeQueues() throws Exception {
+        broker.removeDestination(new ActiveMQQueue(requestQueue));
+        broker.removeDestination(new ActiveMQQueue(responseQueue));
+    }
+
+    /**
+     * Taken once per trial, gauges reported as counters would be added up over the iterations
+     */
+    @TearDown(Level.Trial)
+    public void stopBroker() throws Exception {
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("%n%s, %d worker threads: peak threads %d, used heap %d MB%n",
+                executionMode, workerThreads,
+                ManagementFactory.getThreadMXBean().getPeakThreadCount(),
+                (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024));
+        broker.stop();
+        broker.waitUntilStopped();
+    }
+
+    /**
+     * One operation is the runner answering the whole backlog and stopping at the end of the stream
+     */
+    @Benchmark
+    public void drainBacklog() {
+        URI brokerURI = URI.create(connectionFactory.getBrokerURL());
+        ImplementationRunnerConfig config = new ImplementationRunnerConfig()
+                .setHostname(brokerURI.getHost())
+                .setPort(brokerURI.getPort())
+                .setRequestQueueName(requestQueue)
+                .setResponseQueueName(responseQueue)
+                .setAuditLevel(AuditLevel.OFF)
+                .setWorkerThreads(workerThreads)
+                .setExecutionMode(executionMode)
+                .setWaitForEndOfStream(true);
+
+        new QueueBasedImplementationRunner.Builder()
+                .setConfig(config)
+                .withSolutionFor("lookup", params -> {
+                    LockSupport.parkNanos(SOLUTION_BLOCKED_NANOS);
+                    return params.get(0);
+                })
+                .create()
+                .run();
+    }
+}
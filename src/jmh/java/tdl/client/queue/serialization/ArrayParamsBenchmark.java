@@ -0,0 +1,65 @@
+package tdl.client.queue.serialization;
+
+import com.google.gson.JsonElement;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sums a numeric array param, through the params tree as user implementations do today
+ * and through the primitive array readers.
+ *
+ * Run with: ./gradlew jmh, the gc profiler adds the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArrayParamsBenchmark {
+
+    @Param({"1000", "100000"})
+    public int arraySize;
+
+    private String requestText;
+
+    @Setup
+    public void setUp() {
+        StringBuilder array = new StringBuilder();
+        for (int i = 0; i < arraySize; i++) {
+            array.append(i == 0 ? "" : ",").append(i % 1000);
+        }
+        requestText = "{\"method\":\"sum\",\"params\":[[" + array + "]],\"id\":\"X1\"}";
+    }
+
+    @Benchmark
+    public int sumThroughTree() throws DeserializationException {
+        int sum = 0;
+        for (JsonElement element : JsonRpcRequestDecoder.decode(requestText).getParams().get(0).getAsJsonArray()) {
+            sum += element.getAsInt();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int sumIntArray() throws DeserializationException, IOException {
+        int sum = 0;
+        for (int value : JsonRpcRequestDecoder.decode(requestText).readParams().nextIntArray()) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int sumIntBuffer() throws DeserializationException, IOException {
+        IntBuffer values = JsonRpcRequestDecoder.decode(requestText).readParams().nextIntBuffer();
+        int sum = 0;
+        while (values.hasRemaining()) {
+            sum += values.get();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,101 @@
+package tdl.client.queue.serialization;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import org.openjdk.jmh.annotations.*;
+import tdl.client.queue.abstractions.response.ValidResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming decoder and the response adapter with the reflective Gson mapping they replace.
+ *
+ * Run with: ./gradlew jmh, the gc profiler adds the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonRpcSerializationBenchmark {
+
+    @Param({"1", "1000"})
+    public int arraySize;
+
+    private String requestText;
+    private ValidResponse response;
+    private Gson reflectiveGson;
+    private JsonRpcSerializationProvider provider;
+
+    @Setup
+    public void setUp() {
+        StringBuilder array = new StringBuilder();
+        for (int i = 0; i < arraySize; i++) {
+            array.append(i == 0 ? "" : ",").append(i);
+        }
+        requestText = "{\"method\":\"sum\",\"params\":[[" + array + "],\"text\"],\"id\":\"X1\"}";
+        response = new ValidResponse("X1", "A result with <html> & quotes \"");
+        reflectiveGson = new GsonBuilder().serializeNulls().create();
+        provider = new JsonRpcSerializationProvider();
+    }
+
+    //~~~ Decode
+
+    @Benchmark
+    public Object decodeMethodReflective() {
+        return reflectiveGson.fromJson(requestText, ReflectiveRequest.class).method;
+    }
+
+    @Benchmark
+    public Object decodeMethodStreaming() throws DeserializationException {
+        return JsonRpcRequestDecoder.decode(requestText).getMethod();
+    }
+
+    @Benchmark
+    public Object decodeParamsReflective() {
+        return reflectiveGson.fromJson(requestText, ReflectiveRequest.class).params;
+    }
+
+    @Benchmark
+    public Object decodeParamsStreaming() throws DeserializationException {
+        return JsonRpcRequestDecoder.decode(requestText).getParams();
+    }
+
+    //~~~ Encode
+
+    @Benchmark
+    public String encodeReflective() {
+        return reflectiveGson.toJson(new ReflectiveResponse(response.getResult(), null, response.getId()));
+    }
+
+    @Benchmark
+    public String encodeAdapter() {
+        return provider.serialize(response);
+    }
+
+    //~~~ The mapping used before the streaming decoder and the response adapter
+
+    @SuppressWarnings("unused")
+    static final class ReflectiveRequest {
+        private String method = "";
+        private List<JsonElement> params = new ArrayList<>();
+        private String id = "";
+    }
+
+    @SuppressWarnings({"unused", "FieldCanBeLocal"})
+    static final class ReflectiveResponse {
+        private final Object result;
+        private final String error;
+        private final String id;
+
+        ReflectiveResponse(Object result, String error, String id) {
+            this.result = result;
+            this.error = error;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package tdl.client.queue.transport;
+
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.util.ByteSequence;
+import org.openjdk.jmh.annotations.*;
+import tdl.client.queue.abstractions.Request;
+import tdl.client.queue.abstractions.response.ValidResponse;
+import tdl.client.queue.serialization.JsonRpcSerializationProvider;
+import tdl.client.queue.serialization.Utf8Buffer;
+
+import javax.jms.Session;
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes a request from the content received from the broker to the content of its reply,
+ * once as a text message and once as a bytes message.
+ *
+ * Run with: ./gradlew jmh, the gc profiler adds the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BytesMessageBenchmark {
+
+    @Param({"10", "10000"})
+    public int arraySize;
+
+    private ByteSequence textContent;
+    private ByteSequence bytesContent;
+    private Session session;
+    private JsonRpcSerializationProvider provider;
+
+    @Setup
+    public void setUp() throws Exception {
+        StringBuilder array = new StringBuilder();
+        for (int i = 0; i < arraySize; i++) {
+            array.append(i == 0 ? "" : ",").append(i % 1000);
+        }
+        String requestText = "{\"method\":\"sum\",\"params\":[[" + array + "]],\"id\":\"X1\"}";
+
+        ActiveMQTextMessage textMessage = new ActiveMQTextMessage();
+        textMessage.setText(requestText);
+        textMessage.storeContent();
+        textContent = textMessage.getContent();
+        bytesContent = new ByteSequence(requestText.getBytes(StandardCharsets.UTF_8));
+
+        //Obs: Only the message factory methods of the session are used
+        session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("createTextMessage")) {
+                        ActiveMQTextMessage message = new ActiveMQTextMessage();
+                        message.setText((String) args[0]);
+                        return message;
+                    } else if (method.getName().equals("createBytesMessage")) {
+                        return new ActiveMQBytesMessage();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        provider = new JsonRpcSerializationProvider();
+    }
+
+    @Benchmark
+    public Object textMessage() throws Exception {
+        ActiveMQTextMessage received = new ActiveMQTextMessage();
+        received.setContent(textContent);
+        StringMessage message = new StringMessage(received);
+
+        Request request = provider.deserialize(message).orElseThrow();
+        ValidResponse response = new ValidResponse(request.getId(), sum(request.readParams().nextIntBuffer()));
+        ActiveMQTextMessage reply = (ActiveMQTextMessage) message.createReply(session, provider.serialize(response));
+        reply.storeContent();
+        return reply.getContent();
+    }
+
+    @Benchmark
+    public Object bytesMessage() throws Exception {
+        ActiveMQBytesMessage received = new ActiveMQBytesMessage();
+        received.setContent(bytesContent);
+        StringMessage message = new StringMessage(received);
+
+        Request request = provider.deserialize(message).orElseThrow();
+        ValidResponse response = new ValidResponse(request.getId(), sum(request.readParams().nextIntBuffer()));
+        Utf8Buffer json = Utf8Buffer.forCurrentThread();
+        provider.serialize(response, json);
+        ActiveMQBytesMessage reply = (ActiveMQBytesMessage) message.createReply(session, json);
+        reply.storeContent();
+        return reply.getContent();
+    }
+
+    private static int sum(IntBuffer values) {
+        int sum = 0;
+        while (values.hasRemaining()) {
+            sum += values.get();
+        }
+        return sum;
+    }
+}
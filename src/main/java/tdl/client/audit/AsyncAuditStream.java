@@ -0,0 +1,232 @@
+package tdl.client.audit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands the lines over to a background thread that writes them to the underlying stream,
+ * so a slow terminal or pipe does not slow down the processing of the requests.
+ *
+ * The lines wait in a ring buffer allocated upfront. When it is full the overflow policy decides
+ * whether the caller waits for room or a line is dropped. Closing the stream writes every pending line,
+ * a line printed after that is written by the caller once they are all out.
+ */
+public final class AsyncAuditStream implements AuditStream, AutoCloseable {
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    public enum OverflowPolicy {
+        /**
+         * Wait for the background thread to make room, no line is ever lost
+         */
+        BLOCK,
+        /**
+         * Overwrite the oldest pending line and count it as dropped
+         */
+        DROP_OLDEST,
+        /**
+         * Discard the new line and count it as dropped
+         */
+        DROP_NEWEST
+    }
+
+    private final AuditStream delegate;
+    private final OverflowPolicy overflowPolicy;
+    private final String[] ring;
+    private final int mask;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    private final Condition written;
+    private final AtomicLong droppedLines;
+    private final Thread writer;
+
+    //Design: Positions only ever grow, the slot is the position masked by the capacity
+    private long head;
+    private long tail;
+    private long writtenUpTo;
+    private boolean closed;
+    private boolean drained;
+
+    /**
+     * @param capacity the number of pending lines, rounded up to a power of two
+     */
+    public AsyncAuditStream(AuditStream delegate, int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The ring buffer needs room for at least one line");
+        }
+        this.delegate = delegate;
+        this.overflowPolicy = overflowPolicy;
+        this.ring = new String[Integer.highestOneBit(capacity * 2 - 1)];
+        this.mask = ring.length - 1;
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.notFull = lock.newCondition();
+        this.written = lock.newCondition();
+        this.droppedLines = new AtomicLong();
+        this.writer = new Thread(this::writeLines, "tdl-audit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void println(String s) {
+        lock.lock();
+        try {
+            if (closed) {
+                printAfterClose(s);
+                return;
+            }
+            if (tail - head == ring.length && !makeRoom()) {
+                return;
+            }
+            if (closed) {
+                //Obs: Closed while waiting for room
+                printAfterClose(s);
+                return;
+            }
+            ring[(int) (tail & mask)] = s;
+            tail++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every line printed so far has been written to the underlying stream
+     */
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            long target = tail;
+            while (writtenUpTo < target && writer.isAlive()) {
+                written.await(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+        delegate.flush();
+    }
+
+    /**
+     * Writes the pending lines and stops the background thread
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.flush();
+    }
+
+    /**
+     * Lines lost because the ring buffer was full, always 0 with {@link OverflowPolicy#BLOCK}
+     */
+    public long getDroppedLines() {
+        return droppedLines.get();
+    }
+
+    //~~~ Internals
+
+    /**
+     * Writes the line from the caller, once the background thread has written the pending lines and stopped.
+     * Called with the lock held.
+     */
+    private void printAfterClose(String s) {
+        //Obs: The background thread writes its last lines without the lock, the line would race them
+        try {
+            while (!drained && writer.isAlive()) {
+                written.await(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.println(s);
+    }
+
+    /**
+     * @return false if the new line should be discarded
+     */
+    private boolean makeRoom() {
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                ring[(int) (head & mask)] = null;
+                head++;
+                droppedLines.incrementAndGet();
+                return true;
+            case DROP_NEWEST:
+                droppedLines.incrementAndGet();
+                return false;
+            default:
+                try {
+                    while (tail - head == ring.length && !closed) {
+                        notFull.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedLines.incrementAndGet();
+                    return false;
+                }
+                return true;
+        }
+    }
+
+    private void writeLines() {
+        String[] batch = new String[ring.length];
+        while (true) {
+            int count;
+            long batchEnd;
+            lock.lock();
+            try {
+                while (head == tail && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (head == tail) {
+                    drained = true;
+                    written.signalAll();
+                    return;
+                }
+                //Design: Takes every pending line at once, the underlying stream is written without holding the lock
+                count = (int) (tail - head);
+                for (int i = 0; i < count; i++) {
+                    int slot = (int) ((head + i) & mask);
+                    batch[i] = ring[slot];
+                    ring[slot] = null;
+                }
+                head = tail;
+                batchEnd = tail;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            for (int i = 0; i < count; i++) {
+                delegate.println(batch[i]);
+                batch[i] = null;
+            }
+
+            lock.lock();
+            try {
+                writtenUpTo = batchEnd;
+                written.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
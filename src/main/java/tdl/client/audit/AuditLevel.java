@@ -0,0 +1,24 @@
+package tdl.client.audit;
+
+/**
+ * How much of every request the runner writes to the audit stream.
+ * The text of a level that is not written is never rendered.
+ */
+public enum AuditLevel {
+    /**
+     * Nothing is written, not even the start and the end of the run
+     */
+    OFF,
+    /**
+     * Only the requests that failed, in full, along with the start and the end of the run
+     */
+    ERRORS,
+    /**
+     * One line per request with its id and method, errors in full
+     */
+    SUMMARY,
+    /**
+     * One line per request with its params and its result
+     */
+    FULL
+}
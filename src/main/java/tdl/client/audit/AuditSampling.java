@@ -0,0 +1,75 @@
+package tdl.client.audit;
+
+/**
+ * Which requests get an audit line, for runs with too many requests to audit every one of them.
+ *
+ * Errors are always written. The lines left out are counted and reported by a summary line,
+ * written at most once per summary interval and once more at the end of the run.
+ */
+public final class AuditSampling {
+    private static final long DEFAULT_SUMMARY_INTERVAL_MILLIS = 10000;
+
+    private final int everyNth;
+    private final int maxLinesPerSecond;
+    private final long summaryIntervalMillis;
+
+    private AuditSampling(int everyNth, int maxLinesPerSecond, long summaryIntervalMillis) {
+        this.everyNth = everyNth;
+        this.maxLinesPerSecond = maxLinesPerSecond;
+        this.summaryIntervalMillis = summaryIntervalMillis;
+    }
+
+    public static AuditSampling everyRequest() {
+        return new AuditSampling(1, 0, DEFAULT_SUMMARY_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Writes the line of the first request and then of every nth one
+     */
+    public static AuditSampling everyNth(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("The sampling interval must be at least 1");
+        }
+        return new AuditSampling(n, 0, DEFAULT_SUMMARY_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Writes at most this many lines per second, with bursts of up to one second worth of lines
+     */
+    public static AuditSampling maxLinesPerSecond(int maxLinesPerSecond) {
+        return everyRequest().withMaxLinesPerSecond(maxLinesPerSecond);
+    }
+
+    /**
+     * Also limits the lines left by the sampling to this many per second
+     */
+    public AuditSampling withMaxLinesPerSecond(int maxLinesPerSecond) {
+        if (maxLinesPerSecond < 1) {
+            throw new IllegalArgumentException("The rate limit must be at least 1 line per second");
+        }
+        return new AuditSampling(everyNth, maxLinesPerSecond, summaryIntervalMillis);
+    }
+
+    public AuditSampling withSummaryIntervalMillis(long summaryIntervalMillis) {
+        return new AuditSampling(everyNth, maxLinesPerSecond, summaryIntervalMillis);
+    }
+
+    public int getEveryNth() {
+        return everyNth;
+    }
+
+    /**
+     * @return 0 when the lines are not rate limited
+     */
+    public int getMaxLinesPerSecond() {
+        return maxLinesPerSecond;
+    }
+
+    public long getSummaryIntervalMillis() {
+        return summaryIntervalMillis;
+    }
+
+    public boolean isSampling() {
+        return everyNth > 1 || maxLinesPerSecond > 0;
+    }
+}
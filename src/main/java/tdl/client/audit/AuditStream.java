@@ -5,4 +5,10 @@ package tdl.client.audit;
  */
 public interface AuditStream {
     void println(String s);
+
+    /**
+     * Waits for the lines printed so far to be written, for the streams that write them later
+     */
+    default void flush() {
+    }
 }
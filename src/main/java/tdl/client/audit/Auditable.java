@@ -5,4 +5,18 @@ package tdl.client.audit;
  */
 public interface Auditable {
     String getAuditText();
+
+    /**
+     * Appends the audit text to the line, without rendering a value past the limits
+     */
+    default void appendAuditText(StringBuilder line, DisplayLimits limits) {
+        line.append(getAuditText());
+    }
+
+    /**
+     * The text written at {@link AuditLevel#SUMMARY}, without the params or the result
+     */
+    default String getSummaryText() {
+        return getAuditText();
+    }
 }
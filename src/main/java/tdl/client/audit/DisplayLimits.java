@@ -0,0 +1,38 @@
+package tdl.client.audit;
+
+/**
+ * How much of a single param or result is rendered in an audit line.
+ *
+ * Longer values are cut at the maximum width and end with "...".
+ * Arrays and objects show their first elements followed by the count of the others, as in "[1, 2, 3, ... 97 more]".
+ */
+public final class DisplayLimits {
+    public static final DisplayLimits DEFAULT = new DisplayLimits(2000, 100);
+
+    private final int maxWidth;
+    private final int maxElements;
+
+    private DisplayLimits(int maxWidth, int maxElements) {
+        this.maxWidth = maxWidth;
+        this.maxElements = maxElements;
+    }
+
+    /**
+     * @param maxWidth    the number of characters rendered for one param or result
+     * @param maxElements the number of elements rendered for one array or object
+     */
+    public static DisplayLimits of(int maxWidth, int maxElements) {
+        if (maxWidth < 1 || maxElements < 1) {
+            throw new IllegalArgumentException("The display limits must be at least 1");
+        }
+        return new DisplayLimits(maxWidth, maxElements);
+    }
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    public int getMaxElements() {
+        return maxElements;
+    }
+}
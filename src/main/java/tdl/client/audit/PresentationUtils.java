@@ -1,13 +1,26 @@
 package tdl.client.audit;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by julianghionoiu on 03/02/2016.
+ *
+ * Renders the params and results in a single pass, straight into the audit line.
+ * A value is never rendered past its {@link DisplayLimits}, however large it is.
  */
 public final class PresentationUtils {
+    private static final String ELEMENT_SEPARATOR = ", ";
 
     private PresentationUtils() {
         //Utility class
@@ -15,62 +28,418 @@ public final class PresentationUtils {
 
     public static String toDisplayableRequest(List<JsonElement> items) {
         StringBuilder sb = new StringBuilder();
+        appendDisplayableRequest(sb, items, DisplayLimits.DEFAULT);
+        return sb.toString();
+    }
+
+    public static void appendDisplayableRequest(StringBuilder sb, List<JsonElement> items, DisplayLimits limits) {
+        int start = sb.length();
+        int index = 0;
         for (JsonElement item : items) {
-            if (sb.length() > 0) {
-                sb.append(", ");
+            if (sb.length() > start) {
+                sb.append(ELEMENT_SEPARATOR);
+            }
+            if (index == limits.getMaxElements()) {
+                appendMore(sb, items.size() - index);
+                return;
             }
 
-            String representation;
-
-            if (item.isJsonArray()) {
-                representation = item.toString();
-                representation = representation.replaceAll(",", ", ");
-            } else {
-                representation = item.toString();
+            //Obs: An array is spaced after every comma, strings included, any other item only shows its first line
+            Renderer renderer = new Renderer(sb, limits, item.isJsonArray(), !item.isJsonArray());
+            renderer.writeJson(item);
+            renderer.finish();
+            index++;
+        }
+    }
 
-                if (isMultilineString(representation)) {
-                    representation = suppressExtraLines(representation);
-                }
+    /**
+     * The same text, read from params that are still JSON text, without building their tree
+     *
+     * @param params positioned inside the params array, it is left after the last param that was rendered
+     */
+    public static void appendDisplayableRequest(StringBuilder sb, JsonReader params, DisplayLimits limits)
+            throws IOException {
+        int start = sb.length();
+        int index = 0;
+        while (params.hasNext()) {
+            if (sb.length() > start) {
+                sb.append(ELEMENT_SEPARATOR);
+            }
+            if (index == limits.getMaxElements()) {
+                appendMore(sb, skipRemaining(params));
+                return;
             }
 
-            sb.append(representation);
+            boolean array = params.peek() == JsonToken.BEGIN_ARRAY;
+            Renderer renderer = new Renderer(sb, limits, array, !array);
+            renderer.writeJson(params);
+            renderer.finish();
+            index++;
         }
-        return sb.toString();
     }
 
     public static String toDisplayableResponse(Object item) {
+        StringBuilder sb = new StringBuilder();
+        appendDisplayableResponse(sb, item, DisplayLimits.DEFAULT);
+        return sb.toString();
+    }
+
+    public static void appendDisplayableResponse(StringBuilder sb, Object item, DisplayLimits limits) {
         if (item == null) {
-            return "null";
+            sb.append("null");
+            return;
         }
 
-        String representation = item.toString();
+        Renderer renderer = new Renderer(sb, limits, false, true);
+        renderer.writeResult(item);
+        renderer.finish();
+    }
 
-        if (isMultilineString(representation)) {
-            representation = suppressExtraLines(representation);
-        }
+    private static void appendMore(StringBuilder sb, int count) {
+        sb.append("... ").append(count).append(" more");
+    }
 
-        return representation;
+    /**
+     * @return the number of values left in the current array or object, which are skipped
+     */
+    private static int skipRemaining(JsonReader in) throws IOException {
+        int count = 0;
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NAME) {
+                in.nextName();
+            }
+            in.skipValue();
+            count++;
+        }
+        return count;
     }
 
     //~~~ Handle individual item
 
-    private static boolean isMultilineString(String representation) {
-        return representation.contains("\\n");
-    }
+    /**
+     * Writes one item, stops once its width is reached.
+     *
+     * For a multiline item only the first line is kept, followed by the count of the others.
+     * Like the audit always did, a line ends at an escaped "\n" in the rendered text.
+     */
+    private static final class Renderer {
+        private final StringBuilder out;
+        private final int maxElements;
+        private final int endOfWidth;
+        private final boolean spaceAfterComma;
+        private final boolean firstLineOnly;
+
+        private boolean full;
+        private boolean afterBackslash;
+        private int extraLines;
+        private int trailingLineBreaks;
+
+        Renderer(StringBuilder out, DisplayLimits limits, boolean spaceAfterComma, boolean firstLineOnly) {
+            this.out = out;
+            this.maxElements = limits.getMaxElements();
+            this.endOfWidth = out.length() + limits.getMaxWidth();
+            this.spaceAfterComma = spaceAfterComma;
+            this.firstLineOnly = firstLineOnly;
+        }
+
+        void finish() {
+            if (full) {
+                out.append("...");
+            }
+            if (extraLines > 0) {
+                //Obs: Empty lines at the very end are not counted, as with String.split
+                int suppressedLines = extraLines - (afterBackslash ? 0 : trailingLineBreaks);
+                out.append(" .. ( ").append(suppressedLines).append(" more line");
+                if (suppressedLines > 1) {
+                    out.append("s");
+                }
+                out.append(" )\"");
+            }
+        }
 
-    private static String suppressExtraLines(String representation) {
-        String[] parts = representation.split("\\\\n");
-        representation = parts[0];
+        //~~~ JSON, as written by JsonElement.toString()
 
-        int suppressedParts = parts.length - 1;
-        representation += " .. ( "+ suppressedParts +" more line";
+        void writeJson(JsonElement element) {
+            if (element == null || element.isJsonNull()) {
+                write("null");
+            } else if (element.isJsonArray()) {
+                writeArray(element.getAsJsonArray());
+            } else if (element.isJsonObject()) {
+                writeObject(element.getAsJsonObject());
+            } else {
+                writePrimitive(element.getAsJsonPrimitive());
+            }
+        }
 
-        if (suppressedParts > 1) {
-            representation += "s";
+        private void writeArray(JsonArray array) {
+            write('[');
+            int index = 0;
+            for (JsonElement element : array) {
+                if (full) {
+                    return;
+                }
+                if (index > 0) {
+                    write(',');
+                }
+                if (index == maxElements) {
+                    writeMore(array.size() - index, ']');
+                    return;
+                }
+                writeJson(element);
+                index++;
+            }
+            write(']');
         }
 
-        representation += " )\"";
-        return representation;
-    }
+        private void writeObject(JsonObject object) {
+            write('{');
+            int index = 0;
+            for (Map.Entry<String, JsonElement> field : object.entrySet()) {
+                if (full) {
+                    return;
+                }
+                if (index > 0) {
+                    write(',');
+                }
+                if (index == maxElements) {
+                    writeMore(object.size() - index, '}');
+                    return;
+                }
+                writeString(field.getKey());
+                write(':');
+                writeJson(field.getValue());
+                index++;
+            }
+            write('}');
+        }
+
+        private void writePrimitive(JsonPrimitive primitive) {
+            if (primitive.isString()) {
+                writeString(primitive.getAsString());
+            } else if (primitive.isBoolean()) {
+                write(primitive.getAsBoolean() ? "true" : "false");
+            } else {
+                write(primitive.getAsNumber().toString());
+            }
+        }
+
+        private void writeString(String value) {
+            write('"');
+            for (int i = 0; i < value.length() && !full; i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                    case '\\':
+                        write('\\');
+                        write(c);
+                        break;
+                    case '\t':
+                        write("\\t");
+                        break;
+                    case '\b':
+                        write("\\b");
+                        break;
+                    case '\n':
+                        write("\\n");
+                        break;
+                    case '\r':
+                        write("\\r");
+                        break;
+                    case '\f':
+                        write("\\f");
+                        break;
+                    default:
+                        if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                            writeUnicodeEscape(c);
+                        } else {
+                            write(c);
+                        }
+                }
+            }
+            write('"');
+        }
 
+        private void writeUnicodeEscape(char c) {
+            write("\\u");
+            for (int shift = 12; shift >= 0; shift -= 4) {
+                write(Character.forDigit((c >> shift) & 0xf, 16));
+            }
+        }
+
+        //~~~ JSON text, read one token at a time, same output as the tree
+
+        void writeJson(JsonReader in) throws IOException {
+            switch (in.peek()) {
+                case BEGIN_ARRAY:
+                    writeArray(in);
+                    break;
+                case BEGIN_OBJECT:
+                    writeObject(in);
+                    break;
+                case STRING:
+                    writeString(in.nextString());
+                    break;
+                case NUMBER:
+                    //Obs: A number keeps the text it was written with, as in the tree
+                    write(in.nextString());
+                    break;
+                case BOOLEAN:
+                    write(in.nextBoolean() ? "true" : "false");
+                    break;
+                case NULL:
+                    in.nextNull();
+                    write("null");
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+
+        /**
+         * Once the output is cut, the rest of the value is skipped so the reader ends up after it
+         */
+        private void writeArray(JsonReader in) throws IOException {
+            in.beginArray();
+            write('[');
+            int index = 0;
+            boolean more = false;
+            while (in.hasNext()) {
+                if (full) {
+                    skipRemaining(in);
+                    break;
+                }
+                if (index > 0) {
+                    write(',');
+                }
+                if (index == maxElements) {
+                    writeMore(skipRemaining(in), ']');
+                    more = true;
+                    break;
+                }
+                writeJson(in);
+                index++;
+            }
+            in.endArray();
+            if (!more) {
+                write(']');
+            }
+        }
+
+        private void writeObject(JsonReader in) throws IOException {
+            in.beginObject();
+            write('{');
+            int index = 0;
+            boolean more = false;
+            while (in.hasNext()) {
+                if (full) {
+                    skipRemaining(in);
+                    break;
+                }
+                if (index > 0) {
+                    write(',');
+                }
+                if (index == maxElements) {
+                    writeMore(skipRemaining(in), '}');
+                    more = true;
+                    break;
+                }
+                writeString(in.nextName());
+                write(':');
+                writeJson(in);
+                index++;
+            }
+            in.endObject();
+            if (!more) {
+                write('}');
+            }
+        }
+
+        //~~~ Results, as written by toString()
+
+        void writeResult(Object item) {
+            if (item instanceof JsonElement) {
+                writeJson((JsonElement) item);
+            } else if (item instanceof CharSequence) {
+                CharSequence text = (CharSequence) item;
+                for (int i = 0; i < text.length() && !full; i++) {
+                    write(text.charAt(i));
+                }
+            } else if (item instanceof Collection) {
+                writeCollection((Collection<?>) item);
+            } else {
+                write(String.valueOf(item));
+            }
+        }
+
+        /**
+         * The same text as AbstractCollection.toString()
+         */
+        private void writeCollection(Collection<?> collection) {
+            write('[');
+            Iterator<?> elements = collection.iterator();
+            for (int index = 0; elements.hasNext() && !full; index++) {
+                if (index > 0) {
+                    write(ELEMENT_SEPARATOR);
+                }
+                if (index == maxElements) {
+                    writeMore(collection.size() - index, ']');
+                    return;
+                }
+                Object element = elements.next();
+                writeResult(element == collection ? "(this Collection)" : element);
+            }
+            write(']');
+        }
+
+        //~~~ Output
+
+        /**
+         * Ends a cut array or object, the count is written even past the maximum width
+         */
+        private void writeMore(int count, char end) {
+            if (!full && extraLines == 0) {
+                appendMore(out, count);
+                out.append(end);
+            }
+        }
+
+        private void write(String text) {
+            for (int i = 0; i < text.length() && !full; i++) {
+                write(text.charAt(i));
+            }
+        }
+
+        private void write(char c) {
+            if (full || (firstLineOnly && isLineBreak(c)) || extraLines > 0) {
+                return;
+            }
+            if (out.length() >= endOfWidth) {
+                full = true;
+                return;
+            }
+            out.append(c);
+            if (spaceAfterComma && c == ',') {
+                write(' ');
+            }
+        }
+
+        /**
+         * Tracks the escaped line breaks, the backslash starting the first one is taken back out of the output
+         */
+        private boolean isLineBreak(char c) {
+            if (afterBackslash && c == 'n') {
+                afterBackslash = false;
+                if (extraLines++ == 0) {
+                    out.setLength(out.length() - 1);
+                }
+                trailingLineBreaks++;
+                return true;
+            }
+            if (afterBackslash || c != '\\') {
+                trailingLineBreaks = 0;
+            }
+            afterBackslash = c == '\\';
+            return false;
+        }
+    }
 }
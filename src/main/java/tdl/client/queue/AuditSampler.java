@@ -0,0 +1,78 @@
+package tdl.client.queue;
+
+import tdl.client.audit.AuditSampling;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides which request lines are written, shared by all the audits of a runner.
+ *
+ * The rate limit is a token bucket holding up to one second worth of lines, refilled on every request.
+ */
+final class AuditSampler {
+    private final int everyNth;
+    private final int maxLinesPerSecond;
+    private final long summaryIntervalNanos;
+    private final LongSupplier nanoClock;
+
+    private long requests;
+    private double tokens;
+    private long lastRefillNanos;
+    private long suppressedLines;
+    private long lastSummaryNanos;
+
+    AuditSampler(AuditSampling sampling) {
+        this(sampling, System::nanoTime);
+    }
+
+    AuditSampler(AuditSampling sampling, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        everyNth = sampling.getEveryNth();
+        maxLinesPerSecond = sampling.getMaxLinesPerSecond();
+        summaryIntervalNanos = TimeUnit.MILLISECONDS.toNanos(sampling.getSummaryIntervalMillis());
+        tokens = maxLinesPerSecond;
+        lastRefillNanos = nanoClock.getAsLong();
+        lastSummaryNanos = lastRefillNanos;
+    }
+
+    /**
+     * @param error errors are always written and do not use up the rate limit
+     */
+    synchronized boolean shouldWrite(boolean error) {
+        if (error) {
+            return true;
+        }
+        boolean sampled = requests++ % everyNth == 0;
+        if (sampled && (maxLinesPerSecond == 0 || takeToken())) {
+            return true;
+        }
+        suppressedLines++;
+        return false;
+    }
+
+    /**
+     * @return the lines suppressed since the last summary, 0 when there is no summary to write yet
+     */
+    synchronized long takeSuppressedLines(boolean endOfRun) {
+        long now = nanoClock.getAsLong();
+        if (suppressedLines == 0 || (!endOfRun && now - lastSummaryNanos < summaryIntervalNanos)) {
+            return 0;
+        }
+        long lines = suppressedLines;
+        suppressedLines = 0;
+        lastSummaryNanos = now;
+        return lines;
+    }
+
+    private boolean takeToken() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(maxLinesPerSecond, tokens + (now - lastRefillNanos) * maxLinesPerSecond / 1e9);
+        lastRefillNanos = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
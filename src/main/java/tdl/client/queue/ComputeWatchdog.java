@@ -0,0 +1,142 @@
+package tdl.client.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tdl.client.queue.abstractions.Request;
+import tdl.client.queue.abstractions.response.FatalErrorResponse;
+import tdl.client.queue.abstractions.response.Response;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the user implementation on a compute thread and stops waiting for it once its deadline has passed.
+ *
+ * On overrun the compute thread is interrupted and abandoned, the request gets the deadline exceeded response.
+ * A solution that ignores the interrupt keeps its thread, stuck, but no longer holds the runner or the broker consumer.
+ * Once {@link #MAX_STUCK_THREADS} threads are stuck, new requests are refused with an error until one of them ends.
+ */
+final class ComputeWatchdog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ComputeWatchdog.class);
+    static final int MAX_STUCK_THREADS = 4;
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
+    private final int defaultDeadlineMillis;
+    private final Function<Request, Response> deadlineExceededResponse;
+    private final RunnerMetrics metrics;
+    private final ThreadPoolExecutor computeThreads;
+
+    ComputeWatchdog(ImplementationRunnerConfig config, RunnerMetrics metrics) {
+        this.defaultDeadlineMillis = config.getComputeDeadlineMillis();
+        this.deadlineExceededResponse = config.getDeadlineExceededResponse();
+        this.metrics = metrics;
+        //Design: One thread per worker and one per stuck solution, refusing work keeps the tasks within that bound
+        int maxThreads = Math.max(1, config.getWorkerThreads()) + MAX_STUCK_THREADS;
+        //Obs: Idle compute threads expire on their own and are daemons, the pool never needs to be shut down
+        this.computeThreads = new ThreadPoolExecutor(maxThreads, maxThreads,
+                IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                config.getExecutionMode().threadFactory("tdl-compute-"));
+        computeThreads.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param deadlineMillis the deadline of the rule, 0 when it uses the deadline of the runner
+     */
+    Response getResponseFor(Request request, int deadlineMillis, Supplier<Response> compute) {
+        int effectiveDeadlineMillis = deadlineMillis > 0 ? deadlineMillis : defaultDeadlineMillis;
+        if (effectiveDeadlineMillis <= 0) {
+            return compute.get();
+        }
+
+        int stuckThreads = metrics.getStuckComputeThreads();
+        if (stuckThreads >= MAX_STUCK_THREADS) {
+            return new FatalErrorResponse(String.format(
+                    "user implementation not called, %d abandoned solutions are still running", stuckThreads));
+        }
+
+        Computation computation = new Computation(compute);
+        Future<Response> response = computeThreads.submit(computation);
+        try {
+            return response.get(effectiveDeadlineMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandon(computation, response);
+            metrics.recordDeadlineOverrun();
+            LOGGER.warn("The solution for '{}' exceeded its deadline of {} ms, stuck compute threads: {}",
+                    request.getMethodName(), effectiveDeadlineMillis, metrics.getStuckComputeThreads());
+            return deadlineExceeded(request, effectiveDeadlineMillis);
+        } catch (InterruptedException e) {
+            abandon(computation, response);
+            Thread.currentThread().interrupt();
+            return new FatalErrorResponse("interrupted while waiting for the user implementation");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private void abandon(Computation computation, Future<Response> response) {
+        if (computation.abandon()) {
+            metrics.recordStuckComputeThread();
+        }
+        response.cancel(true);
+    }
+
+    private Response deadlineExceeded(Request request, int deadlineMillis) {
+        if (deadlineExceededResponse != null) {
+            return deadlineExceededResponse.apply(request);
+        }
+        return new FatalErrorResponse(String.format("user implementation exceeded the deadline of %d ms", deadlineMillis));
+    }
+
+    //~~~ Computation
+
+    /**
+     * A call of the user implementation, which counts as stuck from the time it is abandoned until it ends
+     */
+    private final class Computation implements Callable<Response> {
+        private static final int WAITING = 0;
+        private static final int RUNNING = 1;
+        private static final int ENDED = 2;
+        private static final int ABANDONED = 3;
+
+        private final Supplier<Response> compute;
+        private final AtomicInteger state;
+
+        Computation(Supplier<Response> compute) {
+            this.compute = compute;
+            this.state = new AtomicInteger(WAITING);
+        }
+
+        @Override
+        public Response call() {
+            if (!state.compareAndSet(WAITING, RUNNING)) {
+                return null;
+            }
+            try {
+                return compute.get();
+            } finally {
+                if (!state.compareAndSet(RUNNING, ENDED)) {
+                    metrics.releaseStuckComputeThread();
+                }
+            }
+        }
+
+        /**
+         * @return true if the user implementation is running and keeps its thread
+         */
+        boolean abandon() {
+            //Obs: A computation abandoned before it started never runs, it does not hold a thread
+            return !state.compareAndSet(WAITING, ABANDONED) && state.compareAndSet(RUNNING, ABANDONED);
+        }
+    }
+}
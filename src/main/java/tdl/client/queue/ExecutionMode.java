@@ -0,0 +1,108 @@
+package tdl.client.queue;
+
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The kind of threads used for the runner loops, the workers and the blocking broker and HTTP calls.
+ *
+ * Virtual threads need Java 21, the project targets Java 17 so they are looked up at runtime.
+ * On an older JVM the virtual thread mode falls back to platform threads.
+ */
+public enum ExecutionMode {
+    PLATFORM_THREADS,
+    VIRTUAL_THREADS;
+
+    private static final ThreadFactoryProvider VIRTUAL_THREADS_PROVIDER = lookupVirtualThreads();
+
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREADS_PROVIDER != null;
+    }
+
+    /**
+     * Virtual threads when the JVM supports them, platform threads otherwise
+     */
+    public static ExecutionMode bestAvailable() {
+        return isVirtualThreadSupported() ? VIRTUAL_THREADS : PLATFORM_THREADS;
+    }
+
+    public boolean usesVirtualThreads() {
+        return this == VIRTUAL_THREADS && isVirtualThreadSupported();
+    }
+
+    public ThreadFactory threadFactory(String namePrefix) {
+        if (usesVirtualThreads()) {
+            return VIRTUAL_THREADS_PROVIDER.create(namePrefix);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public Thread startThread(String name, Runnable task) {
+        Thread thread = threadFactory(name).newThread(task);
+        thread.setName(name);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * With virtual threads every task gets its own thread, the number of threads is only a limit for platform threads
+     */
+    public ExecutorService newExecutor(String namePrefix, int platformThreads) {
+        if (usesVirtualThreads()) {
+            return VIRTUAL_THREADS_PROVIDER.newThreadPerTaskExecutor(namePrefix);
+        }
+        return Executors.newFixedThreadPool(platformThreads, threadFactory(namePrefix));
+    }
+
+    //~~~ Runtime lookup
+
+    private interface ThreadFactoryProvider {
+        ThreadFactory create(String namePrefix);
+
+        ExecutorService newThreadPerTaskExecutor(String namePrefix);
+    }
+
+    private static ThreadFactoryProvider lookupVirtualThreads() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            Method factory = builderClass.getMethod("factory");
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+
+            return new ThreadFactoryProvider() {
+                @Override
+                public ThreadFactory create(String namePrefix) {
+                    try {
+                        Object builder = name.invoke(ofVirtual.invoke(null), namePrefix, 1L);
+                        return (ThreadFactory) factory.invoke(builder);
+                    } catch (ReflectiveOperationException e) {
+                        throw new IllegalStateException("Could not create a virtual thread factory", e);
+                    }
+                }
+
+                @Override
+                public ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+                    try {
+                        return (ExecutorService) newThreadPerTaskExecutor.invoke(null, create(namePrefix));
+                    } catch (ReflectiveOperationException e) {
+                        throw new IllegalStateException("Could not create a virtual thread executor", e);
+                    }
+                }
+            };
+        } catch (ReflectiveOperationException e) {
+            LoggerFactory.getLogger(ExecutionMode.class).debug("Virtual threads are not supported by this JVM");
+            return null;
+        }
+    }
+}
@@ -1,20 +1,64 @@
 package tdl.client.queue;
 
+import tdl.client.audit.AuditLevel;
+import tdl.client.audit.AuditSampling;
 import tdl.client.audit.AuditStream;
+import tdl.client.audit.DisplayLimits;
 import tdl.client.audit.StdoutAuditStream;
+import tdl.client.queue.abstractions.Request;
+import tdl.client.queue.journal.AuditJournal;
+import tdl.client.queue.abstractions.response.Response;
+import tdl.client.queue.transport.AcknowledgeStrategy;
+import tdl.client.queue.transport.BrokerConnectionPool;
+import tdl.client.queue.transport.PrefetchPolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
 
 public class ImplementationRunnerConfig {
     private String hostname;
     private int port;
     private AuditStream auditStream;
+    private AuditLevel auditLevel;
+    private DisplayLimits auditDisplayLimits;
+    private AuditSampling auditSampling;
+    private AuditJournal auditJournal;
     private int requestTimeoutMillis;
     private String requestQueueName;
     private String responseQueueName;
+    private int workerThreads;
+    private ExecutionMode executionMode;
+    private boolean pipelined;
+    private int pipelineQueueDepth;
+    private AcknowledgeStrategy acknowledgeStrategy;
+    private PrefetchPolicy prefetchPolicy;
+    private int asyncSendWindow;
+    private boolean waitForEndOfStream;
+    private int endOfStreamSafetyTimeoutMillis;
+    private BrokerConnectionPool connectionPool;
+    private final List<String> failoverBrokerURLs;
+    private ReconnectPolicy reconnectPolicy;
+    private int computeDeadlineMillis;
+    private Function<Request, Response> deadlineExceededResponse;
 
     public ImplementationRunnerConfig() {
         port = 61616;
         requestTimeoutMillis = 500;
+        workerThreads = 1;
+        executionMode = ExecutionMode.PLATFORM_THREADS;
+        pipelined = false;
+        pipelineQueueDepth = 8;
+        acknowledgeStrategy = AcknowledgeStrategy.perMessage();
+        asyncSendWindow = 0;
+        waitForEndOfStream = false;
+        endOfStreamSafetyTimeoutMillis = 60000;
+        failoverBrokerURLs = new ArrayList<>();
         auditStream = new StdoutAuditStream();
+        auditLevel = AuditLevel.FULL;
+        auditDisplayLimits = DisplayLimits.DEFAULT;
+        auditSampling = AuditSampling.everyRequest();
+        computeDeadlineMillis = 0;
     }
 
     public ImplementationRunnerConfig setHostname(String hostname) {
@@ -42,15 +86,180 @@ public class ImplementationRunnerConfig {
         return this;
     }
 
+    /**
+     * How much of every request is written to the audit stream, {@link AuditLevel#FULL} by default
+     */
+    public ImplementationRunnerConfig setAuditLevel(AuditLevel auditLevel) {
+        this.auditLevel = auditLevel;
+        return this;
+    }
+
+    /**
+     * How much of a single param or result is shown in the audit, large arrays and strings are cut
+     */
+    public ImplementationRunnerConfig setAuditDisplayLimits(DisplayLimits auditDisplayLimits) {
+        this.auditDisplayLimits = auditDisplayLimits;
+        return this;
+    }
+
+    /**
+     * Only write the audit line of some of the requests, use {@link AuditSampling#everyNth(int)}
+     * or {@link AuditSampling#maxLinesPerSecond(int)}. Errors are always written.
+     */
+    public ImplementationRunnerConfig setAuditSampling(AuditSampling auditSampling) {
+        this.auditSampling = auditSampling;
+        return this;
+    }
+
+    /**
+     * Also record every request in a binary journal, whatever the audit level and sampling.
+     * The journal is not closed by the runner.
+     */
+    public ImplementationRunnerConfig setAuditJournal(AuditJournal auditJournal) {
+        this.auditJournal = auditJournal;
+        return this;
+    }
+
     public ImplementationRunnerConfig setRequestTimeoutMillis(int requestTimeoutMillis) {
         this.requestTimeoutMillis = requestTimeoutMillis;
         return this;
     }
 
+    /**
+     * Number of threads used to run the user implementation.
+     * With more than one thread, requests are processed concurrently but responses are still published in order.
+     */
+    public ImplementationRunnerConfig setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+        return this;
+    }
+
+    /**
+     * Run the runner loop, the workers and the pipeline stages on virtual threads when the JVM supports them.
+     * Use {@link ExecutionMode#bestAvailable()} to pick the mode at runtime.
+     */
+    public ImplementationRunnerConfig setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        return this;
+    }
+
+    /**
+     * Run receive, decode, compute, encode and send on separate threads so broker round trips overlap with compute.
+     * The compute stage runs on a single thread, responses are published in request order.
+     */
+    public ImplementationRunnerConfig setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+        return this;
+    }
+
+    public ImplementationRunnerConfig setPipelineQueueDepth(int pipelineQueueDepth) {
+        this.pipelineQueueDepth = pipelineQueueDepth;
+        return this;
+    }
+
+    public ImplementationRunnerConfig setAcknowledgeStrategy(AcknowledgeStrategy acknowledgeStrategy) {
+        this.acknowledgeStrategy = acknowledgeStrategy;
+        return this;
+    }
+
+    /**
+     * Publish responses without waiting for the broker, with at most this many unconfirmed at a time.
+     * A request is only acknowledged once its response has been confirmed. 0 sends synchronously.
+     * Transacted responses are always sent synchronously.
+     */
+    public ImplementationRunnerConfig setAsyncSendWindow(int asyncSendWindow) {
+        this.asyncSendWindow = asyncSendWindow;
+        return this;
+    }
+
+    /**
+     * Tune the consumer prefetch, use {@link PrefetchPolicy#highThroughput()} or {@link PrefetchPolicy#lowLatency()}.
+     * When not set the broker defaults apply.
+     */
+    public ImplementationRunnerConfig setPrefetchPolicy(PrefetchPolicy prefetchPolicy) {
+        this.prefetchPolicy = prefetchPolicy;
+        return this;
+    }
+
+    /**
+     * Keep waiting for requests until the server sends a message flagged with the "end_of_stream" property.
+     * The run still ends if no message arrives within the safety timeout.
+     * Without this option, the run ends at the first request timeout.
+     */
+    public ImplementationRunnerConfig setWaitForEndOfStream(boolean waitForEndOfStream) {
+        this.waitForEndOfStream = waitForEndOfStream;
+        return this;
+    }
+
+    public ImplementationRunnerConfig setEndOfStreamSafetyTimeoutMillis(int endOfStreamSafetyTimeoutMillis) {
+        this.endOfStreamSafetyTimeoutMillis = endOfStreamSafetyTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Reuse the broker connection across runs. The pool is owned by the caller and should be closed by it.
+     */
+    public ImplementationRunnerConfig setConnectionPool(BrokerConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+        return this;
+    }
+
+    /**
+     * Broker to try after the main one, used when a reconnect policy is set
+     */
+    public ImplementationRunnerConfig addFailoverBroker(String hostname, int port) {
+        failoverBrokerURLs.add(brokerURL(hostname, port));
+        return this;
+    }
+
+    /**
+     * Reconnect, instead of stopping, when the connection to the broker is lost in the middle of a run.
+     * Requests that were answered but not yet acknowledged are not answered a second time.
+     */
+    public ImplementationRunnerConfig setReconnectPolicy(ReconnectPolicy reconnectPolicy) {
+        this.reconnectPolicy = reconnectPolicy;
+        return this;
+    }
+
+    /**
+     * Stop waiting for a solution that computes for longer than this, its thread is interrupted and abandoned.
+     * By default the request gets a fatal error, so the run stops. 0 waits forever.
+     * A solution can set its own deadline, which takes precedence.
+     */
+    public ImplementationRunnerConfig setComputeDeadlineMillis(int computeDeadlineMillis) {
+        this.computeDeadlineMillis = computeDeadlineMillis;
+        return this;
+    }
+
+    /**
+     * The response for a request whose solution missed its deadline, instead of the fatal error.
+     * Returning a valid response publishes it and the run goes on with the next request.
+     */
+    public ImplementationRunnerConfig setDeadlineExceededResponse(Function<Request, Response> deadlineExceededResponse) {
+        this.deadlineExceededResponse = deadlineExceededResponse;
+        return this;
+    }
+
     public AuditStream getAuditStream() {
         return auditStream;
     }
 
+    public AuditLevel getAuditLevel() {
+        return auditLevel;
+    }
+
+    public DisplayLimits getAuditDisplayLimits() {
+        return auditDisplayLimits;
+    }
+
+    public AuditSampling getAuditSampling() {
+        return auditSampling;
+    }
+
+    public AuditJournal getAuditJournal() {
+        return auditJournal;
+    }
+
     public String getHostname() {
         return hostname;
     }
@@ -70,4 +279,67 @@ public class ImplementationRunnerConfig {
     public int getRequestTimeoutMillis() {
         return requestTimeoutMillis;
     }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    public int getPipelineQueueDepth() {
+        return pipelineQueueDepth;
+    }
+
+    public AcknowledgeStrategy getAcknowledgeStrategy() {
+        return acknowledgeStrategy;
+    }
+
+    public int getAsyncSendWindow() {
+        return asyncSendWindow;
+    }
+
+    public PrefetchPolicy getPrefetchPolicy() {
+        return prefetchPolicy;
+    }
+
+    public boolean isWaitForEndOfStream() {
+        return waitForEndOfStream;
+    }
+
+    public int getEndOfStreamSafetyTimeoutMillis() {
+        return endOfStreamSafetyTimeoutMillis;
+    }
+
+    public BrokerConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    public List<String> getBrokerURLs() {
+        List<String> brokerURLs = new ArrayList<>();
+        brokerURLs.add(brokerURL(hostname, port));
+        brokerURLs.addAll(failoverBrokerURLs);
+        return brokerURLs;
+    }
+
+    public ReconnectPolicy getReconnectPolicy() {
+        return reconnectPolicy;
+    }
+
+    public int getComputeDeadlineMillis() {
+        return computeDeadlineMillis;
+    }
+
+    public Function<Request, Response> getDeadlineExceededResponse() {
+        return deadlineExceededResponse;
+    }
+
+    private static String brokerURL(String hostname, int port) {
+        return String.format("tcp://%s:%s", hostname, port);
+    }
 }
@@ -0,0 +1,65 @@
+package tdl.client.queue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how often a memoized solution has been answered from its cache.
+ */
+public final class MemoizationStats {
+    private final String methodName;
+    private final int maxEntries;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    MemoizationStats(String methodName, int maxEntries) {
+        this.methodName = methodName;
+        this.maxEntries = maxEntries;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+    }
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    void recordEviction() {
+        evictions.incrementAndGet();
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRatio() {
+        long lookups = getHits() + getMisses();
+        return lookups == 0 ? 0 : (double) getHits() / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s = %d hits, %d misses, %d evictions (max %d entries)",
+                methodName, getHits(), getMisses(), getEvictions(), maxEntries);
+    }
+}
@@ -0,0 +1,77 @@
+package tdl.client.queue;
+
+import tdl.client.queue.abstractions.ProcessingRule;
+import tdl.client.queue.abstractions.Request;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Answers repeated params from a bounded cache instead of calling the solution again.
+ * Only meant for pure solutions, whose result depends on nothing but the params.
+ *
+ * The key is the params as compact JSON, copied from the message without building their tree.
+ * The fields of an object keep the order they were sent in, the same object in another order is another entry.
+ * The least recently used entry is evicted once the cache is full. Failures are never cached.
+ */
+final class MemoizingProcessingRule extends ProcessingRule {
+    private static final Object NULL_RESULT = new Object();
+
+    private final ProcessingRule delegate;
+    private final MemoizationStats stats;
+    private final Map<String, Object> results;
+
+    MemoizingProcessingRule(String methodName, ProcessingRule delegate, int maxEntries) {
+        super(delegate.getUserImplementation());
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("A memoized solution needs room for at least one entry");
+        }
+        this.delegate = delegate;
+        this.stats = new MemoizationStats(methodName, maxEntries);
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                boolean full = size() > maxEntries;
+                if (full) {
+                    stats.recordEviction();
+                }
+                return full;
+            }
+        };
+    }
+
+    MemoizationStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public Object process(Request request) throws Exception {
+        String key = keyOf(request);
+        Object cached;
+        synchronized (results) {
+            cached = results.get(key);
+        }
+        if (cached != null) {
+            stats.recordHit();
+            return cached == NULL_RESULT ? null : cached;
+        }
+
+        //Obs: Computed outside the lock, two workers missing on the same params both compute it
+        stats.recordMiss();
+        Object result = delegate.process(request);
+        synchronized (results) {
+            results.put(key, result == null ? NULL_RESULT : result);
+        }
+        return result;
+    }
+
+    //~~~ Key
+
+    static String keyOf(Request request) throws IOException {
+        StringWriter key = new StringWriter();
+        request.writeParams(key);
+        return key.toString();
+    }
+}
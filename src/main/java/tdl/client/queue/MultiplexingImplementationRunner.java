@@ -0,0 +1,158 @@
+package tdl.client.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tdl.client.queue.abstractions.Request;
+import tdl.client.queue.abstractions.UserImplementation;
+import tdl.client.queue.abstractions.response.Response;
+import tdl.client.queue.transport.MultiplexedBroker;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Hosts many request/response queue pairs in one runner.
+ *
+ * The queues share a few broker connections and a fixed pool of worker threads, set through
+ * {@link ImplementationRunnerConfig#setWorkerThreads(int)}. An idle queue does not hold a thread.
+ * Each queue is still processed strictly in order and stops on its own at the first fatal error,
+ * at the end of its stream or when it has been idle for the request timeout.
+ *
+ * The request and response queue names of the config are ignored, each registration brings its own.
+ */
+public class MultiplexingImplementationRunner implements ImplementationRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexingImplementationRunner.class);
+    private static final long SWEEP_INTERVAL_MILLIS = 100;
+
+    private final ImplementationRunnerConfig config;
+    private final List<Registration> registrations;
+    private final int connections;
+    private final QueueBasedImplementationRunner.Audit audit;
+    private final RunnerMetrics metrics;
+
+    private MultiplexingImplementationRunner(ImplementationRunnerConfig config,
+                                             List<Registration> registrations,
+                                             int connections) {
+        this.config = config;
+        this.connections = connections;
+        metrics = new RunnerMetrics();
+        audit = new QueueBasedImplementationRunner.Audit(config, metrics);
+        ComputeWatchdog watchdog = new ComputeWatchdog(config, metrics);
+        this.registrations = new ArrayList<>();
+        for (Registration registration : registrations) {
+            this.registrations.add(new Registration(registration.requestQueue, registration.responseQueue,
+                    registration.processingRules.watchedBy(watchdog)));
+        }
+    }
+
+    public static class Builder {
+        private final List<Registration> registrations;
+        private ImplementationRunnerConfig config;
+        private int connections;
+
+        public Builder() {
+            registrations = new ArrayList<>();
+            connections = 1;
+        }
+
+        public Builder setConfig(ImplementationRunnerConfig config) {
+            this.config = config;
+            return this;
+        }
+
+        public Builder setConnections(int connections) {
+            this.connections = connections;
+            return this;
+        }
+
+        public Builder register(String requestQueue,
+                                String responseQueue,
+                                Map<String, UserImplementation> solutions) {
+            ProcessingRules processingRules = QueueBasedImplementationRunner.Builder.createDeployProcessingRules();
+            solutions.forEach((methodName, userImplementation) -> processingRules
+                    .on(methodName)
+                    .call(userImplementation)
+                    .build());
+            registrations.add(new Registration(requestQueue, responseQueue, processingRules.freeze()));
+            return this;
+        }
+
+        public MultiplexingImplementationRunner create() {
+            return new MultiplexingImplementationRunner(config, registrations, connections);
+        }
+    }
+
+    @Override
+    public void run() {
+        audit.logLine("Starting client");
+        ExecutorService dispatchExecutor = config.getExecutionMode()
+                .newExecutor("tdl-dispatch-", config.getWorkerThreads());
+        try (MultiplexedBroker broker = new MultiplexedBroker(
+                config.getBrokerURLs().get(0), connections, dispatchExecutor)) {
+            List<MultiplexedBroker.Subscription> subscriptions = new ArrayList<>();
+            for (Registration registration : registrations) {
+                QueueBasedImplementationRunner.Audit queueAudit =
+                        audit.withPrefix("[" + registration.requestQueue + "] ");
+                subscriptions.add(broker.subscribe(registration.requestQueue, registration.responseQueue,
+                        request -> registration.process(request, queueAudit)));
+            }
+            audit.logLine("Waiting for requests");
+
+            long idleTimeoutMillis = config.isWaitForEndOfStream()
+                    ? config.getEndOfStreamSafetyTimeoutMillis()
+                    : config.getRequestTimeoutMillis();
+            while (!subscriptions.isEmpty()) {
+                Thread.sleep(Math.min(SWEEP_INTERVAL_MILLIS, idleTimeoutMillis));
+                Iterator<MultiplexedBroker.Subscription> iterator = subscriptions.iterator();
+                while (iterator.hasNext()) {
+                    MultiplexedBroker.Subscription subscription = iterator.next();
+                    if (subscription.isFinished() || subscription.isIdleFor(idleTimeoutMillis)) {
+                        subscription.close();
+                        iterator.remove();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            String message = "There was a problem processing messages";
+            LOGGER.error(message, e);
+            audit.logException(message, e);
+        } finally {
+            dispatchExecutor.shutdownNow();
+        }
+        audit.logSuppressedLines();
+        audit.logLine("Stopping client");
+        audit.flush();
+    }
+
+    public RunnerMetrics getMetrics() {
+        return metrics;
+    }
+
+    //~~~ Utils
+
+    private static class Registration {
+        private final String requestQueue;
+        private final String responseQueue;
+        private final ProcessingRules processingRules;
+
+        Registration(String requestQueue, String responseQueue, ProcessingRules processingRules) {
+            this.requestQueue = requestQueue;
+            this.responseQueue = responseQueue;
+            this.processingRules = processingRules;
+        }
+
+        Response process(Request request, QueueBasedImplementationRunner.Audit queueAudit) {
+            Response response = processingRules.getResponseFor(request);
+            queueAudit.startLine();
+            queueAudit.log(request);
+            queueAudit.log(response);
+            queueAudit.endLine();
+            return response;
+        }
+    }
+}
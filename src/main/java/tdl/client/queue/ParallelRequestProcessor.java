@@ -0,0 +1,142 @@
+package tdl.client.queue;
+
+import tdl.client.queue.abstractions.Request;
+import tdl.client.queue.abstractions.response.FatalErrorResponse;
+import tdl.client.queue.abstractions.response.Response;
+import tdl.client.queue.transport.BrokerCommunicationException;
+import tdl.client.queue.transport.RemoteBroker;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the user implementation for several requests at the same time while
+ * publishing the responses in the order in which the requests have arrived.
+ *
+ * The broker is only ever used from the calling thread, the worker threads just compute responses.
+ */
+class ParallelRequestProcessor {
+    private final ProcessingRules processingRules;
+    private final QueueBasedImplementationRunner.Audit audit;
+    private final int workerThreads;
+    private final ExecutionMode executionMode;
+    private final int maxRequestsInFlight;
+
+    ParallelRequestProcessor(ProcessingRules processingRules,
+                             QueueBasedImplementationRunner.Audit audit,
+                             int workerThreads,
+                             ExecutionMode executionMode) {
+        this.processingRules = processingRules;
+        this.audit = audit;
+        this.workerThreads = workerThreads;
+        this.executionMode = executionMode;
+        this.maxRequestsInFlight = workerThreads * 2;
+    }
+
+    void process(RemoteBroker remoteBroker) throws BrokerCommunicationException {
+        //Obs: With virtual threads the number of requests in flight is the only limit on concurrency
+        ExecutorService workers = executionMode.newExecutor("tdl-worker-", workerThreads);
+        try {
+            //Design: The reorder buffer holds the pending responses in arrival order, only the head can be published
+            Deque<PendingResponse> reorderBuffer = new ArrayDeque<>();
+            boolean moreRequests = true;
+            while (true) {
+                while (isHeadReady(reorderBuffer)) {
+                    if (!publishHead(reorderBuffer, remoteBroker)) {
+                        return;
+                    }
+                }
+
+                if (moreRequests && reorderBuffer.size() < maxRequestsInFlight
+                        && !remoteBroker.mustDrainBeforeReceiving()) {
+                    Optional<Request> request = remoteBroker.receive();
+                    if (request.isPresent()) {
+                        Request received = request.get();
+                        reorderBuffer.add(new PendingResponse(received,
+                                workers.submit(() -> processingRules.getResponseFor(received))));
+                    } else {
+                        moreRequests = false;
+                    }
+                    continue;
+                }
+
+                //Obs: With async sends the requests to drain can all be answered and waiting for confirmation
+                if (reorderBuffer.isEmpty() && moreRequests) {
+                    remoteBroker.awaitDrained();
+                    continue;
+                }
+
+                if (reorderBuffer.isEmpty() || !publishHead(reorderBuffer, remoteBroker)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static boolean isHeadReady(Deque<PendingResponse> reorderBuffer) {
+        return !reorderBuffer.isEmpty() && reorderBuffer.peek().response.isDone();
+    }
+
+    /**
+     * @return false if the processing should stop
+     */
+    private boolean publishHead(Deque<PendingResponse> reorderBuffer, RemoteBroker remoteBroker)
+            throws BrokerCommunicationException {
+        PendingResponse head = reorderBuffer.poll();
+        Response response;
+        try {
+            response = head.response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            throw propagate(e.getCause());
+        }
+
+        audit.startLine();
+        audit.log(head.request);
+        audit.log(response);
+
+        //Obs: The requests following a fatal error are never acknowledged so they will be redelivered
+        if (response instanceof FatalErrorResponse) {
+            audit.endLine();
+            return false;
+        }
+
+        long start = System.nanoTime();
+        remoteBroker.respondTo(head.request, response);
+        head.request.getTimings().addRespondNanos(System.nanoTime() - start);
+        audit.endLine();
+        return true;
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    //~~~ Utils
+
+    private static class PendingResponse {
+        private final Request request;
+        private final Future<Response> response;
+
+        PendingResponse(Request request, Future<Response> response) {
+            this.request = request;
+            this.response = response;
+        }
+    }
+}
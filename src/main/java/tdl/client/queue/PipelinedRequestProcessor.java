@@ -0,0 +1,277 @@
+package tdl.client.queue;
+
+import org.slf4j.LoggerFactory;
+import tdl.client.queue.abstractions.Request;
+import tdl.client.queue.abstractions.response.FatalErrorResponse;
+import tdl.client.queue.abstractions.response.Response;
+import tdl.client.queue.transport.BrokerCommunicationException;
+import tdl.client.queue.transport.RemoteBroker;
+import tdl.client.queue.transport.StringMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Splits the processing of a request into receive, decode, compute, encode and send stages.
+ * The decode, compute and encode stages each run on their own thread and hand the request over to the next one
+ * through a bounded queue, so the next message is decoded while the current one computes and the previous one is sent.
+ *
+ * Every stage is a single thread reading from a FIFO queue, so the responses are sent in request order.
+ * Receiving and sending both run on the calling thread: it is the only one using the broker session,
+ * which JMS does not allow to be shared between threads, and the only one that writes to the audit.
+ */
+class PipelinedRequestProcessor {
+    private static final long STAGE_SHUTDOWN_GRACE_MILLIS = 1000;
+    private static final long MIN_BROKER_POLL_MILLIS = 1;
+    private static final long MAX_BROKER_POLL_MILLIS = 50;
+
+    private final ProcessingRules processingRules;
+    private final QueueBasedImplementationRunner.Audit audit;
+    private final int queueDepth;
+    private final RunnerMetrics metrics;
+    private final ExecutionMode executionMode;
+    private final AtomicReference<Exception> stageFailure;
+    private volatile boolean stopping;
+
+    PipelinedRequestProcessor(ProcessingRules processingRules,
+                              QueueBasedImplementationRunner.Audit audit,
+                              int queueDepth,
+                              RunnerMetrics metrics,
+                              ExecutionMode executionMode) {
+        this.processingRules = processingRules;
+        this.audit = audit;
+        this.queueDepth = queueDepth;
+        this.metrics = metrics;
+        this.executionMode = executionMode;
+        this.stageFailure = new AtomicReference<>();
+    }
+
+    void process(RemoteBroker remoteBroker) throws BrokerCommunicationException {
+        metrics.resetStages();
+        HandOff toDecode = new HandOff(metrics.trackStage("decode", queueDepth));
+        HandOff toCompute = new HandOff(metrics.trackStage("compute", queueDepth));
+        HandOff toEncode = new HandOff(metrics.trackStage("encode", queueDepth));
+        HandOff toSend = new HandOff(metrics.trackStage("send", queueDepth));
+
+        List<Thread> stages = new ArrayList<>();
+        stages.add(startStage("decode", toDecode, toCompute, item -> {
+            List<Request> requests = remoteBroker.decode(item.message);
+            if (requests.isEmpty()) {
+                return false;
+            }
+            //Obs: The requests of a batch are handed over one by one, the last one travels in the received item
+            for (Request request : requests.subList(0, requests.size() - 1)) {
+                PipelineItem batchItem = new PipelineItem();
+                batchItem.message = item.message;
+                batchItem.request = request;
+                toCompute.put(batchItem);
+            }
+            item.request = requests.get(requests.size() - 1);
+            item.lastOfMessage = true;
+            return true;
+        }));
+        stages.add(startStage("compute", toCompute, toEncode, item -> {
+            item.response = processingRules.getResponseFor(item.request);
+            return true;
+        }));
+        stages.add(startStage("encode", toEncode, toSend, item -> {
+            if (!(item.response instanceof FatalErrorResponse)) {
+                long start = System.nanoTime();
+                item.serializedResponse = remoteBroker.encode(item.response);
+                item.request.getTimings().addRespondNanos(System.nanoTime() - start);
+            }
+            return true;
+        }));
+
+        try {
+            receiveAndSend(toDecode, toSend, remoteBroker);
+        } finally {
+            stopStages(stages);
+            LoggerFactory.getLogger(PipelinedRequestProcessor.class)
+                    .debug("Pipeline occupancy: {}", metrics.getStageOccupancy());
+        }
+
+        Exception failure = stageFailure.get();
+        if (failure instanceof BrokerCommunicationException) {
+            throw (BrokerCommunicationException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+    }
+
+    /**
+     * The broker side of the pipeline, sends what is ready and receives while the pipeline has room.
+     *
+     * A receive only waits for a request when nothing is in flight, otherwise the responses would wait with it.
+     * The broker is only polled while the decode queue has room, and every poll that finds nothing doubles the time
+     * spent waiting on the responses before the next one, so a slow computation does not keep a core busy.
+     */
+    private void receiveAndSend(HandOff toDecode, HandOff toSend, RemoteBroker remoteBroker)
+            throws BrokerCommunicationException {
+        //Obs: Keeps the decode queue from ever blocking the calling thread, a message takes one slot of it at most
+        int maxMessagesInFlight = queueDepth;
+        int messagesInFlight = 0;
+        boolean moreRequests = true;
+        long brokerPollMillis = MIN_BROKER_POLL_MILLIS;
+        try {
+            PipelineItem ready = toSend.poll();
+            while (true) {
+                while (ready != null) {
+                    if (ready == PipelineItem.END_OF_STREAM || !send(ready, remoteBroker)) {
+                        return;
+                    }
+                    if (ready.lastOfMessage) {
+                        messagesInFlight--;
+                    }
+                    ready = toSend.poll();
+                }
+
+                if (moreRequests && messagesInFlight < maxMessagesInFlight
+                        && !remoteBroker.mustDrainBeforeReceiving()) {
+                    StringMessage message = messagesInFlight == 0
+                            ? remoteBroker.receiveMessage()
+                            : remoteBroker.pollMessage();
+                    if (message == null) {
+                        //Obs: A finished response still wakes the thread at once, only new requests wait longer
+                        ready = toSend.poll(brokerPollMillis);
+                        brokerPollMillis = Math.min(brokerPollMillis * 2, MAX_BROKER_POLL_MILLIS);
+                        continue;
+                    }
+                    brokerPollMillis = MIN_BROKER_POLL_MILLIS;
+                    moreRequests = message.isValid();
+                    if (moreRequests) {
+                        PipelineItem item = new PipelineItem();
+                        item.message = message;
+                        toDecode.put(item);
+                        messagesInFlight++;
+                    } else {
+                        toDecode.put(PipelineItem.END_OF_STREAM);
+                    }
+                } else if (messagesInFlight == 0 && moreRequests) {
+                    //Obs: With async sends the requests to drain can all be answered and waiting for confirmation
+                    remoteBroker.awaitDrained();
+                } else {
+                    ready = toSend.take();
+                    continue;
+                }
+                ready = toSend.poll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return false if the processing should stop
+     */
+    private boolean send(PipelineItem item, RemoteBroker remoteBroker) throws BrokerCommunicationException {
+        audit.startLine();
+        audit.log(item.request);
+        audit.log(item.response);
+
+        //Obs: The requests already in the pipeline are never acknowledged so they will be redelivered
+        if (item.response instanceof FatalErrorResponse) {
+            audit.endLine();
+            return false;
+        }
+
+        long start = System.nanoTime();
+        remoteBroker.send(item.request, item.serializedResponse);
+        item.request.getTimings().addRespondNanos(System.nanoTime() - start);
+        audit.endLine();
+        return true;
+    }
+
+    //~~~ Stages
+
+    @FunctionalInterface
+    private interface StageAction {
+        /**
+         * @return false if this is the end of the stream
+         */
+        boolean apply(PipelineItem item) throws BrokerCommunicationException, InterruptedException;
+    }
+
+    private Thread startStage(String name, HandOff input, HandOff output, StageAction action) {
+        return executionMode.startThread("tdl-pipeline-" + name, () -> {
+            try {
+                while (true) {
+                    PipelineItem item = input.take();
+                    if (item == PipelineItem.END_OF_STREAM || !action.apply(item)) {
+                        output.put(PipelineItem.END_OF_STREAM);
+                        return;
+                    }
+                    output.put(item);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (BrokerCommunicationException | RuntimeException e) {
+                //Obs: Interrupting a blocked receive while stopping also surfaces as a failure
+                if (!stopping) {
+                    stageFailure.compareAndSet(null, e);
+                }
+                try {
+                    output.put(PipelineItem.END_OF_STREAM);
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    private void stopStages(List<Thread> stages) {
+        stopping = true;
+        stages.forEach(Thread::interrupt);
+        for (Thread stage : stages) {
+            try {
+                stage.join(STAGE_SHUTDOWN_GRACE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    //~~~ Utils
+
+    private static class PipelineItem {
+        private static final PipelineItem END_OF_STREAM = new PipelineItem();
+
+        private StringMessage message;
+        private Request request;
+        private Response response;
+        private String serializedResponse;
+        private boolean lastOfMessage;
+    }
+
+    private static class HandOff {
+        private final BlockingQueue<PipelineItem> queue;
+        private final StageOccupancy occupancy;
+
+        HandOff(StageOccupancy occupancy) {
+            this.queue = new ArrayBlockingQueue<>(occupancy.getCapacity());
+            this.occupancy = occupancy;
+        }
+
+        void put(PipelineItem item) throws InterruptedException {
+            queue.put(item);
+            occupancy.sample(queue.size());
+        }
+
+        PipelineItem take() throws InterruptedException {
+            return queue.take();
+        }
+
+        PipelineItem poll() {
+            return queue.poll();
+        }
+
+        PipelineItem poll(long timeoutMillis) throws InterruptedException {
+            return queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
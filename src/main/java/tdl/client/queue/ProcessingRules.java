@@ -8,7 +8,9 @@ import tdl.client.queue.abstractions.response.FatalErrorResponse;
 import tdl.client.queue.abstractions.response.Response;
 import tdl.client.queue.abstractions.response.ValidResponse;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,15 +18,96 @@ import java.util.Map;
  */
 public class ProcessingRules {
     private final Map<String, ProcessingRule> rules;
+    private final Map<String, Integer> deadlines;
+    private final boolean frozen;
+    private final ComputeWatchdog watchdog;
 
     //~~~ Builders
 
     ProcessingRules() {
         rules = new HashMap<>();
+        deadlines = new HashMap<>();
+        frozen = false;
+        watchdog = null;
+    }
+
+    private ProcessingRules(Map<String, ProcessingRule> rules, Map<String, Integer> deadlines,
+                            ComputeWatchdog watchdog) {
+        this.rules = rules;
+        this.deadlines = deadlines;
+        this.frozen = true;
+        this.watchdog = watchdog;
     }
 
     private void add(String methodName, UserImplementation userImplementation) {
-        rules.put(methodName, new ProcessingRule(userImplementation));
+        add(methodName, new ProcessingRule(userImplementation));
+    }
+
+    void add(String methodName, ProcessingRule rule) {
+        checkNotFrozen();
+        rules.put(methodName, rule);
+    }
+
+    /**
+     * Gives up on the solution for the method once it has computed for longer than the deadline,
+     * it only takes effect when the rules run under a {@link ComputeWatchdog}
+     */
+    void setDeadline(String methodName, int deadlineMillis) {
+        checkNotFrozen();
+        if (!rules.containsKey(methodName)) {
+            throw new IllegalArgumentException("There is no solution for '" + methodName + "' to set a deadline on");
+        }
+        if (deadlineMillis < 1) {
+            throw new IllegalArgumentException("A deadline must be at least 1 ms");
+        }
+        deadlines.put(methodName, deadlineMillis);
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("The processing rules are frozen, they cannot be changed once the runner is created");
+        }
+    }
+
+    /**
+     * Answers repeated params for the method from a cache, only for solutions that are pure functions of their params
+     */
+    void memoize(String methodName, int maxEntries) {
+        ProcessingRule rule = rules.get(methodName);
+        if (rule == null) {
+            throw new IllegalArgumentException("There is no solution for '" + methodName + "' to memoize");
+        }
+        if (rule instanceof MemoizingProcessingRule) {
+            throw new IllegalStateException("The solution for '" + methodName + "' is already memoized");
+        }
+        add(methodName, new MemoizingProcessingRule(methodName, rule, maxEntries));
+    }
+
+    List<MemoizationStats> getMemoizationStats() {
+        List<MemoizationStats> stats = new ArrayList<>();
+        for (ProcessingRule rule : rules.values()) {
+            if (rule instanceof MemoizingProcessingRule) {
+                stats.add(((MemoizingProcessingRule) rule).getStats());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Copies the rules registered so far into an immutable map, later changes to this instance do not affect it
+     */
+    ProcessingRules freeze() {
+        return new ProcessingRules(Map.copyOf(rules), Map.copyOf(deadlines), watchdog);
+    }
+
+    /**
+     * The same frozen rules, with every user call made under the watchdog
+     */
+    ProcessingRules watchedBy(ComputeWatchdog watchdog) {
+        if (!frozen) {
+            throw new IllegalStateException("Only frozen processing rules can be watched");
+        }
+        return new ProcessingRules(rules, deadlines, watchdog);
     }
 
     public ProcessingRuleBuilder on(String methodName) {
@@ -54,18 +137,32 @@ public class ProcessingRules {
     //~~~ Accessors
 
     Response getResponseFor(Request request) {
-        ProcessingRule rule;
+        long start = System.nanoTime();
+        Response response = computeResponseFor(request);
+        request.getTimings().setComputeNanos(System.nanoTime() - start);
+        return response;
+    }
+
+    private Response computeResponseFor(Request request) {
         String methodName = request.getMethodName();
-        if (rules.containsKey(methodName)) {
-            rule = rules.get(methodName);
-        } else {
+        //Obs: The immutable maps reject a lookup of null
+        ProcessingRule rule = methodName != null ? rules.get(methodName) : null;
+        if (rule == null) {
             String message = String.format("method '%s' did not match any processing rule", methodName);
             return new FatalErrorResponse(message);
         }
 
+        if (watchdog == null) {
+            return respond(rule, request);
+        }
+        int deadlineMillis = deadlines.isEmpty() ? 0 : deadlines.getOrDefault(methodName, 0);
+        return watchdog.getResponseFor(request, deadlineMillis, () -> respond(rule, request));
+    }
+
+    private static Response respond(ProcessingRule rule, Request request) {
         Response response;
         try {
-            Object result = rule.getUserImplementation().process(request.getParams());
+            Object result = rule.process(request);
             response = new ValidResponse(request.getId(), result);
         } catch (Exception e) {
             String message = "user implementation raised exception";
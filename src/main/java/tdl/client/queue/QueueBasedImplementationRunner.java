@@ -2,15 +2,23 @@ package tdl.client.queue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import tdl.client.audit.AuditLevel;
 import tdl.client.audit.AuditStream;
 import tdl.client.audit.Auditable;
+import tdl.client.audit.DisplayLimits;
 import tdl.client.queue.abstractions.Request;
+import tdl.client.queue.abstractions.SolutionFor;
 import tdl.client.queue.abstractions.UserImplementation;
 import tdl.client.queue.abstractions.response.FatalErrorResponse;
 import tdl.client.queue.abstractions.response.Response;
+import tdl.client.queue.journal.AuditJournal;
+import tdl.client.queue.transport.RecoveryState;
 import tdl.client.queue.transport.BrokerCommunicationException;
 import tdl.client.queue.transport.RemoteBroker;
 
+import javax.jms.JMSException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 public class QueueBasedImplementationRunner implements ImplementationRunner {
@@ -18,16 +26,20 @@ public class QueueBasedImplementationRunner implements ImplementationRunner {
     private final Audit audit;
     private final ProcessingRules deployProcessingRules;
     private final ImplementationRunnerConfig config;
+    private final RunnerMetrics metrics;
 
     private QueueBasedImplementationRunner(ImplementationRunnerConfig config, ProcessingRules deployProcessingRules) {
         this.config = config;
-        this.deployProcessingRules = deployProcessingRules;
-        audit = new Audit(config.getAuditStream());
+        metrics = new RunnerMetrics();
+        audit = new Audit(config, metrics);
+        this.deployProcessingRules = deployProcessingRules.watchedBy(new ComputeWatchdog(config, metrics));
+        metrics.trackMemoization(deployProcessingRules.getMemoizationStats());
     }
 
     public static class Builder {
         private final ProcessingRules deployProcessingRules;
         private ImplementationRunnerConfig config;
+        private String lastSolutionFor;
 
         public Builder() {
             deployProcessingRules = createDeployProcessingRules();
@@ -44,14 +56,58 @@ public class QueueBasedImplementationRunner implements ImplementationRunner {
                     .on(methodName)
                     .call(userImplementation)
                     .build();
+            lastSolutionFor = methodName;
+            return this;
+        }
+
+        /**
+         * Caches the results of the solution registered just before, with {@link #withSolutionFor}.
+         * Repeated params are answered from the cache, so the solution must be a pure function of its params.
+         * The least recently used result is evicted once the cache holds maxEntries results.
+         */
+        @SuppressWarnings("unused")
+        public Builder memoized(int maxEntries) {
+            if (lastSolutionFor == null) {
+                throw new IllegalStateException("memoized() applies to the solution registered just before it with withSolutionFor()");
+            }
+            deployProcessingRules.memoize(lastSolutionFor, maxEntries);
+            return this;
+        }
+
+        /**
+         * Gives up on the solution registered just before, with {@link #withSolutionFor}, when it computes for
+         * longer than the deadline. Takes precedence over {@link ImplementationRunnerConfig#setComputeDeadlineMillis}.
+         */
+        @SuppressWarnings("unused")
+        public Builder withDeadline(int deadlineMillis) {
+            if (lastSolutionFor == null) {
+                throw new IllegalStateException("withDeadline() applies to the solution registered just before it with withSolutionFor()");
+            }
+            deployProcessingRules.setDeadline(lastSolutionFor, deadlineMillis);
+            return this;
+        }
+
+        /**
+         * Registers every method annotated with {@link SolutionFor}, the params are decoded straight into
+         * the parameter types of the method
+         */
+        @SuppressWarnings("unused")
+        public Builder withSolutionsFrom(Object implementation) {
+            for (TypedProcessingRule.TypedSolution solution : TypedProcessingRule.bindAll(implementation)) {
+                deployProcessingRules.add(solution.methodName, solution.rule);
+                if (solution.deadlineMillis > 0) {
+                    deployProcessingRules.setDeadline(solution.methodName, solution.deadlineMillis);
+                }
+            }
+            lastSolutionFor = null;
             return this;
         }
 
         public QueueBasedImplementationRunner create() {
-            return new QueueBasedImplementationRunner(config, deployProcessingRules);
+            return new QueueBasedImplementationRunner(config, deployProcessingRules.freeze());
         }
 
-        private static ProcessingRules createDeployProcessingRules() {
+        static ProcessingRules createDeployProcessingRules() {
             ProcessingRules deployProcessingRules = new ProcessingRules();
 
             // Debt - we only need this to consume message from the server
@@ -65,31 +121,112 @@ public class QueueBasedImplementationRunner implements ImplementationRunner {
     }
 
     public void run() {
+        ExecutionMode executionMode = config.getExecutionMode();
+        if (!executionMode.usesVirtualThreads()) {
+            runOnCurrentThread();
+            return;
+        }
+
+        //Design: The blocking broker calls run on a virtual thread, the caller just waits for the run to finish
+        Thread runnerLoop = executionMode.startThread("tdl-runner", this::runOnCurrentThread);
+        try {
+            runnerLoop.join();
+        } catch (InterruptedException e) {
+            runnerLoop.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runOnCurrentThread() {
         audit.logLine("Starting client");
-        try (RemoteBroker remoteBroker = new RemoteBroker(
-                config.getHostname(),
-                config.getPort(),
-                config.getRequestTimeoutMillis(),
-                config.getRequestQueueName(),
-                config.getResponseQueueName())) {
-            //Design: We use a while loop instead of an ActiveMQ MessageListener to process the messages in order
-            audit.logLine("Waiting for requests");
-            Optional<Request> request = remoteBroker.receive();
-            while (request.isPresent()) {
-                request = applyProcessingRules(request.get(), deployProcessingRules, remoteBroker);
+        try {
+            if (config.getReconnectPolicy() == null) {
+                try (RemoteBroker remoteBroker = new RemoteBroker(config)) {
+                    audit.logLine("Waiting for requests");
+                    processRequests(remoteBroker);
+                }
+            } else {
+                runWithReconnect(config.getReconnectPolicy());
             }
         } catch (Exception e) {
             String message = "There was a problem processing messages";
             LOGGER.error(message, e);
             audit.logException(message, e);
         }
+        audit.logSuppressedLines();
         audit.logLine("Stopping client");
+        audit.flush();
+    }
+
+    private void processRequests(RemoteBroker remoteBroker) throws BrokerCommunicationException {
+        //Design: We use a while loop instead of an ActiveMQ MessageListener to process the messages in order
+        if (config.isPipelined()) {
+            new PipelinedRequestProcessor(deployProcessingRules, audit, config.getPipelineQueueDepth(), metrics,
+                    config.getExecutionMode())
+                    .process(remoteBroker);
+        } else if (config.getWorkerThreads() > 1) {
+            new ParallelRequestProcessor(deployProcessingRules, audit, config.getWorkerThreads(),
+                    config.getExecutionMode())
+                    .process(remoteBroker);
+        } else {
+            Optional<Request> request = remoteBroker.receive();
+            while (request.isPresent()) {
+                request = applyProcessingRules(request.get(), deployProcessingRules, remoteBroker);
+            }
+        }
+    }
+
+    private void runWithReconnect(ReconnectPolicy reconnectPolicy) throws Exception {
+        List<String> brokerURLs = config.getBrokerURLs();
+        RecoveryState recoveryState = new RecoveryState(reconnectPolicy.getRedeliveryTimeoutMillis());
+        int brokerIndex = 0;
+        int attempt = 0;
+        long disconnectedAt = -1;
+        try {
+            while (true) {
+                String brokerURL = brokerURLs.get(brokerIndex % brokerURLs.size());
+                try (RemoteBroker remoteBroker = new RemoteBroker(config, brokerURL, recoveryState)) {
+                    if (disconnectedAt < 0) {
+                        audit.logLine("Waiting for requests");
+                    } else {
+                        metrics.recordDowntime(System.currentTimeMillis() - disconnectedAt);
+                        audit.logLine("Reconnected to " + brokerURL);
+                        disconnectedAt = -1;
+                        attempt = 0;
+                    }
+                    processRequests(remoteBroker);
+                    return;
+                } catch (BrokerCommunicationException | JMSException e) {
+                    if (!isConnectionFailure(e) || attempt >= reconnectPolicy.getMaxAttempts()) {
+                        throw e;
+                    }
+                    if (disconnectedAt < 0) {
+                        disconnectedAt = System.currentTimeMillis();
+                    }
+                    attempt++;
+                    brokerIndex++;
+                    metrics.recordReconnectAttempt();
+                    LOGGER.warn("Lost the connection to the broker, reconnect attempt {}", attempt, e);
+                    Thread.sleep(reconnectPolicy.delayBeforeAttempt(attempt));
+                }
+            }
+        } finally {
+            metrics.recordRecoveredMessages(recoveryState.getRecoveredCount());
+        }
+    }
+
+    private static boolean isConnectionFailure(Exception e) {
+        return e instanceof JMSException || e.getCause() instanceof JMSException;
     }
 
     public int getRequestTimeoutMillis() {
         return config.getRequestTimeoutMillis();
     }
 
+    public RunnerMetrics getMetrics() {
+        return metrics;
+    }
+
     private Optional<Request> applyProcessingRules(
             Request request, ProcessingRules processingRules, RemoteBroker remoteBroker)
             throws BrokerCommunicationException {
@@ -106,7 +243,9 @@ public class QueueBasedImplementationRunner implements ImplementationRunner {
             return Optional.empty();
         }
 
+        long start = System.nanoTime();
         remoteBroker.respondTo(request, with(response));
+        request.getTimings().addRespondNanos(System.nanoTime() - start);
         audit.endLine();
 
         return remoteBroker.receive();
@@ -118,33 +257,159 @@ public class QueueBasedImplementationRunner implements ImplementationRunner {
 
     //~~~~ Utils
 
-    private static class Audit {
+    static class Audit {
         private final AuditStream auditStream;
-        private StringBuilder line;
+        private final AuditLevel level;
+        private final DisplayLimits displayLimits;
+        private final AuditSampler sampler;
+        private final AuditJournal journal;
+        private final RunnerMetrics metrics;
+        private final String prefix;
+        private final StringBuilder line;
+        private final List<Auditable> pending;
 
-        Audit(AuditStream auditStream) {
+        Audit(ImplementationRunnerConfig config, RunnerMetrics metrics) {
+            this(config.getAuditStream(), config.getAuditLevel(), config.getAuditDisplayLimits(),
+                    config.getAuditSampling().isSampling() ? new AuditSampler(config.getAuditSampling()) : null,
+                    config.getAuditJournal(), metrics, "");
+        }
+
+        private Audit(AuditStream auditStream, AuditLevel level, DisplayLimits displayLimits, AuditSampler sampler,
+                      AuditJournal journal, RunnerMetrics metrics, String prefix) {
             this.auditStream = auditStream;
-            startLine();
+            this.level = level;
+            this.displayLimits = displayLimits;
+            this.sampler = sampler;
+            this.journal = journal;
+            this.metrics = metrics;
+            this.prefix = prefix;
+            this.line = new StringBuilder(prefix);
+            this.pending = new ArrayList<>(2);
+        }
+
+        /**
+         * An audit with its lines prefixed, sharing the sampling and the journal of this one
+         */
+        Audit withPrefix(String prefix) {
+            return new Audit(auditStream, level, displayLimits, sampler, journal, metrics, prefix);
         }
 
         //~~~ Normal output
 
         void startLine() {
-            line = new StringBuilder();
+            line.setLength(prefix.length());
+            pending.clear();
         }
 
+        /**
+         * Nothing is rendered yet, the line is only rendered once it is known to be written
+         */
         void log(Auditable auditable) {
-            String text = auditable.getAuditText();
-            if (!text.isEmpty() && line.length() > 0) {
-                line.append(", ");
+            if (level != AuditLevel.OFF || journal != null) {
+                pending.add(auditable);
             }
-            line.append(text);
         }
 
         void endLine() {
+            if (journal != null) {
+                appendToJournal();
+            }
+            if (level == AuditLevel.OFF) {
+                pending.clear();
+                return;
+            }
+            //Obs: A request answered normally is not even counted by the sampling
+            if (level == AuditLevel.ERRORS && !pending.isEmpty() && !isError()) {
+                pending.clear();
+                return;
+            }
+            if (sampler != null && !pending.isEmpty()) {
+                if (!sampler.shouldWrite(isError())) {
+                    pending.clear();
+                    return;
+                }
+                writeSuppressedLines(false);
+            }
+            for (Auditable auditable : pending) {
+                render(auditable);
+            }
+            if (!pending.isEmpty()) {
+                appendStuckComputeThreads();
+            }
+            pending.clear();
             auditStream.println(line.toString());
         }
 
+        private void appendToJournal() {
+            Request request = null;
+            Response response = null;
+            for (Auditable auditable : pending) {
+                if (auditable instanceof Request) {
+                    request = (Request) auditable;
+                } else if (auditable instanceof Response) {
+                    response = (Response) auditable;
+                }
+            }
+            if (request != null && response != null) {
+                journal.append(request, response, displayLimits);
+            }
+        }
+
+        /**
+         * The request lines carry the abandoned solutions still running, as long as there are any
+         */
+        private void appendStuckComputeThreads() {
+            int stuckThreads = metrics.getStuckComputeThreads();
+            if (stuckThreads > 0) {
+                line.append(line.length() > prefix.length() ? ", " : "")
+                        .append("stuck compute threads = ").append(stuckThreads);
+            }
+        }
+
+        private boolean isError() {
+            for (Auditable auditable : pending) {
+                if (auditable instanceof FatalErrorResponse) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void render(Auditable auditable) {
+            int mark = line.length();
+            if (mark > prefix.length()) {
+                line.append(", ");
+            }
+            int start = line.length();
+            if (level != AuditLevel.SUMMARY) {
+                auditable.appendAuditText(line, displayLimits);
+            } else {
+                line.append(auditable.getSummaryText());
+            }
+            if (line.length() == start) {
+                line.setLength(mark);
+            }
+        }
+
+        //~~~ Sampling
+
+        /**
+         * Reports the request lines left out by the sampling since the last report
+         */
+        void logSuppressedLines() {
+            if (sampler != null && level != AuditLevel.OFF) {
+                writeSuppressedLines(true);
+            }
+        }
+
+        private void writeSuppressedLines(boolean endOfRun) {
+            long suppressedLines = sampler.takeSuppressedLines(endOfRun);
+            if (suppressedLines > 0) {
+                auditStream.println(prefix + "Audit sampling suppressed " + suppressedLines
+                        + (suppressedLines == 1 ? " line" : " lines"));
+            }
+        }
+
         //~~~ Exception
 
         void logException(String message, Exception e) {
@@ -158,6 +423,14 @@ public class QueueBasedImplementationRunner implements ImplementationRunner {
             this.line.append(text);
             endLine();
         }
+
+        /**
+         * Also reports the lines still suppressed, a run quiet since its last written line would not report them
+         */
+        void flush() {
+            logSuppressedLines();
+            auditStream.flush();
+        }
     }
 
 }
@@ -0,0 +1,58 @@
+package tdl.client.queue;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How the runner reconnects when the connection to the broker is lost in the middle of a run.
+ *
+ * The delay between attempts grows exponentially up to a maximum.
+ * Half of every delay is randomised, so that many clients losing the same broker do not reconnect in lockstep.
+ */
+public final class ReconnectPolicy {
+    private final int maxAttempts;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double multiplier;
+    private final long redeliveryTimeoutMillis;
+
+    private ReconnectPolicy(int maxAttempts,
+                            long initialDelayMillis,
+                            long maxDelayMillis,
+                            double multiplier,
+                            long redeliveryTimeoutMillis) {
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.multiplier = multiplier;
+        this.redeliveryTimeoutMillis = redeliveryTimeoutMillis;
+    }
+
+    public static ReconnectPolicy exponentialBackoff(int maxAttempts, long initialDelayMillis, long maxDelayMillis) {
+        return new ReconnectPolicy(maxAttempts, initialDelayMillis, maxDelayMillis, 2, 30000);
+    }
+
+    /**
+     * How long to wait, after reconnecting, for the requests that were in flight to be redelivered
+     */
+    public ReconnectPolicy withRedeliveryTimeout(long redeliveryTimeoutMillis) {
+        return new ReconnectPolicy(maxAttempts, initialDelayMillis, maxDelayMillis, multiplier, redeliveryTimeoutMillis);
+    }
+
+    long getRedeliveryTimeoutMillis() {
+        return redeliveryTimeoutMillis;
+    }
+
+    int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param attempt starts at 1
+     */
+    long delayBeforeAttempt(int attempt) {
+        double delay = initialDelayMillis * Math.pow(multiplier, attempt - 1);
+        long cappedDelay = (long) Math.min(delay, maxDelayMillis);
+        long half = cappedDelay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+}
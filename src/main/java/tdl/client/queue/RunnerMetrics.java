@@ -0,0 +1,118 @@
+package tdl.client.queue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters describing the runs of an implementation runner.
+ */
+public class RunnerMetrics {
+    private final List<StageOccupancy> stageOccupancy;
+    private final AtomicLong reconnectAttempts;
+    private final AtomicLong downtimeMillis;
+    private final AtomicLong recoveredMessages;
+    private final List<MemoizationStats> memoizationStats;
+    private final AtomicLong deadlineOverruns;
+    private final AtomicInteger stuckComputeThreads;
+
+    RunnerMetrics() {
+        stageOccupancy = Collections.synchronizedList(new ArrayList<>());
+        reconnectAttempts = new AtomicLong();
+        downtimeMillis = new AtomicLong();
+        recoveredMessages = new AtomicLong();
+        memoizationStats = new ArrayList<>();
+        deadlineOverruns = new AtomicLong();
+        stuckComputeThreads = new AtomicInteger();
+    }
+
+    //~~~ Pipeline
+
+    StageOccupancy trackStage(String stageName, int capacity) {
+        StageOccupancy occupancy = new StageOccupancy(stageName, capacity);
+        stageOccupancy.add(occupancy);
+        return occupancy;
+    }
+
+    void resetStages() {
+        stageOccupancy.clear();
+    }
+
+    public List<StageOccupancy> getStageOccupancy() {
+        synchronized (stageOccupancy) {
+            return new ArrayList<>(stageOccupancy);
+        }
+    }
+
+    //~~~ Reconnect
+
+    void recordReconnectAttempt() {
+        reconnectAttempts.incrementAndGet();
+    }
+
+    void recordDowntime(long millis) {
+        downtimeMillis.addAndGet(millis);
+    }
+
+    void recordRecoveredMessages(long count) {
+        recoveredMessages.addAndGet(count);
+    }
+
+    public long getReconnectAttempts() {
+        return reconnectAttempts.get();
+    }
+
+    public long getDowntimeMillis() {
+        return downtimeMillis.get();
+    }
+
+    /**
+     * Redelivered requests that had already been answered, acknowledged without responding again
+     */
+    public long getRecoveredMessages() {
+        return recoveredMessages.get();
+    }
+
+    //~~~ Memoization
+
+    void trackMemoization(List<MemoizationStats> stats) {
+        memoizationStats.addAll(stats);
+    }
+
+    /**
+     * One entry per memoized solution
+     */
+    public List<MemoizationStats> getMemoizationStats() {
+        return Collections.unmodifiableList(memoizationStats);
+    }
+
+    //~~~ Deadlines
+
+    void recordDeadlineOverrun() {
+        deadlineOverruns.incrementAndGet();
+    }
+
+    /**
+     * Requests whose solution was abandoned for computing past its deadline
+     */
+    public long getDeadlineOverruns() {
+        return deadlineOverruns.get();
+    }
+
+    void recordStuckComputeThread() {
+        stuckComputeThreads.incrementAndGet();
+    }
+
+    void releaseStuckComputeThread() {
+        stuckComputeThreads.decrementAndGet();
+    }
+
+    /**
+     * Abandoned solutions that are still running, each one holding its compute thread
+     */
+    public int getStuckComputeThreads() {
+        return stuckComputeThreads.get();
+    }
+}
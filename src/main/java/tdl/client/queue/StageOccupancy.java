@@ -0,0 +1,52 @@
+package tdl.client.queue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how full the input queue of a pipeline stage has been.
+ * A stage that is mostly full is the bottleneck, a stage that is mostly empty is waiting on the ones before it.
+ */
+public final class StageOccupancy {
+    private final String stageName;
+    private final int capacity;
+    private final AtomicLong samples;
+    private final AtomicLong totalSize;
+    private final AtomicInteger maxSize;
+
+    StageOccupancy(String stageName, int capacity) {
+        this.stageName = stageName;
+        this.capacity = capacity;
+        this.samples = new AtomicLong();
+        this.totalSize = new AtomicLong();
+        this.maxSize = new AtomicInteger();
+    }
+
+    void sample(int size) {
+        samples.incrementAndGet();
+        totalSize.addAndGet(size);
+        maxSize.accumulateAndGet(size, Math::max);
+    }
+
+    public String getStageName() {
+        return stageName;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public double getAverageSize() {
+        long count = samples.get();
+        return count == 0 ? 0 : (double) totalSize.get() / count;
+    }
+
+    public int getMaxSize() {
+        return maxSize.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s = %.1f/%d (max %d)", stageName, getAverageSize(), capacity, getMaxSize());
+    }
+}
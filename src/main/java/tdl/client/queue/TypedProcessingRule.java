@@ -0,0 +1,200 @@
+package tdl.client.queue;
+
+import com.google.gson.JsonElement;
+import tdl.client.queue.abstractions.ProcessingRule;
+import tdl.client.queue.abstractions.Request;
+import tdl.client.queue.abstractions.SolutionFor;
+import tdl.client.queue.serialization.ParamReader;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.Buffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Calls a {@link SolutionFor} method with the params decoded straight into its parameter types.
+ *
+ * The binder is built once, when the solution is registered. It is a single method handle that reads
+ * the arguments from the {@link ParamReader} in order and calls the method, primitives are never boxed.
+ */
+final class TypedProcessingRule extends ProcessingRule {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final MethodHandle invoker;
+
+    private TypedProcessingRule(MethodHandle invoker) {
+        super(params -> invokeUnchecked(invoker, ParamReader.of(params)));
+        this.invoker = invoker;
+    }
+
+    static List<TypedSolution> bindAll(Object implementation) {
+        List<TypedSolution> solutions = new ArrayList<>();
+        for (Class<?> type = implementation.getClass(); type != Object.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                SolutionFor solutionFor = method.getAnnotation(SolutionFor.class);
+                if (solutionFor != null) {
+                    solutions.add(new TypedSolution(solutionFor.value(), bind(implementation, method),
+                            solutionFor.deadlineMillis()));
+                }
+            }
+        }
+        if (solutions.isEmpty()) {
+            throw new IllegalArgumentException("No method of " + implementation.getClass().getName()
+                    + " is annotated with @" + SolutionFor.class.getSimpleName());
+        }
+        return solutions;
+    }
+
+    @Override
+    public Object process(Request request) throws Exception {
+        try {
+            return (Object) invoker.invokeExact(request.readParams());
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static final class TypedSolution {
+        final String methodName;
+        final TypedProcessingRule rule;
+        final int deadlineMillis;
+
+        TypedSolution(String methodName, TypedProcessingRule rule, int deadlineMillis) {
+            this.methodName = methodName;
+            this.rule = rule;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+
+    //~~~ Binding
+
+    private static TypedProcessingRule bind(Object implementation, Method method) {
+        try {
+            method.trySetAccessible();
+            MethodHandle handle = LOOKUP.unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers())) {
+                handle = handle.bindTo(implementation);
+            }
+            handle = handle.asType(handle.type().changeReturnType(Object.class));
+
+            //Design: Folds one argument at a time, from the last to the first,
+            // so the outermost fold reads the first argument and the reads happen in param order
+            Type[] parameterTypes = method.getGenericParameterTypes();
+            ensureOneViewPerBuffer(method);
+            MethodHandle bound = MethodHandles.dropArguments(handle, 0, ParamReader.class);
+            for (int k = parameterTypes.length; k > 0; k--) {
+                MethodType boundType = bound.type();
+                Class<?> argumentType = boundType.parameterType(k);
+                MethodType permutedType = boundType.dropParameterTypes(k, k + 1).insertParameterTypes(0, argumentType);
+                int[] reorder = new int[k + 1];
+                for (int i = 0; i < k; i++) {
+                    reorder[i] = i + 1;
+                }
+                reorder[k] = 0;
+                MethodHandle permuted = MethodHandles.permuteArguments(bound, permutedType, reorder);
+                bound = MethodHandles.foldArguments(permuted, readerFor(parameterTypes[k - 1], method));
+            }
+            return new TypedProcessingRule(bound);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Could not bind the solution " + method, e);
+        }
+    }
+
+    private static MethodHandle readerFor(Type type, Method method) throws ReflectiveOperationException {
+        Class<?> rawType = rawType(type);
+        if (List.class.equals(rawType)) {
+            Type elementType = type instanceof ParameterizedType
+                    ? ((ParameterizedType) type).getActualTypeArguments()[0]
+                    : JsonElement.class;
+            if (Buffer.class.isAssignableFrom(rawType(elementType))) {
+                throw new IllegalArgumentException("Buffer views cannot be list elements in " + method);
+            }
+            MethodHandle elementReader = readerFor(elementType, method);
+            ParamReader.ValueReader<Object> valueReader = params -> invokeUnchecked(elementReader, params);
+            MethodHandle nextList = LOOKUP.findVirtual(ParamReader.class, "nextList",
+                    MethodType.methodType(List.class, ParamReader.ValueReader.class));
+            return MethodHandles.insertArguments(nextList, 1, valueReader);
+        }
+
+        String readerMethod = readerMethodFor(rawType);
+        if (readerMethod == null) {
+            throw new IllegalArgumentException("Unsupported parameter type " + type.getTypeName() + " in " + method);
+        }
+        MethodHandle reader = LOOKUP.unreflect(ParamReader.class.getMethod(readerMethod));
+        return reader.asType(MethodType.methodType(rawType, ParamReader.class));
+    }
+
+    private static String readerMethodFor(Class<?> type) {
+        if (type == int.class || type == Integer.class) {
+            return "nextInt";
+        } else if (type == long.class || type == Long.class) {
+            return "nextLong";
+        } else if (type == double.class || type == Double.class) {
+            return "nextDouble";
+        } else if (type == boolean.class || type == Boolean.class) {
+            return "nextBoolean";
+        } else if (type == String.class) {
+            return "nextString";
+        } else if (type == int[].class) {
+            return "nextIntArray";
+        } else if (type == long[].class) {
+            return "nextLongArray";
+        } else if (type == double[].class) {
+            return "nextDoubleArray";
+        } else if (type == IntBuffer.class) {
+            return "nextIntBuffer";
+        } else if (type == LongBuffer.class) {
+            return "nextLongBuffer";
+        } else if (type == DoubleBuffer.class) {
+            return "nextDoubleBuffer";
+        } else if (JsonElement.class.isAssignableFrom(type) || type == Object.class) {
+            return "nextElement";
+        }
+        return null;
+    }
+
+    private static void ensureOneViewPerBuffer(Method method) {
+        for (Class<?> bufferType : List.of(IntBuffer.class, LongBuffer.class, DoubleBuffer.class)) {
+            long views = Arrays.stream(method.getParameterTypes()).filter(bufferType::equals).count();
+            if (views > 1) {
+                //Obs: Arrays and lists are read into a separate buffer, only a second view would overwrite the first
+                throw new IllegalArgumentException("The " + bufferType.getSimpleName()
+                        + " params share one buffer, use an array for all but one of them in " + method);
+            }
+        }
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return Object.class;
+    }
+
+    //~~~ Invocation
+
+    private static Object invokeUnchecked(MethodHandle handle, ParamReader params) {
+        try {
+            return handle.invoke(params);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -14,4 +14,8 @@ public class ProcessingRule {
     public UserImplementation getUserImplementation() {
         return userImplementation;
     }
+
+    public Object process(Request request) throws Exception {
+        return userImplementation.process(request.getParams());
+    }
 }
@@ -2,10 +2,13 @@ package tdl.client.queue.abstractions;
 
 import com.google.gson.JsonElement;
 import tdl.client.audit.Auditable;
-import tdl.client.audit.PresentationUtils;
+import tdl.client.audit.DisplayLimits;
 import tdl.client.queue.serialization.JsonRpcRequest;
+import tdl.client.queue.serialization.ParamReader;
 import tdl.client.queue.transport.StringMessage;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 /**
@@ -14,6 +17,7 @@ import java.util.List;
 public class Request implements Auditable {
     private final StringMessage originalMessage;
     private final JsonRpcRequest requestData;
+    private final StageTimings timings = new StageTimings();
 
     public Request(StringMessage originalMessage, JsonRpcRequest requestData) {
         this.originalMessage = originalMessage;
@@ -36,13 +40,46 @@ public class Request implements Auditable {
         return requestData.getParams();
     }
 
+    public ParamReader readParams() {
+        return requestData.readParams();
+    }
+
+    /**
+     * Writes the params as compact JSON, without building their tree
+     */
+    public void writeParams(Writer out) throws IOException {
+        requestData.writeParams(out);
+    }
+
+    public StageTimings getTimings() {
+        return timings;
+    }
+
 
     //~~~ Pretty print
 
     @Override
     public String getAuditText() {
-        return String.format("id = %s, req = %s(%s)",
-                getId(), getMethodName(), PresentationUtils.toDisplayableRequest(getParams()));
+        StringBuilder text = new StringBuilder();
+        appendAuditText(text, DisplayLimits.DEFAULT);
+        return text.toString();
+    }
+
+    @Override
+    public void appendAuditText(StringBuilder line, DisplayLimits limits) {
+        line.append("id = ").append(getId()).append(", req = ").append(getMethodName()).append('(');
+        //Design: Rendered from the message text, the audit never builds the tree of the params
+        try {
+            readParams().appendDisplayable(line, limits);
+        } catch (IOException e) {
+            throw new IllegalStateException("The params could not be read again", e);
+        }
+        line.append(')');
+    }
+
+    @Override
+    public String getSummaryText() {
+        return "id = " + getId() + ", req = " + getMethodName();
     }
 
 
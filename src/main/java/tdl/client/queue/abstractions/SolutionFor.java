@@ -0,0 +1,27 @@
+package tdl.client.queue.abstractions;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method as the solution for a server method, the params are bound to the method parameters by position.
+ *
+ * Supported parameter types: int, long, double, boolean and their boxed types, String, int[], long[], double[],
+ * List of any of those, and JsonElement for anything else.
+ * IntBuffer, LongBuffer and DoubleBuffer parameters are views over a reused buffer, valid until the method returns.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SolutionFor {
+    /**
+     * The name of the method called by the server
+     */
+    String value();
+
+    /**
+     * Longest time the method may compute for, 0 uses the compute deadline of the runner
+     */
+    int deadlineMillis() default 0;
+}
@@ -0,0 +1,42 @@
+package tdl.client.queue.abstractions;
+
+/**
+ * How long each stage of the processing of a request took, in nanoseconds, -1 for a stage that was not timed.
+ *
+ * The requests of a batch message share the time it took to decode the whole message.
+ */
+public final class StageTimings {
+    public static final long NOT_TIMED = -1;
+
+    //Obs: The stages may run on different threads
+    private volatile long decodeNanos = NOT_TIMED;
+    private volatile long computeNanos = NOT_TIMED;
+    private volatile long respondNanos = NOT_TIMED;
+
+    public long getDecodeNanos() {
+        return decodeNanos;
+    }
+
+    public void setDecodeNanos(long decodeNanos) {
+        this.decodeNanos = decodeNanos;
+    }
+
+    public long getComputeNanos() {
+        return computeNanos;
+    }
+
+    public void setComputeNanos(long computeNanos) {
+        this.computeNanos = computeNanos;
+    }
+
+    public long getRespondNanos() {
+        return respondNanos;
+    }
+
+    /**
+     * Responding may be timed in several steps, encoding and sending, each step adds to the total
+     */
+    public void addRespondNanos(long nanos) {
+        respondNanos = (respondNanos == NOT_TIMED ? 0 : respondNanos) + nanos;
+    }
+}
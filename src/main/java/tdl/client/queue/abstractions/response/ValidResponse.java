@@ -1,5 +1,6 @@
 package tdl.client.queue.abstractions.response;
 
+import tdl.client.audit.DisplayLimits;
 import tdl.client.audit.PresentationUtils;
 
 /**
@@ -27,7 +28,20 @@ public class ValidResponse implements Response {
     //~~~ Pretty print
     @Override
     public String getAuditText() {
-        return String.format("resp = %s", PresentationUtils.toDisplayableResponse(result));
+        StringBuilder text = new StringBuilder();
+        appendAuditText(text, DisplayLimits.DEFAULT);
+        return text.toString();
+    }
+
+    @Override
+    public void appendAuditText(StringBuilder line, DisplayLimits limits) {
+        line.append("resp = ");
+        PresentationUtils.appendDisplayableResponse(line, result, limits);
+    }
+
+    @Override
+    public String getSummaryText() {
+        return "";
     }
 
 }
@@ -0,0 +1,267 @@
+package tdl.client.queue.journal;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tdl.client.audit.DisplayLimits;
+import tdl.client.queue.abstractions.Request;
+import tdl.client.queue.abstractions.StageTimings;
+import tdl.client.queue.abstractions.response.FatalErrorResponse;
+import tdl.client.queue.abstractions.response.Response;
+import tdl.client.queue.serialization.Utf8Buffer;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+/**
+ * Appends every request and its response to memory mapped segment files, as compact binary records.
+ *
+ * Unlike the audit stream the journal is never sampled: it keeps the raw params and result with the display limits
+ * of the audit, and {@link JournalReader} renders the audit text back from them, filtered by method or id.
+ * Nothing is rendered while the requests are processed.
+ * A segment is preallocated and rolls over to the next file once full, the unused end of the last one is zeros.
+ * A segment is unmapped as soon as it is full or the journal is closed.
+ *
+ * The journal is owned by the caller, close it once the runner has stopped.
+ */
+public final class AuditJournal implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditJournal.class);
+    public static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final int MIN_SEGMENT_SIZE = 4096;
+    private static final Unmapper UNMAPPER = Unmapper.find();
+    private static final int MAX_REBUILT_DEPTH = 32;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Gson gson;
+    private final Utf8Buffer params;
+    private final Utf8Buffer result;
+
+    private long nextSegmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private boolean failed;
+
+    private AuditJournal(Path directory, int segmentSize, long nextSegmentIndex) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.nextSegmentIndex = nextSegmentIndex;
+        //Obs: Same as the serialization of the responses, plus the values JSON has no literal for
+        this.gson = new GsonBuilder()
+                .serializeNulls()
+                .serializeSpecialFloatingPointValues()
+                .disableHtmlEscaping()
+                .create();
+        this.params = Utf8Buffer.create();
+        this.result = Utf8Buffer.create();
+    }
+
+    /**
+     * Opens the journal with segments of {@link #DEFAULT_SEGMENT_SIZE} bytes
+     */
+    public static AuditJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Starts a new segment after the ones already in the directory, existing segments are never written again
+     *
+     * @param segmentSize the bytes mapped for each segment file, a larger record gets a segment of its own
+     */
+    public static AuditJournal open(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("A segment needs at least " + MIN_SEGMENT_SIZE + " bytes");
+        }
+        Files.createDirectories(directory);
+        long lastIndex;
+        try (Stream<Path> files = Files.list(directory)) {
+            lastIndex = files.mapToLong(JournalFormat::segmentIndex).max().orElse(-1);
+        }
+        return new AuditJournal(directory, segmentSize, lastIndex + 1);
+    }
+
+    /**
+     * Writes the record of a request, a journal that failed to write stops recording and the run goes on
+     *
+     * @param limits the display limits of the live audit, the record is replayed as it shows it
+     */
+    public synchronized void append(Request request, Response response, DisplayLimits limits) {
+        if (failed) {
+            return;
+        }
+        try {
+            write(request, response, limits);
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            LOGGER.error("Could not write to the audit journal in {}, it stops recording", directory, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeSegment();
+    }
+
+    //~~~ Records
+
+    private void write(Request request, Response response, DisplayLimits limits) throws IOException {
+        params.clear();
+        request.writeParams(params);
+
+        byte kind;
+        result.clear();
+        Object value = response.getResult();
+        if (response instanceof FatalErrorResponse) {
+            kind = JournalFormat.KIND_FATAL;
+            result.write(String.valueOf(value));
+        } else if (value instanceof JsonElement) {
+            kind = JournalFormat.KIND_JSON;
+            gson.toJson(value, result);
+        } else if (isRebuiltFromJson(value, 0)) {
+            kind = JournalFormat.KIND_VALUE;
+            gson.toJson(value, result);
+        } else {
+            kind = JournalFormat.KIND_TEXT;
+            result.write(String.valueOf(value));
+        }
+
+        byte[] id = String.valueOf(request.getId()).getBytes(StandardCharsets.UTF_8);
+        byte[] method = String.valueOf(request.getMethodName()).getBytes(StandardCharsets.UTF_8);
+        int maxRecordSize = JournalFormat.MAX_RECORD_OVERHEAD + id.length + method.length + params.size() + result.size();
+        ensureRoom(maxRecordSize);
+
+        //Design: The length is written last, a record cut short by a crash reads as the end of the segment
+        int start = segment.position();
+        segment.position(start + JournalFormat.RECORD_LENGTH_SIZE);
+        segment.putLong(System.currentTimeMillis());
+        segment.put(kind);
+        StageTimings timings = request.getTimings();
+        JournalFormat.putVarLong(segment, timings.getDecodeNanos() + 1);
+        JournalFormat.putVarLong(segment, timings.getComputeNanos() + 1);
+        JournalFormat.putVarLong(segment, timings.getRespondNanos() + 1);
+        JournalFormat.putVarLong(segment, limits.getMaxWidth());
+        JournalFormat.putVarLong(segment, limits.getMaxElements());
+        JournalFormat.putBytes(segment, id, id.length);
+        JournalFormat.putBytes(segment, method, method.length);
+        JournalFormat.putBytes(segment, params.array(), params.size());
+        JournalFormat.putBytes(segment, result.array(), result.size());
+        segment.putInt(start, segment.position() - start - JournalFormat.RECORD_LENGTH_SIZE);
+    }
+
+    /**
+     * True when the value read back from the JSON renders the same text as the value itself.
+     *
+     * A JSON tree inside a collection renders as JSON, its strings quoted, so it is not one of them.
+     */
+    private static boolean isRebuiltFromJson(Object value, int depth) {
+        if (value == null || value instanceof String || value instanceof Boolean || value instanceof Integer
+                || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof Double || value instanceof Float
+                || value instanceof BigInteger || value instanceof BigDecimal) {
+            return true;
+        }
+        //Obs: A collection that holds itself, directly or deeper, is kept as its text
+        if (!(value instanceof Collection) || depth == MAX_REBUILT_DEPTH) {
+            return false;
+        }
+        for (Object element : (Collection<?>) value) {
+            if (element == value || !isRebuiltFromJson(element, depth + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //~~~ Segments
+
+    private void ensureRoom(int maxRecordSize) throws IOException {
+        //Obs: Room is always left for the length of 0 that ends the segment
+        int needed = maxRecordSize + JournalFormat.RECORD_LENGTH_SIZE;
+        if (segment != null && segment.remaining() >= needed) {
+            return;
+        }
+        closeSegment();
+
+        //Obs: A record larger than a segment gets a segment of its own
+        int size = (int) Math.min(Integer.MAX_VALUE,
+                Math.max(segmentSize, (long) JournalFormat.SEGMENT_HEADER_SIZE + needed));
+        Path file = directory.resolve(JournalFormat.segmentName(nextSegmentIndex++));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segment.putInt(JournalFormat.MAGIC);
+        segment.putInt(JournalFormat.VERSION);
+    }
+
+    private void closeSegment() throws IOException {
+        if (segment == null) {
+            return;
+        }
+        segment.force();
+        channel.close();
+        UNMAPPER.unmap(segment);
+        segment = null;
+        channel = null;
+    }
+
+    /**
+     * Releases the memory and the file of a segment right away, instead of whenever the buffer is collected
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        UNMAPPER.unmap(buffer);
+    }
+
+    //~~~ Unmap
+
+    /**
+     * Unsafe.invokeCleaner, from the jdk.unsupported module.
+     * When it cannot be reached the mapping is only released once the buffer is collected.
+     */
+    private static final class Unmapper {
+        private final Object unsafe;
+        private final Method invokeCleaner;
+
+        private Unmapper(Object unsafe, Method invokeCleaner) {
+            this.unsafe = unsafe;
+            this.invokeCleaner = invokeCleaner;
+        }
+
+        static Unmapper find() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                return new Unmapper(theUnsafe.get(null), unsafeClass.getMethod("invokeCleaner", ByteBuffer.class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOGGER.debug("Mapped journal segments are released by the garbage collector", e);
+                return new Unmapper(null, null);
+            }
+        }
+
+        //Obs: The buffer must not be touched once unmapped, the callers drop it straight after
+        void unmap(MappedByteBuffer buffer) {
+            if (invokeCleaner == null) {
+                return;
+            }
+            try {
+                invokeCleaner.invoke(unsafe, buffer);
+            } catch (ReflectiveOperationException e) {
+                LOGGER.debug("Could not unmap a journal segment", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package tdl.client.queue.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The layout shared by the journal and its reader.
+ *
+ * A segment starts with the magic number and the version, followed by the records.
+ * A record is its length followed by its body, a length of 0 ends the segment:
+ *
+ *   long timestamp millis, byte result kind,
+ *   varint decode, compute and respond nanos plus one (0 when the stage was not timed),
+ *   varint maximum width and maximum elements of the audit display limits,
+ *   id, method, params JSON and result, each as a varint length followed by UTF-8 bytes
+ */
+final class JournalFormat {
+    static final int MAGIC = 0x54444C4A;
+    static final int VERSION = 3;
+    static final int SEGMENT_HEADER_SIZE = 8;
+    static final int RECORD_LENGTH_SIZE = 4;
+    static final int MAX_VARINT_SIZE = 10;
+    //Obs: Timestamp, kind, three timings, two limits and four lengths
+    static final int MAX_RECORD_OVERHEAD = RECORD_LENGTH_SIZE + 8 + 1 + 9 * MAX_VARINT_SIZE;
+
+    /**
+     * The result is a value returned by the user implementation, as JSON
+     */
+    static final byte KIND_VALUE = 0;
+    /**
+     * The result is a JSON tree returned by the user implementation, replayed as JSON
+     */
+    static final byte KIND_JSON = 1;
+    /**
+     * The result is the message of a fatal error, nothing was published
+     */
+    static final byte KIND_FATAL = 2;
+    /**
+     * The result is the toString() of a value that JSON cannot give back, such as a map or an array
+     */
+    static final byte KIND_TEXT = 3;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("audit-(\\d{6,})\\.journal");
+
+    private JournalFormat() {
+        //Utility class
+    }
+
+    //~~~ Segments
+
+    static String segmentName(long index) {
+        return String.format("audit-%06d.journal", index);
+    }
+
+    /**
+     * @return the index of the segment, or -1 when the file is not a segment
+     */
+    static long segmentIndex(Path file) {
+        Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    //~~~ Values
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint in the journal");
+    }
+
+    static void putBytes(ByteBuffer buffer, byte[] bytes, int length) {
+        putVarLong(buffer, length);
+        buffer.put(bytes, 0, length);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[(int) getVarLong(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,168 @@
+package tdl.client.queue.journal;
+
+import tdl.client.audit.DisplayLimits;
+import tdl.client.queue.abstractions.StageTimings;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reads the segments written by {@link AuditJournal} in order, optionally only the records of a method or an id.
+ *
+ * The params and result of a record are only decoded once it has passed the filters,
+ * the audit text is only rendered from them when asked for.
+ * Run it on a journal directory to print the audit lines:
+ *
+ *   java tdl.client.queue.journal.JournalReader dir [--method name] [--id id] [--timings]
+ */
+public final class JournalReader {
+    private final Path directory;
+    private final String methodName;
+    private final String id;
+
+    private JournalReader(Path directory, String methodName, String id) {
+        this.directory = directory;
+        this.methodName = methodName;
+        this.id = id;
+    }
+
+    public static JournalReader of(Path directory) {
+        return new JournalReader(directory, null, null);
+    }
+
+    public JournalReader withMethod(String methodName) {
+        return new JournalReader(directory, methodName, id);
+    }
+
+    public JournalReader withId(String id) {
+        return new JournalReader(directory, methodName, id);
+    }
+
+    public void forEach(Consumer<JournalRecord> action) throws IOException {
+        for (Path segment : segments()) {
+            readSegment(segment, action);
+        }
+    }
+
+    //~~~ Replay tool
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: JournalReader <journal directory> [--method name] [--id id] [--timings]");
+            System.exit(1);
+        }
+        JournalReader reader = of(Paths.get(args[0]));
+        boolean withTimings = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--method") && i + 1 < args.length) {
+                reader = reader.withMethod(args[++i]);
+            } else if (args[i].equals("--id") && i + 1 < args.length) {
+                reader = reader.withId(args[++i]);
+            } else if (args[i].equals("--timings")) {
+                withTimings = true;
+            } else {
+                System.err.println("Unknown option: " + args[i]);
+                System.exit(1);
+            }
+        }
+
+        boolean printTimings = withTimings;
+        reader.forEach(record -> {
+            StringBuilder line = new StringBuilder(record.getAuditText());
+            if (printTimings) {
+                StageTimings timings = record.getTimings();
+                line.append(" [decode ").append(toMicros(timings.getDecodeNanos()))
+                        .append(", compute ").append(toMicros(timings.getComputeNanos()))
+                        .append(", respond ").append(toMicros(timings.getRespondNanos())).append(']');
+            }
+            System.out.println(line);
+        });
+    }
+
+    private static String toMicros(long nanos) {
+        return nanos == StageTimings.NOT_TIMED ? "-" : TimeUnit.NANOSECONDS.toMicros(nanos) + " us";
+    }
+
+    //~~~ Internals
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> JournalFormat.segmentIndex(file) >= 0)
+                    .sorted(Comparator.comparingLong(JournalFormat::segmentIndex))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void readSegment(Path file, Consumer<JournalRecord> action) throws IOException {
+        MappedByteBuffer segment;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        //Obs: The records are copied out of the segment, nothing refers to it once read
+        try {
+            readRecords(file, segment, action);
+        } finally {
+            AuditJournal.unmap(segment);
+        }
+    }
+
+    private void readRecords(Path file, MappedByteBuffer segment, Consumer<JournalRecord> action) throws IOException {
+        if (segment.remaining() < JournalFormat.SEGMENT_HEADER_SIZE
+                || segment.getInt() != JournalFormat.MAGIC
+                || segment.getInt() != JournalFormat.VERSION) {
+            throw new IOException("Not an audit journal segment: " + file);
+        }
+
+        while (segment.remaining() >= JournalFormat.RECORD_LENGTH_SIZE) {
+            int length = segment.getInt();
+            if (length <= 0 || length > segment.remaining()) {
+                return;
+            }
+            ByteBuffer record = segment.slice();
+            record.limit(length);
+            segment.position(segment.position() + length);
+            JournalRecord journalRecord = readRecord(record);
+            if (journalRecord != null) {
+                action.accept(journalRecord);
+            }
+        }
+    }
+
+    /**
+     * @return null when the record is filtered out
+     */
+    private JournalRecord readRecord(ByteBuffer record) {
+        long timestampMillis = record.getLong();
+        byte kind = record.get();
+        StageTimings timings = new StageTimings();
+        timings.setDecodeNanos(JournalFormat.getVarLong(record) - 1);
+        timings.setComputeNanos(JournalFormat.getVarLong(record) - 1);
+        long respondNanos = JournalFormat.getVarLong(record) - 1;
+        if (respondNanos != StageTimings.NOT_TIMED) {
+            timings.addRespondNanos(respondNanos);
+        }
+        DisplayLimits limits = DisplayLimits.of((int) JournalFormat.getVarLong(record),
+                (int) JournalFormat.getVarLong(record));
+        String recordId = JournalFormat.getString(record);
+        String recordMethodName = JournalFormat.getString(record);
+        if ((id != null && !id.equals(recordId)) || (methodName != null && !methodName.equals(recordMethodName))) {
+            return null;
+        }
+        String paramsJson = JournalFormat.getString(record);
+        String resultText = JournalFormat.getString(record);
+        return new JournalRecord(timestampMillis, kind, timings, limits, recordId, recordMethodName, paramsJson,
+                resultText);
+    }
+}
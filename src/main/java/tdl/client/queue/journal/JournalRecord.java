@@ -0,0 +1,181 @@
+package tdl.client.queue.journal;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import tdl.client.audit.Auditable;
+import tdl.client.audit.DisplayLimits;
+import tdl.client.audit.PresentationUtils;
+import tdl.client.queue.abstractions.StageTimings;
+import tdl.client.queue.abstractions.response.FatalErrorResponse;
+import tdl.client.queue.abstractions.response.Response;
+import tdl.client.queue.abstractions.response.ValidResponse;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One request read back from the journal, its audit text rendered again from the params and the result.
+ *
+ * A result is read back from its JSON as a value. An object JSON cannot give back, such as a map or an array,
+ * was kept as its toString() and is read back as that text.
+ */
+public final class JournalRecord implements Auditable {
+    private final long timestampMillis;
+    private final byte kind;
+    private final StageTimings timings;
+    private final DisplayLimits displayLimits;
+    private final String id;
+    private final String methodName;
+    private final String paramsJson;
+    private final String resultText;
+
+    JournalRecord(long timestampMillis, byte kind, StageTimings timings, DisplayLimits displayLimits, String id,
+                  String methodName, String paramsJson, String resultText) {
+        this.timestampMillis = timestampMillis;
+        this.kind = kind;
+        this.timings = timings;
+        this.displayLimits = displayLimits;
+        this.id = id;
+        this.methodName = methodName;
+        this.paramsJson = paramsJson;
+        this.resultText = resultText;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public StageTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * The display limits of the live audit when the request was processed
+     */
+    public DisplayLimits getDisplayLimits() {
+        return displayLimits;
+    }
+
+    public String getParamsJson() {
+        return paramsJson;
+    }
+
+    public List<JsonElement> getParams() {
+        JsonElement params = parse(paramsJson);
+        List<JsonElement> items = new ArrayList<>();
+        if (params.isJsonArray()) {
+            params.getAsJsonArray().forEach(items::add);
+        }
+        return items;
+    }
+
+    /**
+     * True when the user implementation failed and no response was published
+     */
+    public boolean isError() {
+        return kind == JournalFormat.KIND_FATAL;
+    }
+
+    /**
+     * @return the error message for an error, the toString() of a result JSON cannot give back,
+     * otherwise the result read back from its JSON
+     */
+    public Object getResult() {
+        if (kind == JournalFormat.KIND_FATAL || kind == JournalFormat.KIND_TEXT) {
+            return resultText;
+        }
+        JsonElement result = parse(resultText);
+        return kind == JournalFormat.KIND_JSON ? result : toValue(result);
+    }
+
+    //~~~ Pretty print
+
+    /**
+     * The line the audit showed at the full level, cut to the display limits it had
+     */
+    @Override
+    public String getAuditText() {
+        StringBuilder text = new StringBuilder();
+        appendAuditText(text, displayLimits);
+        return text.toString();
+    }
+
+    /**
+     * Renders the request and the response as the audit does, from the params JSON and the stored result
+     */
+    @Override
+    public void appendAuditText(StringBuilder line, DisplayLimits limits) {
+        line.append("id = ").append(id).append(", req = ").append(methodName).append('(');
+        try {
+            JsonReader params = reader(paramsJson);
+            if (params.peek() == JsonToken.BEGIN_ARRAY) {
+                params.beginArray();
+                PresentationUtils.appendDisplayableRequest(line, params, limits);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("The params of " + id + " are not valid JSON", e);
+        }
+        line.append("), ");
+        toResponse().appendAuditText(line, limits);
+    }
+
+    @Override
+    public String getSummaryText() {
+        return "id = " + id + ", req = " + methodName;
+    }
+
+    //~~~ Internals
+
+    private Response toResponse() {
+        if (kind == JournalFormat.KIND_FATAL) {
+            return new FatalErrorResponse(resultText);
+        }
+        return new ValidResponse(id, getResult());
+    }
+
+    private static JsonElement parse(String json) {
+        return JsonParser.parseReader(reader(json));
+    }
+
+    //Obs: Lenient for the NaN and infinities a result may hold
+    private static JsonReader reader(String json) {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setLenient(true);
+        return reader;
+    }
+
+    private static Object toValue(JsonElement element) {
+        if (element.isJsonNull()) {
+            return null;
+        }
+        if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            List<Object> values = new ArrayList<>(array.size());
+            array.forEach(item -> values.add(toValue(item)));
+            return values;
+        }
+        if (element.isJsonObject()) {
+            return element;
+        }
+        JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return primitive.getAsBoolean();
+        }
+        //Obs: A number keeps the text it was written with
+        return primitive.isNumber() ? primitive.getAsNumber() : primitive.getAsString();
+    }
+}
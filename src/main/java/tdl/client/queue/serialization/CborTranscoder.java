@@ -0,0 +1,408 @@
+package tdl.client.queue.serialization;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Converts between CBOR (RFC 8949) and JSON text.
+ *
+ * Covers the data model shared with JSON. Byte strings are read as base64url text, bignums as JSON numbers.
+ * The tags that only annotate their content, such as dates and URIs, are dropped and their content kept.
+ * Any other tag, a malformed item or text that is not UTF-8 fails the conversion rather than producing
+ * a JSON value with another meaning. Arrays and maps are written with an indefinite length,
+ * so the JSON text is converted in a single pass.
+ */
+final class CborTranscoder {
+    private static final int UNSIGNED = 0;
+    private static final int NEGATIVE = 1;
+    private static final int BYTES = 2;
+    private static final int TEXT = 3;
+    private static final int ARRAY = 4;
+    private static final int MAP = 5;
+    private static final int TAG = 6;
+
+    private static final int INDEFINITE = 31;
+    private static final int BREAK = 0xff;
+    private static final int FALSE = 0xf4;
+    private static final int TRUE = 0xf5;
+    private static final int NULL = 0xf6;
+    private static final int FLOAT = 0xfa;
+    private static final int DOUBLE = 0xfb;
+    private static final long POSITIVE_BIGNUM = 2;
+    private static final long NEGATIVE_BIGNUM = 3;
+    private static final int MAX_DEPTH = 512;
+
+    //Obs: Date and time, expected base64 conversions, embedded CBOR, URIs and base64 text, regexes, MIME, self-describe
+    private static final Set<Long> ANNOTATION_TAGS = Set.of(0L, 1L, 21L, 22L, 23L, 24L, 32L, 33L, 34L, 35L, 36L,
+            55799L);
+
+    private CborTranscoder() {
+        //Utility class
+    }
+
+    static String toJson(byte[] cbor) throws IOException {
+        StringWriter text = new StringWriter(cbor.length * 2);
+        JsonWriter out = new JsonWriter(text);
+        out.setLenient(true);
+        CborReader in = new CborReader(cbor);
+        in.copyItem(out);
+        if (in.position != cbor.length) {
+            throw new IOException("Unexpected bytes after the CBOR item at " + in.position);
+        }
+        out.flush();
+        return text.toString();
+    }
+
+    static byte[] fromJson(String json) throws IOException {
+        JsonReader in = new JsonReader(new StringReader(json));
+        in.setLenient(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length());
+        copyValue(in, out);
+        return out.toByteArray();
+    }
+
+    //~~~ CBOR to JSON
+
+    private static final class CborReader {
+        private final byte[] bytes;
+        private final CharsetDecoder utf8;
+        private int position;
+        private int depth;
+
+        CborReader(byte[] bytes) {
+            this.bytes = bytes;
+            this.utf8 = StandardCharsets.UTF_8.newDecoder();
+        }
+
+        void copyItem(JsonWriter out) throws IOException {
+            //Obs: A deeply nested item fails like any other malformed item, not with a stack overflow
+            if (++depth > MAX_DEPTH) {
+                throw new IOException("CBOR items nested deeper than " + MAX_DEPTH);
+            }
+            copyNestedItem(out);
+            depth--;
+        }
+
+        private void copyNestedItem(JsonWriter out) throws IOException {
+            int initial = nextByte();
+            int additional = initial & 0x1f;
+            switch (initial >>> 5) {
+                case UNSIGNED:
+                    writeInteger(out, readArgument(additional), false);
+                    break;
+                case NEGATIVE:
+                    writeInteger(out, readArgument(additional), true);
+                    break;
+                case BYTES:
+                    out.value(Base64.getUrlEncoder().withoutPadding().encodeToString(readString(BYTES, additional)));
+                    break;
+                case TEXT:
+                    out.value(readText(additional));
+                    break;
+                case ARRAY:
+                    out.beginArray();
+                    for (long remaining = readLength(additional); hasNextItem(remaining); remaining--) {
+                        copyItem(out);
+                    }
+                    out.endArray();
+                    break;
+                case MAP:
+                    out.beginObject();
+                    for (long remaining = readLength(additional); hasNextItem(remaining); remaining--) {
+                        out.name(readKey());
+                        copyItem(out);
+                    }
+                    out.endObject();
+                    break;
+                case TAG:
+                    copyTagged(readArgument(additional), out);
+                    break;
+                default:
+                    copySimple(initial, out);
+            }
+        }
+
+        private void copyTagged(long tag, JsonWriter out) throws IOException {
+            if (ANNOTATION_TAGS.contains(tag)) {
+                copyItem(out);
+                return;
+            }
+            if (tag != POSITIVE_BIGNUM && tag != NEGATIVE_BIGNUM) {
+                throw new IOException("Unsupported CBOR tag " + Long.toUnsignedString(tag));
+            }
+            int initial = nextByte();
+            if (initial >>> 5 != BYTES) {
+                throw new IOException("A bignum must be a byte string");
+            }
+            BigInteger magnitude = new BigInteger(1, readString(BYTES, initial & 0x1f));
+            out.value(tag == POSITIVE_BIGNUM ? magnitude : magnitude.negate().subtract(BigInteger.ONE));
+        }
+
+        private void copySimple(int initial, JsonWriter out) throws IOException {
+            switch (initial) {
+                case FALSE:
+                    out.value(false);
+                    break;
+                case TRUE:
+                    out.value(true);
+                    break;
+                case NULL:
+                case NULL + 1:
+                    //Obs: Undefined has no JSON equivalent, it is read as null
+                    out.nullValue();
+                    break;
+                case FLOAT - 1:
+                    //Obs: Written as a Float so the text is the shortest one for a float, not for the widened double
+                    out.value((Number) halfToFloat((int) readUnsigned(2)));
+                    break;
+                case FLOAT:
+                    out.value((Number) Float.intBitsToFloat((int) readUnsigned(4)));
+                    break;
+                case DOUBLE:
+                    out.value(Double.longBitsToDouble(readUnsigned(8)));
+                    break;
+                default:
+                    throw new IOException("Unsupported CBOR simple value " + Integer.toHexString(initial));
+            }
+        }
+
+        private String readKey() throws IOException {
+            int initial = nextByte();
+            int additional = initial & 0x1f;
+            switch (initial >>> 5) {
+                case TEXT:
+                    return readText(additional);
+                case UNSIGNED:
+                    return Long.toUnsignedString(readArgument(additional));
+                case NEGATIVE:
+                    return BigInteger.valueOf(-1).subtract(unsigned(readArgument(additional))).toString();
+                default:
+                    throw new IOException("CBOR map keys must be text or integers");
+            }
+        }
+
+        private static void writeInteger(JsonWriter out, long argument, boolean negative) throws IOException {
+            if (argument >= 0) {
+                out.value(negative ? -1 - argument : argument);
+            } else {
+                BigInteger value = unsigned(argument);
+                out.value(negative ? value.negate().subtract(BigInteger.ONE) : value);
+            }
+        }
+
+        private String readText(int additional) throws IOException {
+            try {
+                return utf8.decode(ByteBuffer.wrap(readString(TEXT, additional))).toString();
+            } catch (CharacterCodingException e) {
+                throw new IOException("CBOR text that is not UTF-8 at " + position, e);
+            }
+        }
+
+        private byte[] readString(int major, int additional) throws IOException {
+            if (additional != INDEFINITE) {
+                int length = toLength(readArgument(additional));
+                ensureAvailable(length);
+                position += length;
+                return Arrays.copyOfRange(bytes, position - length, position);
+            }
+            ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+            for (int initial = nextByte(); initial != BREAK; initial = nextByte()) {
+                if (initial >>> 5 != major || (initial & 0x1f) == INDEFINITE) {
+                    throw new IOException("Invalid chunk in an indefinite length string");
+                }
+                chunks.write(readString(major, initial & 0x1f));
+            }
+            return chunks.toByteArray();
+        }
+
+        /**
+         * @return the number of items, or -1 when they are terminated by a break
+         */
+        private long readLength(int additional) throws IOException {
+            return additional == INDEFINITE ? -1 : readArgument(additional);
+        }
+
+        private boolean hasNextItem(long remaining) throws IOException {
+            if (remaining >= 0) {
+                return remaining > 0;
+            }
+            ensureAvailable(1);
+            if ((bytes[position] & 0xff) == BREAK) {
+                position++;
+                return false;
+            }
+            return true;
+        }
+
+        private long readArgument(int additional) throws IOException {
+            if (additional < 24) {
+                return additional;
+            }
+            if (additional > 27) {
+                throw new IOException("Unsupported CBOR argument " + additional);
+            }
+            return readUnsigned(1 << (additional - 24));
+        }
+
+        private long readUnsigned(int size) throws IOException {
+            ensureAvailable(size);
+            long value = 0;
+            for (int i = 0; i < size; i++) {
+                value = (value << 8) | (bytes[position++] & 0xff);
+            }
+            return value;
+        }
+
+        private int nextByte() throws IOException {
+            ensureAvailable(1);
+            return bytes[position++] & 0xff;
+        }
+
+        private void ensureAvailable(int size) throws IOException {
+            if (size > bytes.length - position) {
+                throw new IOException("Truncated CBOR item at " + position);
+            }
+        }
+
+        private static int toLength(long argument) throws IOException {
+            if (argument < 0 || argument > Integer.MAX_VALUE) {
+                throw new IOException("CBOR string too long");
+            }
+            return (int) argument;
+        }
+
+        private static BigInteger unsigned(long argument) {
+            return new BigInteger(Long.toUnsignedString(argument));
+        }
+
+        private static float halfToFloat(int half) {
+            int exponent = (half >>> 10) & 0x1f;
+            int mantissa = half & 0x3ff;
+            float magnitude;
+            if (exponent == 0) {
+                magnitude = mantissa * 0x1p-24f;
+            } else if (exponent == 31) {
+                magnitude = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+            } else {
+                magnitude = (mantissa + 1024) * (float) Math.pow(2, exponent - 25);
+            }
+            return (half & 0x8000) != 0 ? -magnitude : magnitude;
+        }
+    }
+
+    //~~~ JSON to CBOR
+
+    private static void copyValue(JsonReader in, ByteArrayOutputStream out) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_ARRAY:
+                in.beginArray();
+                out.write(ARRAY << 5 | INDEFINITE);
+                while (in.hasNext()) {
+                    copyValue(in, out);
+                }
+                out.write(BREAK);
+                in.endArray();
+                break;
+            case BEGIN_OBJECT:
+                in.beginObject();
+                out.write(MAP << 5 | INDEFINITE);
+                while (in.hasNext()) {
+                    writeText(in.nextName(), out);
+                    copyValue(in, out);
+                }
+                out.write(BREAK);
+                in.endObject();
+                break;
+            case STRING:
+                writeText(in.nextString(), out);
+                break;
+            case NUMBER:
+                writeNumber(in.nextString(), out);
+                break;
+            case BOOLEAN:
+                out.write(in.nextBoolean() ? TRUE : FALSE);
+                break;
+            case NULL:
+                in.nextNull();
+                out.write(NULL);
+                break;
+            default:
+                throw new IOException("Unexpected " + in.peek() + " in the JSON text");
+        }
+    }
+
+    private static void writeNumber(String literal, ByteArrayOutputStream out) throws IOException {
+        boolean integral = literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0;
+        if (integral) {
+            try {
+                long value = Long.parseLong(literal);
+                writeHeader(value >= 0 ? UNSIGNED : NEGATIVE, value >= 0 ? value : -1 - value, out);
+            } catch (NumberFormatException e) {
+                writeBignum(new BigInteger(literal), out);
+            }
+            return;
+        }
+
+        //Design: A float is enough whenever it holds the exact same value, the decimal text stays the same
+        double value = Double.parseDouble(literal);
+        if ((float) value == value) {
+            out.write(FLOAT);
+            writeUnsigned(Float.floatToIntBits((float) value), 4, out);
+        } else {
+            out.write(DOUBLE);
+            writeUnsigned(Double.doubleToLongBits(value), 8, out);
+        }
+    }
+
+    private static void writeBignum(BigInteger value, ByteArrayOutputStream out) throws IOException {
+        boolean negative = value.signum() < 0;
+        byte[] magnitude = (negative ? value.negate().subtract(BigInteger.ONE) : value).toByteArray();
+        int start = magnitude[0] == 0 ? 1 : 0;
+        writeHeader(TAG, negative ? NEGATIVE_BIGNUM : POSITIVE_BIGNUM, out);
+        writeHeader(BYTES, magnitude.length - start, out);
+        out.write(magnitude, start, magnitude.length - start);
+    }
+
+    private static void writeText(String text, ByteArrayOutputStream out) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        writeHeader(TEXT, utf8.length, out);
+        out.write(utf8, 0, utf8.length);
+    }
+
+    private static void writeHeader(int major, long argument, ByteArrayOutputStream out) {
+        if (argument < 24) {
+            out.write(major << 5 | (int) argument);
+        } else if (argument <= 0xff) {
+            out.write(major << 5 | 24);
+            writeUnsigned(argument, 1, out);
+        } else if (argument <= 0xffff) {
+            out.write(major << 5 | 25);
+            writeUnsigned(argument, 2, out);
+        } else if (argument <= 0xffffffffL) {
+            out.write(major << 5 | 26);
+            writeUnsigned(argument, 4, out);
+        } else {
+            out.write(major << 5 | 27);
+            writeUnsigned(argument, 8, out);
+        }
+    }
+
+    private static void writeUnsigned(long value, int size, ByteArrayOutputStream out) {
+        for (int shift = (size - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift) & 0xff);
+        }
+    }
+}
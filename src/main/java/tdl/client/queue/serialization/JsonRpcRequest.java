@@ -1,7 +1,10 @@
 package tdl.client.queue.serialization;
 
 import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,23 +13,68 @@ import java.util.List;
  */
 public final class JsonRpcRequest {
     private final String method;
-    private final List<JsonElement> params;
     private final String id;
+    private final RequestContent paramsSource;
+    private final int paramsOccurrence;
+    private List<JsonElement> params;
+    private boolean paramsRead;
 
-    public JsonRpcRequest() {
-        this.method = "";
-        this.params = new ArrayList<>();
-        this.id = "";
+    /**
+     * @param paramsSource     the message content the params are read from on first use, null when the params are null
+     * @param paramsOccurrence which params field of the message is used, 0 when there are none
+     */
+    JsonRpcRequest(String method, String id, RequestContent paramsSource, int paramsOccurrence) {
+        this.method = method;
+        this.id = id;
+        this.paramsSource = paramsSource;
+        this.paramsOccurrence = paramsOccurrence;
     }
 
     public String getMethod() {
         return method;
     }
 
-    public List<JsonElement> getParams() {
+    public synchronized List<JsonElement> getParams() {
+        if (!paramsRead) {
+            if (paramsOccurrence == 0) {
+                params = new ArrayList<>();
+            } else if (paramsSource != null) {
+                params = JsonRpcRequestDecoder.readParams(paramsSource, paramsOccurrence);
+            }
+            paramsRead = true;
+        }
         return params;
     }
 
+    /**
+     * Reads the params straight from the message content, without building the tree returned by {@link #getParams()}
+     */
+    public ParamReader readParams() {
+        if (paramsOccurrence == 0) {
+            return ParamReader.of(new ArrayList<>());
+        }
+        if (paramsSource == null) {
+            return ParamReader.of(null);
+        }
+        return new ParamReader(JsonRpcRequestDecoder.openParams(paramsSource, paramsOccurrence));
+    }
+
+    /**
+     * Writes the params as compact JSON, straight from the message content
+     */
+    public void writeParams(Writer out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.setLenient(true);
+        if (paramsOccurrence == 0) {
+            writer.beginArray().endArray();
+        } else if (paramsSource == null) {
+            writer.nullValue();
+        } else {
+            JsonRpcRequestDecoder.copyParams(paramsSource, paramsOccurrence, writer);
+        }
+        writer.flush();
+    }
+
     public String getId() {
         return id;
     }
@@ -0,0 +1,256 @@
+package tdl.client.queue.serialization;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a JSON-RPC request straight from the message text, without building an object tree for it.
+ *
+ * The method and the id are read eagerly, the params are only checked and skipped.
+ * They are read from the content again when they are first needed, either as a tree or through a {@link ParamReader}.
+ * Accepts the same input as the reflective Gson mapping it replaces: lenient JSON, unknown fields ignored,
+ * the last value wins for repeated fields and numbers or booleans are accepted as strings.
+ *
+ * A batch is an array of requests. It is split into the text of each request, so every request of the batch
+ * reads its params from its own text, the same way as a single request.
+ */
+final class JsonRpcRequestDecoder {
+    private static final String METHOD = "method";
+    private static final String PARAMS = "params";
+    private static final String ID = "id";
+
+    private JsonRpcRequestDecoder() {
+        //Utility class
+    }
+
+    static JsonRpcRequest decode(String text) throws DeserializationException {
+        return decode(RequestContent.of(text));
+    }
+
+    static JsonRpcRequest decode(RequestContent content) throws DeserializationException {
+        try {
+            JsonReader reader = newReader(content);
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                throw new DeserializationException("Invalid message format",
+                        new IllegalStateException("Expected a JSON object but was " + reader.peek()));
+            }
+
+            String method = "";
+            String id = "";
+            int paramsCount = 0;
+            boolean paramsNull = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (METHOD.equals(name)) {
+                    method = readString(reader);
+                } else if (ID.equals(name)) {
+                    id = readString(reader);
+                } else if (PARAMS.equals(name)) {
+                    JsonToken token = reader.peek();
+                    if (token != JsonToken.BEGIN_ARRAY && token != JsonToken.NULL) {
+                        throw new IllegalStateException("Expected the params to be an array but was " + token);
+                    }
+                    paramsCount++;
+                    paramsNull = token == JsonToken.NULL;
+                    reader.skipValue();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new IllegalStateException("JSON document was not fully consumed");
+            }
+            if (paramsCount == 0) {
+                return new JsonRpcRequest(method, id, null, 0);
+            }
+            return new JsonRpcRequest(method, id, paramsNull ? null : content, paramsCount);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new DeserializationException("Invalid message format", e);
+        }
+    }
+
+    static boolean isBatch(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '[';
+            }
+        }
+        return false;
+    }
+
+    static List<JsonRpcRequest> decodeBatch(String text) throws DeserializationException {
+        List<JsonRpcRequest> requests = new ArrayList<>();
+        for (String requestText : splitBatch(text)) {
+            requests.add(decode(requestText));
+        }
+        return requests;
+    }
+
+    /**
+     * Positions a reader inside the params of a message that has already been checked by {@link #decode(RequestContent)}
+     *
+     * @param occurrence the params field to read, they are counted from 1 in case the field is repeated
+     */
+    static JsonReader openParams(RequestContent content, int occurrence) {
+        try {
+            JsonReader reader = newReader(content);
+            reader.beginObject();
+            int seen = 0;
+            while (reader.hasNext()) {
+                if (PARAMS.equals(reader.nextName()) && ++seen == occurrence) {
+                    reader.beginArray();
+                    return reader;
+                }
+                reader.skipValue();
+            }
+            throw new IllegalStateException("The message has no params");
+        } catch (IOException e) {
+            throw new IllegalStateException("The params could not be read again", e);
+        }
+    }
+
+    static List<JsonElement> readParams(RequestContent content, int occurrence) {
+        JsonReader reader = openParams(content, occurrence);
+        List<JsonElement> params = new ArrayList<>();
+        try {
+            while (reader.hasNext()) {
+                params.add(JsonParser.parseReader(reader));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("The params could not be read again", e);
+        }
+        return params;
+    }
+
+    /**
+     * Writes the params as compact JSON, one token at a time, without building their tree
+     */
+    static void copyParams(RequestContent content, int occurrence, JsonWriter out) throws IOException {
+        JsonReader reader = openParams(content, occurrence);
+        out.beginArray();
+        while (reader.hasNext()) {
+            copyValue(reader, out);
+        }
+        out.endArray();
+    }
+
+    //~~~ Internals
+
+    private static void copyValue(JsonReader in, JsonWriter out) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_ARRAY:
+                in.beginArray();
+                out.beginArray();
+                while (in.hasNext()) {
+                    copyValue(in, out);
+                }
+                in.endArray();
+                out.endArray();
+                break;
+            case BEGIN_OBJECT:
+                in.beginObject();
+                out.beginObject();
+                while (in.hasNext()) {
+                    out.name(in.nextName());
+                    copyValue(in, out);
+                }
+                in.endObject();
+                out.endObject();
+                break;
+            case STRING:
+                out.value(in.nextString());
+                break;
+            case NUMBER:
+                //Obs: The number is copied as written in the message, without going through a double
+                out.jsonValue(in.nextString());
+                break;
+            case BOOLEAN:
+                out.value(in.nextBoolean());
+                break;
+            case NULL:
+                in.nextNull();
+                out.nullValue();
+                break;
+            default:
+                throw new IOException("Unexpected " + in.peek() + " in the params");
+        }
+    }
+
+    private static JsonReader newReader(RequestContent content) {
+        JsonReader reader = new JsonReader(content.open());
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * Splits a JSON array into the text of its elements, the elements themselves are checked when they are decoded
+     */
+    private static List<String> splitBatch(String text) throws DeserializationException {
+        List<String> elements = new ArrayList<>();
+        int start = text.indexOf('[') + 1;
+        int depth = 1;
+        char quote = 0;
+        int i = start;
+        for (; i < text.length() && depth > 0; i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+            if (quote == 0 && (depth == 0 || (depth == 1 && c == ','))) {
+                String element = text.substring(start, i).trim();
+                if (element.isEmpty() && (c == ',' || !elements.isEmpty())) {
+                    throw invalidBatch("The batch has an empty element");
+                }
+                if (!element.isEmpty()) {
+                    elements.add(element);
+                }
+                start = i + 1;
+            }
+        }
+
+        if (depth > 0 || !text.substring(i).trim().isEmpty()) {
+            throw invalidBatch("The batch is not a well formed array");
+        }
+        if (elements.isEmpty()) {
+            throw invalidBatch("The batch has no requests");
+        }
+        return elements;
+    }
+
+    private static DeserializationException invalidBatch(String reason) {
+        return new DeserializationException("Invalid message format", new IllegalStateException(reason));
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(reader.nextBoolean());
+        }
+        return reader.nextString();
+    }
+}
@@ -5,7 +5,6 @@ import tdl.client.queue.abstractions.response.Response;
 /**
  * Created by julianghionoiu on 10/01/2016.
  */
-@SuppressWarnings("FieldCanBeLocal")
 final class JsonRpcResponse {
     private final Object result;
     private final String error;
@@ -21,4 +20,16 @@ final class JsonRpcResponse {
     static JsonRpcResponse from(Response response) {
         return new JsonRpcResponse(response.getResult(), null, response.getId());
     }
+
+    Object getResult() {
+        return result;
+    }
+
+    String getError() {
+        return error;
+    }
+
+    String getId() {
+        return id;
+    }
 }
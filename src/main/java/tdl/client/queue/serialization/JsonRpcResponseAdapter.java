@@ -0,0 +1,54 @@
+package tdl.client.queue.serialization;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes the JSON-RPC response envelope without going through Gson reflection.
+ *
+ * The output is the same as the reflective mapping: the fields in declaration order and nulls written out.
+ * Strings and integral numbers are written directly, any other result goes through Gson so that
+ * collections, maps and user objects keep their usual representation.
+ */
+final class JsonRpcResponseAdapter extends TypeAdapter<JsonRpcResponse> {
+    private final Gson resultGson;
+
+    JsonRpcResponseAdapter(Gson resultGson) {
+        this.resultGson = resultGson;
+    }
+
+    @Override
+    public void write(JsonWriter out, JsonRpcResponse response) throws IOException {
+        out.beginObject();
+        out.name("result");
+        writeResult(out, response.getResult());
+        out.name("error").value(response.getError());
+        out.name("id").value(response.getId());
+        out.endObject();
+    }
+
+    private void writeResult(JsonWriter out, Object result) throws IOException {
+        if (result == null) {
+            out.nullValue();
+        } else if (result instanceof String) {
+            out.value((String) result);
+        } else if (result instanceof Integer || result instanceof Long
+                || result instanceof Short || result instanceof Byte) {
+            out.value((Number) result);
+        } else if (result instanceof Boolean) {
+            out.value((Boolean) result);
+        } else {
+            //Obs: Floating point results go through Gson as well, it rejects NaN and infinities
+            resultGson.toJson(result, result.getClass(), out);
+        }
+    }
+
+    @Override
+    public JsonRpcResponse read(JsonReader in) {
+        throw new UnsupportedOperationException("Responses are only ever written by the client");
+    }
+}
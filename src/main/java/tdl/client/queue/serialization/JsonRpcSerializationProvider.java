@@ -2,13 +2,18 @@ package tdl.client.queue.serialization;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonWriter;
 import tdl.client.queue.abstractions.Request;
 import tdl.client.queue.abstractions.response.Response;
 import tdl.client.queue.transport.StringMessage;
 
 import javax.jms.JMSException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -16,11 +21,15 @@ import java.util.Optional;
  */
 public class JsonRpcSerializationProvider implements SerializationProvider {
     private final Gson gson;
+    private final JsonRpcResponseAdapter responseAdapter;
+    private final ThreadLocal<ReusableStringWriter> responseBuffers;
 
     public JsonRpcSerializationProvider() {
         gson = new GsonBuilder()
                 .serializeNulls()
                 .create();
+        responseAdapter = new JsonRpcResponseAdapter(gson);
+        responseBuffers = ThreadLocal.withInitial(ReusableStringWriter::new);
     }
 
     @Override
@@ -29,11 +38,8 @@ public class JsonRpcSerializationProvider implements SerializationProvider {
 
         if (messageText.isValid()) {
             try {
-
-                JsonRpcRequest jsonRpcRequest = gson.fromJson(messageText.getContent(), JsonRpcRequest.class);
+                JsonRpcRequest jsonRpcRequest = JsonRpcRequestDecoder.decode(contentOf(messageText));
                 request = Optional.of(new Request(messageText, jsonRpcRequest));
-            } catch (JsonSyntaxException e) {
-                throw new DeserializationException("Invalid message format", e);
             } catch (JMSException e) {
                 throw new DeserializationException("Could not obtain message body", e);
             }
@@ -42,9 +48,70 @@ public class JsonRpcSerializationProvider implements SerializationProvider {
         return request;
     }
 
+    @Override
+    public Optional<List<Request>> deserializeBatch(StringMessage messageText) throws DeserializationException {
+        if (!messageText.isValid()) {
+            return Optional.empty();
+        }
+
+        try {
+            RequestContent content = contentOf(messageText);
+            if (!content.startsWithArray()) {
+                return Optional.empty();
+            }
+            List<Request> requests = new ArrayList<>();
+            for (JsonRpcRequest jsonRpcRequest : JsonRpcRequestDecoder.decodeBatch(content.toString())) {
+                requests.add(new Request(messageText, jsonRpcRequest));
+            }
+            return Optional.of(requests);
+        } catch (JMSException e) {
+            throw new DeserializationException("Could not obtain message body", e);
+        }
+    }
+
     @Override
     public String serialize(Response response) {
-        return gson.toJson(JsonRpcResponse.from(response));
+        ReusableStringWriter buffer = responseBuffers.get();
+        buffer.reset();
+        try {
+            serialize(response, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toString();
     }
 
+    @Override
+    public String serializeBatch(List<String> serializedResponses) {
+        int length = serializedResponses.size() + 1;
+        for (String serializedResponse : serializedResponses) {
+            length += serializedResponse.length();
+        }
+        StringBuilder batch = new StringBuilder(length).append('[');
+        for (int i = 0; i < serializedResponses.size(); i++) {
+            batch.append(i == 0 ? "" : ",").append(serializedResponses.get(i));
+        }
+        return batch.append(']').toString();
+    }
+
+    @Override
+    public void serialize(Response response, Writer writer) throws IOException {
+        //Design: Same writer settings as Gson.toJson, so the output stays byte for byte the same
+        JsonWriter jsonWriter = gson.newJsonWriter(writer);
+        jsonWriter.setLenient(true);
+        jsonWriter.setHtmlSafe(gson.htmlSafe());
+        responseAdapter.write(jsonWriter, JsonRpcResponse.from(response));
+        jsonWriter.flush();
+    }
+
+    //~~~ Internals
+
+    private static RequestContent contentOf(StringMessage messageText) throws JMSException {
+        //Design: JSON in a bytes message is parsed straight from the bytes received from the broker
+        ByteBuffer bytes = messageText.getBytes();
+        if (bytes != null && messageText.getWireFormat() == WireFormat.JSON) {
+            return RequestContent.utf8(bytes);
+        }
+        return RequestContent.of(messageText.getContent());
+    }
 }
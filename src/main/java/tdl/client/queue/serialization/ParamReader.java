@@ -0,0 +1,225 @@
+package tdl.client.queue.serialization;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import tdl.client.audit.DisplayLimits;
+import tdl.client.audit.PresentationUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the params of a request one after the other, straight from the message text.
+ * Values are decoded into the requested type without building a {@link JsonElement} for them.
+ *
+ * Numeric arrays are read into a buffer owned by the thread and copied out once at their final size.
+ * The buffer views skip the copy as well, they are read into a buffer of their own that array reads never touch.
+ */
+public final class ParamReader {
+    private final JsonReader reader;
+
+    /**
+     * @param reader positioned inside the params array, or null when there are no params
+     */
+    ParamReader(JsonReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads params that have already been decoded into a tree
+     */
+    public static ParamReader of(List<JsonElement> params) {
+        if (params == null) {
+            return new ParamReader(null);
+        }
+        JsonReader reader = new JsonReader(new StringReader(String.valueOf(params)));
+        reader.setLenient(true);
+        try {
+            reader.beginArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the params", e);
+        }
+        return new ParamReader(reader);
+    }
+
+    public boolean hasNext() throws IOException {
+        return reader != null && reader.hasNext();
+    }
+
+    public int nextInt() throws IOException {
+        return ensureReader().nextInt();
+    }
+
+    public long nextLong() throws IOException {
+        return ensureReader().nextLong();
+    }
+
+    public double nextDouble() throws IOException {
+        return ensureReader().nextDouble();
+    }
+
+    public boolean nextBoolean() throws IOException {
+        return ensureReader().nextBoolean();
+    }
+
+    public String nextString() throws IOException {
+        JsonReader in = ensureReader();
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (in.peek() == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    public int[] nextIntArray() throws IOException {
+        PrimitiveScratch scratch = PrimitiveScratch.forArrays();
+        int size = readInts(scratch);
+        return Arrays.copyOf(scratch.ints(), size);
+    }
+
+    public long[] nextLongArray() throws IOException {
+        PrimitiveScratch scratch = PrimitiveScratch.forArrays();
+        int size = readLongs(scratch);
+        return Arrays.copyOf(scratch.longs(), size);
+    }
+
+    public double[] nextDoubleArray() throws IOException {
+        PrimitiveScratch scratch = PrimitiveScratch.forArrays();
+        int size = readDoubles(scratch);
+        return Arrays.copyOf(scratch.doubles(), size);
+    }
+
+    //~~~ Pooled views, no allocation proportional to the size of the array
+
+    /**
+     * A view over a buffer owned by the current thread, the next IntBuffer read on this thread overwrites it.
+     * Arrays and lists are read into another buffer and leave the view untouched.
+     */
+    public IntBuffer nextIntBuffer() throws IOException {
+        PrimitiveScratch scratch = PrimitiveScratch.forViews();
+        int size = readInts(scratch);
+        return IntBuffer.wrap(scratch.ints(), 0, size);
+    }
+
+    /**
+     * A view over a buffer owned by the current thread, the next LongBuffer read on this thread overwrites it.
+     * Arrays and lists are read into another buffer and leave the view untouched.
+     */
+    public LongBuffer nextLongBuffer() throws IOException {
+        PrimitiveScratch scratch = PrimitiveScratch.forViews();
+        int size = readLongs(scratch);
+        return LongBuffer.wrap(scratch.longs(), 0, size);
+    }
+
+    /**
+     * A view over a buffer owned by the current thread, the next DoubleBuffer read on this thread overwrites it.
+     * Arrays and lists are read into another buffer and leave the view untouched.
+     */
+    public DoubleBuffer nextDoubleBuffer() throws IOException {
+        PrimitiveScratch scratch = PrimitiveScratch.forViews();
+        int size = readDoubles(scratch);
+        return DoubleBuffer.wrap(scratch.doubles(), 0, size);
+    }
+
+    public <T> List<T> nextList(ValueReader<T> elementReader) throws IOException {
+        JsonReader in = ensureReader();
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<T> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(elementReader.read(this));
+        }
+        in.endArray();
+        return values;
+    }
+
+    public JsonElement nextElement() throws IOException {
+        return JsonParser.parseReader(ensureReader());
+    }
+
+    public void skipValue() throws IOException {
+        ensureReader().skipValue();
+    }
+
+    /**
+     * Renders the params left to read for the audit, without decoding them
+     */
+    public void appendDisplayable(StringBuilder line, DisplayLimits limits) throws IOException {
+        if (reader != null) {
+            PresentationUtils.appendDisplayableRequest(line, reader, limits);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ValueReader<T> {
+        T read(ParamReader params) throws IOException;
+    }
+
+    //~~~ Internals
+
+    private int readInts(PrimitiveScratch scratch) throws IOException {
+        JsonReader in = ensureReader();
+        int[] values = scratch.startInts();
+        int size = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (size == values.length) {
+                values = scratch.growInts(size);
+            }
+            values[size++] = in.nextInt();
+        }
+        in.endArray();
+        return size;
+    }
+
+    private int readLongs(PrimitiveScratch scratch) throws IOException {
+        JsonReader in = ensureReader();
+        long[] values = scratch.startLongs();
+        int size = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (size == values.length) {
+                values = scratch.growLongs(size);
+            }
+            values[size++] = in.nextLong();
+        }
+        in.endArray();
+        return size;
+    }
+
+    private int readDoubles(PrimitiveScratch scratch) throws IOException {
+        JsonReader in = ensureReader();
+        double[] values = scratch.startDoubles();
+        int size = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (size == values.length) {
+                values = scratch.growDoubles(size);
+            }
+            values[size++] = in.nextDouble();
+        }
+        in.endArray();
+        return size;
+    }
+
+    private JsonReader ensureReader() {
+        if (reader == null) {
+            throw new IllegalStateException("The request has no params");
+        }
+        return reader;
+    }
+}
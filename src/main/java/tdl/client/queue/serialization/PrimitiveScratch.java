@@ -0,0 +1,97 @@
+package tdl.client.queue.serialization;
+
+import java.util.Arrays;
+
+/**
+ * Per thread buffers the numeric array params are read into.
+ * A buffer only grows, up to a limit after which it is dropped once the read is over.
+ *
+ * The arrays that are copied out and the buffer views handed to the solution are read into separate scratches,
+ * so an array read never overwrites a view that is still in use.
+ */
+final class PrimitiveScratch {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+    private static final ThreadLocal<PrimitiveScratch> FOR_ARRAYS = ThreadLocal.withInitial(PrimitiveScratch::new);
+    private static final ThreadLocal<PrimitiveScratch> FOR_VIEWS = ThreadLocal.withInitial(PrimitiveScratch::new);
+
+    //Obs: Buffers start empty, a thread that never reads a numeric array does not pay for them
+    private int[] ints = new int[0];
+    private long[] longs = new long[0];
+    private double[] doubles = new double[0];
+
+    private PrimitiveScratch() {
+    }
+
+    /**
+     * The scratch of the arrays, only used until the values are copied out
+     */
+    static PrimitiveScratch forArrays() {
+        return FOR_ARRAYS.get();
+    }
+
+    /**
+     * The scratch behind the buffer views, only the next view read on this thread overwrites it
+     */
+    static PrimitiveScratch forViews() {
+        return FOR_VIEWS.get();
+    }
+
+    /**
+     * The buffer for a new read, the content of the previous read is lost
+     */
+    int[] startInts() {
+        if (ints.length > MAX_RETAINED_CAPACITY) {
+            ints = new int[INITIAL_CAPACITY];
+        }
+        return ints;
+    }
+
+    int[] ints() {
+        return ints;
+    }
+
+    /**
+     * The buffer for a new read, the content of the previous read is lost
+     */
+    long[] startLongs() {
+        if (longs.length > MAX_RETAINED_CAPACITY) {
+            longs = new long[INITIAL_CAPACITY];
+        }
+        return longs;
+    }
+
+    long[] longs() {
+        return longs;
+    }
+
+    /**
+     * The buffer for a new read, the content of the previous read is lost
+     */
+    double[] startDoubles() {
+        if (doubles.length > MAX_RETAINED_CAPACITY) {
+            doubles = new double[INITIAL_CAPACITY];
+        }
+        return doubles;
+    }
+
+    double[] doubles() {
+        return doubles;
+    }
+
+    int[] growInts(int size) {
+        ints = Arrays.copyOf(ints, Math.max(INITIAL_CAPACITY, size * 2));
+        return ints;
+    }
+
+    long[] growLongs(int size) {
+        longs = Arrays.copyOf(longs, Math.max(INITIAL_CAPACITY, size * 2));
+        return longs;
+    }
+
+    double[] growDoubles(int size) {
+        doubles = Arrays.copyOf(doubles, Math.max(INITIAL_CAPACITY, size * 2));
+        return doubles;
+    }
+}
@@ -0,0 +1,56 @@
+package tdl.client.queue.serialization;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The body of a request, either the text of a text message or the UTF-8 bytes of a bytes message.
+ *
+ * It can be read more than once, the params are read again when they are first needed.
+ * The bytes are decoded straight into the buffer of the JSON reader, they are never turned into a String.
+ */
+final class RequestContent {
+    private final String text;
+    private final ByteBuffer utf8;
+
+    private RequestContent(String text, ByteBuffer utf8) {
+        this.text = text;
+        this.utf8 = utf8;
+    }
+
+    static RequestContent of(String text) {
+        return new RequestContent(text, null);
+    }
+
+    static RequestContent utf8(ByteBuffer bytes) {
+        return new RequestContent(null, bytes);
+    }
+
+    Reader open() {
+        return text != null ? new StringReader(text) : new Utf8Reader(utf8.duplicate());
+    }
+
+    boolean startsWithArray() {
+        if (text != null) {
+            return JsonRpcRequestDecoder.isBatch(text);
+        }
+        for (int i = utf8.position(); i < utf8.limit(); i++) {
+            char c = (char) (utf8.get(i) & 0xff);
+            if (!Character.isWhitespace(c)) {
+                return c == '[';
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        if (text != null) {
+            return text;
+        }
+        ByteBuffer bytes = utf8.duplicate();
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+}
@@ -0,0 +1,55 @@
+package tdl.client.queue.serialization;
+
+import java.io.Writer;
+
+/**
+ * An unsynchronised string writer that keeps its buffer between uses
+ */
+final class ReusableStringWriter extends Writer {
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private StringBuilder buffer = new StringBuilder(256);
+
+    void reset() {
+        //Obs: One very large response should not pin its buffer for the rest of the run
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = new StringBuilder(256);
+        } else {
+            buffer.setLength(0);
+        }
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+        buffer.append(chars, offset, length);
+    }
+
+    @Override
+    public void write(int c) {
+        buffer.append((char) c);
+    }
+
+    @Override
+    public void write(String text, int offset, int length) {
+        buffer.append(text, offset, offset + length);
+    }
+
+    @Override
+    public Writer append(CharSequence text) {
+        buffer.append(text);
+        return this;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return buffer.toString();
+    }
+}
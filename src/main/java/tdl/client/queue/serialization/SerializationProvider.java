@@ -4,6 +4,9 @@ import tdl.client.queue.abstractions.Request;
 import tdl.client.queue.abstractions.response.Response;
 import tdl.client.queue.transport.StringMessage;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -14,4 +17,22 @@ public interface SerializationProvider {
     Optional<Request> deserialize(StringMessage messageText) throws DeserializationException;
 
     String serialize(Response response);
+
+    default void serialize(Response response, Writer writer) throws IOException {
+        writer.write(serialize(response));
+    }
+
+    /**
+     * @return the requests of a batch message, in order, or empty when the message holds a single request
+     */
+    default Optional<List<Request>> deserializeBatch(StringMessage messageText) throws DeserializationException {
+        return Optional.empty();
+    }
+
+    /**
+     * Joins the serialized responses to the requests of a batch into the content of a single message
+     */
+    default String serializeBatch(List<String> serializedResponses) {
+        throw new UnsupportedOperationException("Batch messages are not supported");
+    }
 }
@@ -0,0 +1,128 @@
+package tdl.client.queue.serialization;
+
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * An unsynchronised writer that encodes the text as UTF-8 into a byte buffer kept between uses,
+ * so a response goes from the JSON writer to the body of a bytes message without becoming a String.
+ *
+ * There is one buffer per thread, its content is only valid until the next call to {@link #forCurrentThread()}.
+ * A buffer from {@link #create()} belongs to the caller instead.
+ */
+public final class Utf8Buffer extends Writer {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<Utf8Buffer> BUFFERS = ThreadLocal.withInitial(Utf8Buffer::new);
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int size;
+    private char pendingHighSurrogate;
+
+    private Utf8Buffer() {
+    }
+
+    /**
+     * The empty buffer of the current thread
+     */
+    public static Utf8Buffer forCurrentThread() {
+        Utf8Buffer buffer = BUFFERS.get();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * An empty buffer that is not shared with anything else, to be reused through {@link #clear()}
+     */
+    public static Utf8Buffer create() {
+        return new Utf8Buffer();
+    }
+
+    public byte[] array() {
+        return bytes;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        //Obs: One very large response should not pin its buffer for the rest of the run
+        if (bytes.length > MAX_RETAINED_CAPACITY) {
+            bytes = new byte[INITIAL_CAPACITY];
+        }
+        size = 0;
+        pendingHighSurrogate = 0;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+        ensureCapacity(length);
+        for (int i = offset; i < offset + length; i++) {
+            encode(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String text, int offset, int length) {
+        ensureCapacity(length);
+        for (int i = offset; i < offset + length; i++) {
+            encode(text.charAt(i));
+        }
+    }
+
+    @Override
+    public void write(int c) {
+        ensureCapacity(1);
+        encode((char) c);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    //~~~ Internals
+
+    /**
+     * Makes room for the worst case, three bytes per char and one more to complete a surrogate pair started by the last write
+     */
+    private void ensureCapacity(int chars) {
+        int required = size + chars * 3 + 1;
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+        }
+    }
+
+    private void encode(char c) {
+        char high = pendingHighSurrogate;
+        pendingHighSurrogate = 0;
+        if (high != 0 && Character.isLowSurrogate(c)) {
+            //Obs: Replaces the '?' written for the high surrogate, in case it had stayed unpaired
+            int codePoint = Character.toCodePoint(high, c);
+            size--;
+            bytes[size++] = (byte) (0xf0 | (codePoint >> 18));
+            bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+            bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+            bytes[size++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else if (c < 0x80) {
+            bytes[size++] = (byte) c;
+        } else if (c < 0x800) {
+            bytes[size++] = (byte) (0xc0 | (c >> 6));
+            bytes[size++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isSurrogate(c)) {
+            //Obs: An unpaired surrogate is written as '?', the same as String.getBytes
+            bytes[size++] = '?';
+            if (Character.isHighSurrogate(c)) {
+                pendingHighSurrogate = c;
+            }
+        } else {
+            bytes[size++] = (byte) (0xe0 | (c >> 12));
+            bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            bytes[size++] = (byte) (0x80 | (c & 0x3f));
+        }
+    }
+}
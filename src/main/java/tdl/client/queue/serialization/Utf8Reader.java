@@ -0,0 +1,87 @@
+package tdl.client.queue.serialization;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes UTF-8 straight into the buffer of the caller, without the intermediate buffers of an InputStreamReader.
+ * Malformed bytes are read as replacement characters.
+ */
+final class Utf8Reader extends Reader {
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final ByteBuffer bytes;
+    private char pendingLowSurrogate;
+
+    Utf8Reader(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) {
+        int count = 0;
+        if (length > 0 && pendingLowSurrogate != 0) {
+            chars[offset + count++] = pendingLowSurrogate;
+            pendingLowSurrogate = 0;
+        }
+
+        int position = bytes.position();
+        int limit = bytes.limit();
+        while (count < length && position < limit) {
+            int lead = bytes.get(position) & 0xff;
+            if (lead < 0x80) {
+                chars[offset + count++] = (char) lead;
+                position++;
+                continue;
+            }
+
+            int size = lead >= 0xf0 ? 4 : lead >= 0xe0 ? 3 : lead >= 0xc0 ? 2 : 1;
+            int codePoint = decode(lead, size, position, limit);
+            if (codePoint < 0) {
+                chars[offset + count++] = REPLACEMENT;
+                position++;
+                continue;
+            }
+            position += size;
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                chars[offset + count++] = (char) codePoint;
+            } else {
+                chars[offset + count++] = Character.highSurrogate(codePoint);
+                if (count < length) {
+                    chars[offset + count++] = Character.lowSurrogate(codePoint);
+                } else {
+                    pendingLowSurrogate = Character.lowSurrogate(codePoint);
+                }
+            }
+        }
+        bytes.position(position);
+        return count == 0 && length > 0 ? -1 : count;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return the code point, or -1 when the sequence is malformed, overlong or a surrogate
+     */
+    private int decode(int lead, int size, int position, int limit) {
+        if (size == 1 || size > limit - position || lead > 0xf4) {
+            return -1;
+        }
+        int codePoint = lead & (0x7f >> size);
+        for (int i = 1; i < size; i++) {
+            int continuation = bytes.get(position + i) & 0xff;
+            if ((continuation & 0xc0) != 0x80) {
+                return -1;
+            }
+            codePoint = (codePoint << 6) | (continuation & 0x3f);
+        }
+        int minimum = size == 2 ? 0x80 : size == 3 ? 0x800 : Character.MIN_SUPPLEMENTARY_CODE_POINT;
+        if (codePoint < minimum || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            return -1;
+        }
+        return codePoint;
+    }
+}
@@ -0,0 +1,64 @@
+package tdl.client.queue.serialization;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The encoding of a message body, chosen by the content type property of the message.
+ *
+ * JSON is the default, it is sent as text. The binary formats are transcoded to and from JSON text,
+ * so every format goes through the same decoder and response adapter.
+ */
+public enum WireFormat {
+    JSON("application/json") {
+        @Override
+        public String toJson(byte[] content) {
+            return new String(content, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public byte[] fromJson(String json) {
+            return json.getBytes(StandardCharsets.UTF_8);
+        }
+    },
+    CBOR("application/cbor") {
+        @Override
+        public String toJson(byte[] content) throws IOException {
+            return CborTranscoder.toJson(content);
+        }
+
+        @Override
+        public byte[] fromJson(String json) throws IOException {
+            return CborTranscoder.fromJson(json);
+        }
+    };
+
+    private final String contentType;
+
+    WireFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return the format for the content type, JSON when there is none and null when it is not supported
+     */
+    public static WireFormat forContentType(String contentType) {
+        if (contentType == null) {
+            return JSON;
+        }
+        for (WireFormat format : values()) {
+            if (format.contentType.equalsIgnoreCase(contentType.trim())) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public abstract String toJson(byte[] content) throws IOException;
+
+    public abstract byte[] fromJson(String json) throws IOException;
+}
@@ -0,0 +1,62 @@
+package tdl.client.queue.transport;
+
+/**
+ * Decides when the requests that have been answered are acknowledged to the broker.
+ *
+ * Per message acknowledges every request right after its response has been sent.
+ * Batched acknowledges every N responses or T milliseconds, whichever comes first.
+ * A run that stops on an error still acknowledges the requests it has answered.
+ * If the connection is lost, the requests answered since the last acknowledgement are redelivered and answered again.
+ * Transacted commits the responses and the acknowledgements together, every N responses or T milliseconds.
+ * If the run fails, the uncommitted responses are discarded and the requests are redelivered.
+ */
+public final class AcknowledgeStrategy {
+
+    enum Mode {
+        PER_MESSAGE,
+        BATCHED,
+        TRANSACTED
+    }
+
+    private final Mode mode;
+    private final int maxMessages;
+    private final long maxDelayMillis;
+
+    private AcknowledgeStrategy(Mode mode, int maxMessages, long maxDelayMillis) {
+        this.mode = mode;
+        this.maxMessages = maxMessages;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public static AcknowledgeStrategy perMessage() {
+        return new AcknowledgeStrategy(Mode.PER_MESSAGE, 1, 0);
+    }
+
+    public static AcknowledgeStrategy batched(int maxMessages, long maxDelayMillis) {
+        return new AcknowledgeStrategy(Mode.BATCHED, maxMessages, maxDelayMillis);
+    }
+
+    public static AcknowledgeStrategy transacted(int maxMessages, long maxDelayMillis) {
+        return new AcknowledgeStrategy(Mode.TRANSACTED, maxMessages, maxDelayMillis);
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    int getMaxMessages() {
+        return maxMessages;
+    }
+
+    long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    @Override
+    public String toString() {
+        if (mode == Mode.PER_MESSAGE) {
+            return "per message";
+        }
+        return String.format("%s every %d messages or %dms", mode.name().toLowerCase(), maxMessages, maxDelayMillis);
+    }
+}
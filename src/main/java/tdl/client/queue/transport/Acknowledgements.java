@@ -0,0 +1,155 @@
+package tdl.client.queue.transport;
+
+import org.apache.activemq.ActiveMQSession;
+
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps track of the requests that have been received and answered, and acknowledges them to the broker
+ * according to the {@link AcknowledgeStrategy}.
+ *
+ * A batch acknowledges exactly the requests answered since the last one, each of them individually,
+ * so it can be flushed while other requests are still being processed, and when the run stops early.
+ * A transaction commit covers all the messages received by the session, it is only ever flushed
+ * when every received request has been answered.
+ *
+ * A lookahead limits how many requests can be received before the earlier ones have been answered.
+ */
+class Acknowledgements {
+    private final AcknowledgeStrategy strategy;
+    private final Session session;
+    private final int lookahead;
+    private int outstanding;
+    private boolean receiving;
+    private boolean aborted;
+    private int answeredSinceFlush;
+    private long firstAnsweredAt;
+    private final List<StringMessage> answered;
+
+    Acknowledgements(AcknowledgeStrategy strategy, Session session, int lookahead) {
+        this.strategy = strategy;
+        this.session = session;
+        this.lookahead = lookahead;
+        this.answered = new ArrayList<>();
+    }
+
+    static boolean isTransacted(AcknowledgeStrategy strategy) {
+        return strategy.getMode() == AcknowledgeStrategy.Mode.TRANSACTED;
+    }
+
+    static int sessionMode(AcknowledgeStrategy strategy) {
+        if (isTransacted(strategy)) {
+            return Session.SESSION_TRANSACTED;
+        }
+        //Design: Individual acknowledge so that acknowledging a response never covers requests still being processed
+        return ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE;
+    }
+
+    //~~~ Receive side
+
+    synchronized void beforeReceive() throws JMSException {
+        if (isFlushDue() && canFlush()) {
+            flush();
+        }
+        receiving = true;
+    }
+
+    synchronized void afterReceive(StringMessage message) {
+        receiving = false;
+        if (message.isValid()) {
+            outstanding++;
+        }
+    }
+
+    /**
+     * True when a transaction is due but some received requests have not been answered yet.
+     * Receiving more requests at this point would postpone the commit indefinitely.
+     * Also true when the lookahead is full.
+     */
+    synchronized boolean mustDrainBeforeReceiving() {
+        return (isFlushDue() && !canFlush()) || (lookahead > 0 && outstanding >= lookahead);
+    }
+
+    synchronized void awaitDrained() throws InterruptedException {
+        while (!aborted && mustDrainBeforeReceiving()) {
+            wait();
+        }
+    }
+
+    /**
+     * Wakes up the threads waiting to drain, the requests in flight are not going to be answered
+     */
+    synchronized void abort() {
+        aborted = true;
+        notifyAll();
+    }
+
+    //~~~ Respond side
+
+    synchronized void onAnswered(StringMessage request) throws JMSException {
+        outstanding--;
+        if (lookahead > 0) {
+            notifyAll();
+        }
+        if (strategy.getMode() == AcknowledgeStrategy.Mode.PER_MESSAGE) {
+            request.acknowledge();
+            return;
+        }
+
+        if (answeredSinceFlush == 0) {
+            firstAnsweredAt = System.currentTimeMillis();
+        }
+        answeredSinceFlush++;
+        if (!isTransacted(strategy)) {
+            answered.add(request);
+        }
+
+        if (isFlushDue() && canFlush() && !receiving) {
+            flush();
+        }
+    }
+
+    /**
+     * Acknowledges the requests answered so far. A transaction is only committed if nothing is left unanswered,
+     * otherwise it is rolled back with the requests still in flight.
+     *
+     * @return true if every request received has been answered and acknowledged
+     */
+    synchronized boolean flushAnswered() throws JMSException {
+        if (answeredSinceFlush > 0 && canFlush()) {
+            flush();
+        }
+        return outstanding == 0;
+    }
+
+    synchronized int getUnacknowledgedCount() {
+        return outstanding + answeredSinceFlush;
+    }
+
+    //~~~ Internals
+
+    private boolean isFlushDue() {
+        return answeredSinceFlush > 0 && (answeredSinceFlush >= strategy.getMaxMessages()
+                || System.currentTimeMillis() - firstAnsweredAt >= strategy.getMaxDelayMillis());
+    }
+
+    private boolean canFlush() {
+        return outstanding == 0 || !isTransacted(strategy);
+    }
+
+    private void flush() throws JMSException {
+        if (isTransacted(strategy)) {
+            session.commit();
+        } else {
+            for (StringMessage message : answered) {
+                message.acknowledge();
+            }
+            answered.clear();
+        }
+        answeredSinceFlush = 0;
+        notifyAll();
+    }
+}
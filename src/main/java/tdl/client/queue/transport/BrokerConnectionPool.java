@@ -0,0 +1,134 @@
+package tdl.client.queue.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import java.util.*;
+
+/**
+ * Keeps broker connections, sessions and producers warm between runs, so that a deploy
+ * does not pay for the TCP and OpenWire handshakes again.
+ *
+ * There is one connection per broker and one idle session per broker/queue pair.
+ * Connections and sessions are health checked before being handed out and replaced if broken.
+ * The pool owns everything it has opened, call {@link #close()} once the runners are no longer needed.
+ */
+public class BrokerConnectionPool implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BrokerConnectionPool.class);
+
+    private final ConnectionOpener connectionOpener;
+    private final Map<String, Connection> connections;
+    private final Map<String, Deque<BrokerSession>> idleSessions;
+    private boolean closed;
+
+    public BrokerConnectionPool() {
+        this(BrokerSession::openConnection);
+    }
+
+    BrokerConnectionPool(ConnectionOpener connectionOpener) {
+        this.connectionOpener = connectionOpener;
+        connections = new HashMap<>();
+        idleSessions = new HashMap<>();
+    }
+
+    /**
+     * Opens and starts a connection to the broker
+     */
+    @FunctionalInterface
+    interface ConnectionOpener {
+        Connection open(String brokerURL) throws JMSException;
+    }
+
+    synchronized BrokerSession acquire(String brokerURL,
+                                       String requestQueue,
+                                       String responseQueue,
+                                       AcknowledgeStrategy acknowledgeStrategy) throws JMSException {
+        if (closed) {
+            throw new javax.jms.IllegalStateException("The connection pool has been closed");
+        }
+
+        Deque<BrokerSession> idle = idleSessions.getOrDefault(
+                sessionKey(brokerURL, requestQueue, responseQueue, acknowledgeStrategy), new ArrayDeque<>());
+        while (!idle.isEmpty()) {
+            BrokerSession candidate = idle.poll();
+            if (candidate.isHealthy()) {
+                return candidate;
+            }
+            closeQuietly(candidate);
+        }
+
+        return new BrokerSession(connectionFor(brokerURL), acknowledgeStrategy, responseQueue);
+    }
+
+    /**
+     * @param reusable false if the session might still hold unacknowledged messages
+     */
+    synchronized void release(BrokerSession brokerSession,
+                              String brokerURL,
+                              String requestQueue,
+                              String responseQueue,
+                              AcknowledgeStrategy acknowledgeStrategy,
+                              boolean reusable) {
+        if (closed || !reusable || !brokerSession.isHealthy()) {
+            //Obs: Closing the session hands the unacknowledged messages back to the broker, the connection stays warm
+            closeQuietly(brokerSession);
+            return;
+        }
+        idleSessions.computeIfAbsent(
+                sessionKey(brokerURL, requestQueue, responseQueue, acknowledgeStrategy),
+                key -> new ArrayDeque<>()).add(brokerSession);
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        idleSessions.values().forEach(sessions -> sessions.forEach(BrokerConnectionPool::closeQuietly));
+        idleSessions.clear();
+        for (Connection connection : connections.values()) {
+            try {
+                connection.close();
+            } catch (JMSException e) {
+                LOGGER.warn("Could not close the connection to the broker", e);
+            }
+        }
+        connections.clear();
+    }
+
+    //~~~ Internals
+
+    private Connection connectionFor(String brokerURL) throws JMSException {
+        Connection connection = connections.get(brokerURL);
+        if (connection != null && BrokerSession.isHealthy(connection)) {
+            return connection;
+        }
+        if (connection != null) {
+            LOGGER.debug("Replacing broken connection to {}", brokerURL);
+            try {
+                connection.close();
+            } catch (JMSException ignored) {
+                // The connection is already broken
+            }
+        }
+
+        connection = connectionOpener.open(brokerURL);
+        connections.put(brokerURL, connection);
+        return connection;
+    }
+
+    private static String sessionKey(String brokerURL,
+                                     String requestQueue,
+                                     String responseQueue,
+                                     AcknowledgeStrategy acknowledgeStrategy) {
+        return String.join("|", brokerURL, requestQueue, responseQueue, acknowledgeStrategy.toString());
+    }
+
+    private static void closeQuietly(BrokerSession brokerSession) {
+        try {
+            brokerSession.close();
+        } catch (JMSException e) {
+            LOGGER.debug("Could not close the broker session", e);
+        }
+    }
+}
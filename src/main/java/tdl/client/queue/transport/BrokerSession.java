@@ -0,0 +1,64 @@
+package tdl.client.queue.transport;
+
+import org.apache.activemq.ActiveMQConnection;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.ActiveMQSession;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.*;
+
+/**
+ * A session on the broker together with the producer for the response queue.
+ * The consumer is not part of the session, it is created for every run so that no messages
+ * are held by the client between runs.
+ */
+class BrokerSession {
+    private final Connection connection;
+    private final Session session;
+    private final MessageProducer messageProducer;
+
+    BrokerSession(Connection connection, AcknowledgeStrategy acknowledgeStrategy, String responseQueue)
+            throws JMSException {
+        this.connection = connection;
+        session = connection.createSession(
+                Acknowledgements.isTransacted(acknowledgeStrategy),
+                Acknowledgements.sessionMode(acknowledgeStrategy));
+
+        messageProducer = session.createProducer(session.createQueue(responseQueue));
+        messageProducer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+    }
+
+    static Connection openConnection(String brokerURL) throws JMSException {
+        ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(brokerURL);
+        Connection connection = connectionFactory.createConnection();
+
+        LoggerFactory.getLogger(RemoteBroker.class).debug("Connecting to the remote broker");
+        connection.start();
+        return connection;
+    }
+
+    static boolean isHealthy(Connection connection) {
+        ActiveMQConnection activeMQConnection = (ActiveMQConnection) connection;
+        return !activeMQConnection.isClosed() && !activeMQConnection.isTransportFailed();
+    }
+
+    boolean isHealthy() {
+        return isHealthy(connection) && !((ActiveMQSession) session).isClosed();
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    Session getSession() {
+        return session;
+    }
+
+    MessageProducer getMessageProducer() {
+        return messageProducer;
+    }
+
+    void close() throws JMSException {
+        session.close();
+    }
+}
@@ -0,0 +1,191 @@
+package tdl.client.queue.transport;
+
+import org.apache.activemq.ActiveMQConnection;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.ActiveMQSession;
+import org.apache.activemq.thread.TaskRunnerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tdl.client.queue.abstractions.Request;
+import tdl.client.queue.abstractions.response.FatalErrorResponse;
+import tdl.client.queue.abstractions.response.Response;
+import tdl.client.queue.serialization.DeserializationException;
+import tdl.client.queue.serialization.JsonRpcSerializationProvider;
+import tdl.client.queue.serialization.SerializationProvider;
+
+import javax.jms.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves many request/response queue pairs over a few shared connections.
+ *
+ * Every subscription has its own session with a message listener, there is no thread blocked per queue.
+ * The sessions are dispatched by a shared executor. A session never runs on two threads at the same time,
+ * so the requests of a queue are still processed one at a time and in order.
+ */
+public class MultiplexedBroker implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexedBroker.class);
+
+    private final List<ActiveMQConnection> connections;
+    private final TaskRunnerFactory sessionTaskRunner;
+    private final SerializationProvider serializationProvider;
+    private final AtomicInteger nextConnection;
+
+    public MultiplexedBroker(String brokerURL, int connectionCount, ExecutorService dispatchExecutor)
+            throws JMSException {
+        sessionTaskRunner = new TaskRunnerFactory("tdl-dispatch");
+        sessionTaskRunner.setExecutor(dispatchExecutor);
+        serializationProvider = new JsonRpcSerializationProvider();
+        nextConnection = new AtomicInteger();
+
+        connections = new ArrayList<>();
+        ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(brokerURL);
+        connectionFactory.setUseDedicatedTaskRunner(false);
+        connectionFactory.setSessionTaskRunner(sessionTaskRunner);
+        try {
+            for (int i = 0; i < connectionCount; i++) {
+                ActiveMQConnection connection = (ActiveMQConnection) connectionFactory.createConnection();
+                connections.add(connection);
+                connection.start();
+            }
+        } catch (JMSException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    public interface RequestHandler {
+        /**
+         * @return the response to publish, a {@link FatalErrorResponse} stops the subscription without publishing
+         */
+        Response handle(Request request);
+    }
+
+    public Subscription subscribe(String requestQueue, String responseQueue, RequestHandler handler)
+            throws JMSException {
+        Connection connection = connections.get(Math.floorMod(nextConnection.getAndIncrement(), connections.size()));
+        return new Subscription(connection, requestQueue, responseQueue, handler);
+    }
+
+    @Override
+    public void close() {
+        for (Connection connection : connections) {
+            try {
+                connection.close();
+            } catch (JMSException e) {
+                LOGGER.warn("Could not close the connection to the broker", e);
+            }
+        }
+        sessionTaskRunner.shutdown();
+    }
+
+    //~~~ Subscription
+
+    public class Subscription implements MessageListener, AutoCloseable {
+        private final String requestQueue;
+        private final Session session;
+        private final MessageProducer messageProducer;
+        private final RequestHandler handler;
+        private volatile boolean finished;
+        private volatile boolean busy;
+        private volatile long lastActivity;
+
+        private Subscription(Connection connection, String requestQueue, String responseQueue, RequestHandler handler)
+                throws JMSException {
+            this.requestQueue = requestQueue;
+            this.handler = handler;
+            lastActivity = System.currentTimeMillis();
+
+            session = connection.createSession(false, ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE);
+            messageProducer = session.createProducer(session.createQueue(responseQueue));
+            messageProducer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+            session.createConsumer(session.createQueue(requestQueue)).setMessageListener(this);
+        }
+
+        @Override
+        public void onMessage(Message message) {
+            //Obs: Messages delivered after the end are left unacknowledged, they are redelivered once the session closes
+            if (finished) {
+                return;
+            }
+            busy = true;
+            try {
+                StringMessage stringMessage = new StringMessage(message);
+                if (stringMessage.isEndOfStream()) {
+                    stringMessage.acknowledge();
+                    finished = true;
+                    return;
+                }
+
+                String serializedResponse;
+                Optional<List<Request>> batch = serializationProvider.deserializeBatch(stringMessage);
+                if (batch.isPresent()) {
+                    serializedResponse = respondToBatch(batch.get());
+                } else {
+                    Optional<Request> request = serializationProvider.deserialize(stringMessage);
+                    if (request.isEmpty()) {
+                        return;
+                    }
+                    Response response = handler.handle(request.get());
+                    serializedResponse = response instanceof FatalErrorResponse
+                            ? null : serializationProvider.serialize(response);
+                }
+                if (serializedResponse == null) {
+                    finished = true;
+                    return;
+                }
+
+                messageProducer.send(stringMessage.createReply(session, serializedResponse));
+                stringMessage.acknowledge();
+            } catch (JMSException | DeserializationException e) {
+                LOGGER.error("There was a problem processing messages from {}", requestQueue, e);
+                finished = true;
+            } finally {
+                lastActivity = System.currentTimeMillis();
+                busy = false;
+            }
+        }
+
+        /**
+         * @return the responses to the whole batch, or null after a fatal error
+         */
+        private String respondToBatch(List<Request> requests) {
+            List<String> serializedResponses = new ArrayList<>(requests.size());
+            for (Request request : requests) {
+                Response response = handler.handle(request);
+                if (response instanceof FatalErrorResponse) {
+                    return null;
+                }
+                serializedResponses.add(serializationProvider.serialize(response));
+            }
+            return serializationProvider.serializeBatch(serializedResponses);
+        }
+
+        public String getRequestQueue() {
+            return requestQueue;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        public boolean isIdleFor(long millis) {
+            return !busy && System.currentTimeMillis() - lastActivity >= millis;
+        }
+
+        @Override
+        public void close() {
+            finished = true;
+            try {
+                session.close();
+            } catch (JMSException e) {
+                LOGGER.warn("Could not close the session for {}", requestQueue, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package tdl.client.queue.transport;
+
+import org.apache.activemq.ActiveMQMessageProducer;
+import org.apache.activemq.AsyncCallback;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes responses without waiting for the broker, at most a window of them unconfirmed at any time.
+ * A full window blocks the next send until the broker catches up.
+ *
+ * The confirmation callbacks run on the ActiveMQ transport thread, so they must never wait on the broker.
+ * A failed send is reported by the next call made from the runner thread.
+ */
+class PendingSends {
+
+    @FunctionalInterface
+    interface Confirmation {
+        void onConfirmed() throws JMSException;
+    }
+
+    private final int window;
+    private final Semaphore available;
+    private final AtomicReference<JMSException> failure;
+    private final Runnable onFailure;
+
+    PendingSends(int window, Runnable onFailure) {
+        this.window = window;
+        this.onFailure = onFailure;
+        this.available = new Semaphore(window);
+        this.failure = new AtomicReference<>();
+    }
+
+    void send(ActiveMQMessageProducer producer, Message message, Confirmation confirmation)
+            throws JMSException, InterruptedException {
+        throwIfFailed();
+        available.acquire();
+        try {
+            producer.send(message, new AsyncCallback() {
+                @Override
+                public void onSuccess() {
+                    try {
+                        confirmation.onConfirmed();
+                    } catch (JMSException e) {
+                        fail(e);
+                    } finally {
+                        available.release();
+                    }
+                }
+
+                @Override
+                public void onException(JMSException e) {
+                    fail(e);
+                    available.release();
+                }
+            });
+        } catch (JMSException | RuntimeException e) {
+            available.release();
+            throw e;
+        }
+    }
+
+    private void fail(JMSException e) {
+        failure.compareAndSet(null, e);
+        onFailure.run();
+    }
+
+    void throwIfFailed() throws JMSException {
+        JMSException e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if every send has been confirmed in time
+     */
+    boolean awaitConfirmed(long timeoutMillis) throws InterruptedException {
+        if (!available.tryAcquire(window, timeoutMillis, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        available.release(window);
+        return failure.get() == null;
+    }
+}
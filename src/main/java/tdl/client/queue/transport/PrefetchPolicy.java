@@ -0,0 +1,78 @@
+package tdl.client.queue.transport;
+
+/**
+ * How many requests the broker pushes to the client ahead of processing, and how many the runner takes on at once.
+ *
+ * High throughput keeps a deep prefetch buffer and acknowledges in batches, so the runner never waits on the broker.
+ * Low latency uses a prefetch of 1, the broker only dispatches to a consumer that is ready for more,
+ * so one slow request does not hold back messages that a competing consumer could take.
+ */
+public final class PrefetchPolicy {
+    //Obs: The same ratio and timeout ActiveMQ uses for its own optimized acknowledge
+    private static final double OPTIMIZED_ACKNOWLEDGE_RATIO = 0.65;
+    private static final long OPTIMIZED_ACKNOWLEDGE_TIMEOUT_MILLIS = 300;
+
+    private final int prefetchSize;
+    private final boolean optimizeAcknowledge;
+    private final int lookahead;
+
+    private PrefetchPolicy(int prefetchSize, boolean optimizeAcknowledge, int lookahead) {
+        this.prefetchSize = prefetchSize;
+        this.optimizeAcknowledge = optimizeAcknowledge;
+        this.lookahead = lookahead;
+    }
+
+    public static PrefetchPolicy highThroughput() {
+        return new PrefetchPolicy(1000, true, 0);
+    }
+
+    public static PrefetchPolicy lowLatency() {
+        return new PrefetchPolicy(1, false, 0);
+    }
+
+    public static PrefetchPolicy prefetch(int prefetchSize) {
+        return new PrefetchPolicy(prefetchSize, false, 0);
+    }
+
+    /**
+     * Acknowledge in batches of about two thirds of the prefetch size instead of after every response.
+     * Only replaces the per message strategy, an explicit batched or transacted strategy is kept as it is.
+     */
+    public PrefetchPolicy withOptimizeAcknowledge(boolean optimizeAcknowledge) {
+        return new PrefetchPolicy(prefetchSize, optimizeAcknowledge, lookahead);
+    }
+
+    /**
+     * The maximum number of requests received but not yet answered, 0 leaves it to the runner
+     */
+    public PrefetchPolicy withLookahead(int lookahead) {
+        return new PrefetchPolicy(prefetchSize, optimizeAcknowledge, lookahead);
+    }
+
+    int getPrefetchSize() {
+        return prefetchSize;
+    }
+
+    int getLookahead() {
+        return lookahead;
+    }
+
+    AcknowledgeStrategy acknowledgeStrategyFor(AcknowledgeStrategy configured) {
+        if (!optimizeAcknowledge || configured.getMode() != AcknowledgeStrategy.Mode.PER_MESSAGE) {
+            return configured;
+        }
+        int batchSize = Math.max(1, (int) (prefetchSize * OPTIMIZED_ACKNOWLEDGE_RATIO));
+        return AcknowledgeStrategy.batched(batchSize, OPTIMIZED_ACKNOWLEDGE_TIMEOUT_MILLIS);
+    }
+
+    String consumerOptions() {
+        return "consumer.prefetchSize=" + prefetchSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("prefetch %d%s%s", prefetchSize,
+                optimizeAcknowledge ? ", optimized acknowledge" : "",
+                lookahead > 0 ? ", lookahead " + lookahead : "");
+    }
+}
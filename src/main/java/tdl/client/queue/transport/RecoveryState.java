@@ -0,0 +1,74 @@
+package tdl.client.queue.transport;
+
+import javax.jms.JMSException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Carries what the runner knows about the requests in flight from one broker connection to the next.
+ *
+ * When the connection drops after a response has been sent but before the request has been acknowledged,
+ * the broker redelivers the request. The runner recognises it here and acknowledges it without publishing
+ * a second response. Only responses confirmed by the broker are remembered.
+ *
+ * The broker might take a while to notice that the old connection is gone and to redeliver its requests,
+ * so until they come back an idle queue is not taken as the end of the run.
+ */
+public class RecoveryState {
+    private static final int DEFAULT_CAPACITY = 10000;
+
+    private final Map<String, Boolean> answeredMessageIds;
+    private final long redeliveryTimeoutMillis;
+    private int expectedRedeliveries;
+    private long expectRedeliveriesUntil;
+    private long recovered;
+
+    public RecoveryState(long redeliveryTimeoutMillis) {
+        this.redeliveryTimeoutMillis = redeliveryTimeoutMillis;
+        answeredMessageIds = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > DEFAULT_CAPACITY;
+            }
+        };
+    }
+
+    //~~~ Answered requests
+
+    synchronized void rememberAnswered(StringMessage request) throws JMSException {
+        String messageId = request.getMessageId();
+        if (messageId != null) {
+            answeredMessageIds.put(messageId, Boolean.TRUE);
+        }
+    }
+
+    synchronized boolean isAlreadyAnswered(StringMessage request) throws JMSException {
+        if (!request.isRedelivered()) {
+            return false;
+        }
+        expectedRedeliveries = Math.max(0, expectedRedeliveries - 1);
+
+        boolean answered = answeredMessageIds.containsKey(request.getMessageId());
+        if (answered) {
+            recovered++;
+        }
+        return answered;
+    }
+
+    public synchronized long getRecoveredCount() {
+        return recovered;
+    }
+
+    //~~~ Redeliveries
+
+    synchronized void expectRedeliveries(int count) {
+        if (count > 0) {
+            expectedRedeliveries += count;
+            expectRedeliveriesUntil = System.currentTimeMillis() + redeliveryTimeoutMillis;
+        }
+    }
+
+    synchronized boolean isAwaitingRedeliveries() {
+        return expectedRedeliveries > 0 && System.currentTimeMillis() < expectRedeliveriesUntil;
+    }
+}
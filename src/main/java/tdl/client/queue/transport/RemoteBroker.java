@@ -1,77 +1,331 @@
 package tdl.client.queue.transport;
 
-import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.ActiveMQMessageProducer;
 import org.slf4j.LoggerFactory;
+import tdl.client.queue.ImplementationRunnerConfig;
 import tdl.client.queue.serialization.DeserializationException;
 import tdl.client.queue.abstractions.Request;
 import tdl.client.queue.abstractions.response.Response;
 import tdl.client.queue.serialization.JsonRpcSerializationProvider;
 import tdl.client.queue.serialization.SerializationProvider;
+import tdl.client.queue.serialization.Utf8Buffer;
+import tdl.client.queue.serialization.WireFormat;
 
 import javax.jms.*;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
 import java.util.Optional;
 
 public class RemoteBroker implements AutoCloseable {
-    private final Connection connection;
+    private static final int CONFIRMED_SEND_TIMEOUT_MILLIS = 30000;
 
+    private final BrokerSession brokerSession;
+    private final BrokerConnectionPool connectionPool;
+    private final String brokerURL;
+    private final ImplementationRunnerConfig config;
+    private final AcknowledgeStrategy acknowledgeStrategy;
 
     private final Session session;
     private final MessageConsumer messageConsumer;
     private final MessageProducer messageProducer;
-    private final int requestTimeoutMillis;
+    private final int receiveTimeoutMillis;
+    private final Acknowledgements acknowledgements;
+    private final RecoveryState recoveryState;
+    private final PendingSends pendingSends;
+    private final ResponseBatches responseBatches;
+    private final Deque<Request> unpackedRequests;
 
     private SerializationProvider serializationProvider;
 
-    public RemoteBroker(String hostname,
-                        int port,
-                        int requestTimeoutMillis,
-                        String requestQueue,
-                        String responseQueue) throws JMSException {
-        String brokerURL = String.format("tcp://%s:%s", hostname, port);
-        ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(brokerURL);
-        connection = connectionFactory.createConnection();
+    public RemoteBroker(ImplementationRunnerConfig config) throws JMSException {
+        this(config, config.getBrokerURLs().get(0), null);
+    }
 
-        LoggerFactory.getLogger(RemoteBroker.class).debug("Connecting to the remote broker");
-        connection.start();
-        session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+    public RemoteBroker(ImplementationRunnerConfig config,
+                        String brokerURL,
+                        RecoveryState recoveryState) throws JMSException {
+        this.config = config;
+        this.brokerURL = brokerURL;
+        this.recoveryState = recoveryState;
+        connectionPool = config.getConnectionPool();
+        PrefetchPolicy prefetchPolicy = config.getPrefetchPolicy();
+        acknowledgeStrategy = prefetchPolicy != null
+                ? prefetchPolicy.acknowledgeStrategyFor(config.getAcknowledgeStrategy())
+                : config.getAcknowledgeStrategy();
+        if (connectionPool != null) {
+            brokerSession = connectionPool.acquire(brokerURL,
+                    config.getRequestQueueName(), config.getResponseQueueName(), acknowledgeStrategy);
+        } else {
+            brokerSession = new BrokerSession(BrokerSession.openConnection(brokerURL),
+                    acknowledgeStrategy, config.getResponseQueueName());
+        }
 
-        messageConsumer = session.createConsumer(session.createQueue(requestQueue));
+        session = brokerSession.getSession();
+        acknowledgements = new Acknowledgements(acknowledgeStrategy, session,
+                prefetchPolicy != null ? prefetchPolicy.getLookahead() : 0);
+        try {
+            //Design: The prefetch is a consumer option, so a pooled session can be reused with any policy
+            String requestQueue = prefetchPolicy != null
+                    ? config.getRequestQueueName() + "?" + prefetchPolicy.consumerOptions()
+                    : config.getRequestQueueName();
+            messageConsumer = session.createConsumer(session.createQueue(requestQueue));
+        } catch (JMSException e) {
+            releaseSession(false);
+            throw e;
+        }
+        messageProducer = brokerSession.getMessageProducer();
+        //Obs: A response can only be trusted across a reconnect once the broker has confirmed it
+        ((ActiveMQMessageProducer) messageProducer).setSendTimeout(
+                recoveryState != null ? CONFIRMED_SEND_TIMEOUT_MILLIS : 0);
 
-        messageProducer = session.createProducer(session.createQueue(responseQueue));
-        messageProducer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+        //Obs: Transacted responses are confirmed by the commit, they are always sent synchronously
+        pendingSends = config.getAsyncSendWindow() > 0 && !Acknowledgements.isTransacted(acknowledgeStrategy)
+                ? new PendingSends(config.getAsyncSendWindow(), acknowledgements::abort)
+                : null;
 
-        this.requestTimeoutMillis = requestTimeoutMillis;
+        //Obs: When the server marks the end of the stream, the timeout is only a safety net
+        this.receiveTimeoutMillis = config.isWaitForEndOfStream()
+                ? config.getEndOfStreamSafetyTimeoutMillis()
+                : config.getRequestTimeoutMillis();
         serializationProvider = new JsonRpcSerializationProvider();
+        responseBatches = new ResponseBatches();
+        unpackedRequests = new ArrayDeque<>();
     }
 
+    /**
+     * The requests of a batch message are returned one at a time, the next message is only received
+     * once the whole batch has been handed out.
+     */
     public Optional<Request> receive() throws BrokerCommunicationException {
+        if (!unpackedRequests.isEmpty()) {
+            return Optional.of(unpackedRequests.poll());
+        }
+        unpackedRequests.addAll(decode(receiveMessage()));
+        return Optional.ofNullable(unpackedRequests.poll());
+    }
+
+    public void respondTo(Request request, Response response) throws BrokerCommunicationException {
+        StringMessage originalMessage = request.getOriginalMessage();
         try {
-            //Debt: We should have no timeout. This method could exit if we put a special close message in the queue
-            StringMessage messageText = new StringMessage(messageConsumer.receive(requestTimeoutMillis));
-            return serializationProvider.deserialize(messageText);
-        } catch (JMSException | DeserializationException e) {
+            if (isJsonBytes(originalMessage) && !responseBatches.isBatch(originalMessage)) {
+                //Design: The response is encoded straight into a reusable byte buffer, it never becomes a String
+                Utf8Buffer json = Utf8Buffer.forCurrentThread();
+                serializationProvider.serialize(response, json);
+                sendReply(request, originalMessage.createReply(session, json));
+                return;
+            }
+        } catch (JMSException | IOException e) {
             throw new BrokerCommunicationException(e);
         }
+        send(request, encode(response));
     }
 
-    public void respondTo(Request request, Response response) throws BrokerCommunicationException {
+    //~~~ Individual steps, used when receiving and responding run on separate threads
+
+    public StringMessage receiveMessage() throws BrokerCommunicationException {
+        return receiveMessage(true);
+    }
+
+    /**
+     * Only takes a request that has already arrived, for a thread that has responses to send in the meantime.
+     *
+     * @return null when no request is ready yet, an invalid message at the end of the stream
+     */
+    public StringMessage pollMessage() throws BrokerCommunicationException {
+        return receiveMessage(false);
+    }
+
+    private StringMessage receiveMessage(boolean wait) throws BrokerCommunicationException {
         try {
-            String serializedResponse = serializationProvider.serialize(response);
+            while (true) {
+                if (pendingSends != null) {
+                    pendingSends.throwIfFailed();
+                }
+                acknowledgements.beforeReceive();
+                StringMessage message = new StringMessage(
+                        wait ? messageConsumer.receive(receiveTimeoutMillis) : messageConsumer.receiveNoWait());
+                acknowledgements.afterReceive(message);
+
+                //Obs: Nothing has arrived yet, the end of the stream is only decided by a receive that waits
+                if (!wait && !message.isValid()) {
+                    return null;
+                }
+
+                //Obs: A dropped connection looks like an empty queue to a plain TCP consumer
+                if (!message.isValid() && !brokerSession.isHealthy()) {
+                    throw new BrokerCommunicationException(new JMSException("Lost the connection to the broker"));
+                }
+
+                if (!message.isValid() && recoveryState != null && recoveryState.isAwaitingRedeliveries()) {
+                    continue;
+                }
+
+                if (message.isEndOfStream()) {
+                    //Obs: The marker has no response, it is consumed as if it had been answered
+                    acknowledgements.onAnswered(message);
+                    return new StringMessage(null);
+                }
+
+                if (message.isValid() && recoveryState != null && recoveryState.isAlreadyAnswered(message)) {
+                    LoggerFactory.getLogger(RemoteBroker.class)
+                            .debug("Acknowledging redelivered request {} without responding again", message.getMessageId());
+                    acknowledgements.onAnswered(message);
+                    continue;
+                }
+                return message;
+            }
+        } catch (JMSException e) {
+            throw new BrokerCommunicationException(e);
+        }
+    }
+
+    /**
+     * @return the requests held by the message, several for a batch message and none at the end of the stream
+     */
+    public List<Request> decode(StringMessage messageText) throws BrokerCommunicationException {
+        long start = System.nanoTime();
+        List<Request> requests;
+        try {
+            Optional<List<Request>> batch = serializationProvider.deserializeBatch(messageText);
+            if (batch.isPresent()) {
+                responseBatches.expect(messageText, batch.get().size());
+                requests = batch.get();
+            } else {
+                requests = serializationProvider.deserialize(messageText).map(List::of).orElse(List.of());
+            }
+        } catch (DeserializationException e) {
+            throw new BrokerCommunicationException(e);
+        }
+        long decodeNanos = System.nanoTime() - start;
+        for (Request request : requests) {
+            request.getTimings().setDecodeNanos(decodeNanos);
+        }
+        return requests;
+    }
+
+    /**
+     * True when a batch of acknowledgements is due and the requests in flight should be answered
+     * before receiving new ones.
+     */
+    public boolean mustDrainBeforeReceiving() {
+        //Obs: The rest of a batch has already been received, it has to be handed out for the batch to be answered
+        return unpackedRequests.isEmpty() && acknowledgements.mustDrainBeforeReceiving();
+    }
+
+    /**
+     * Used when receiving runs on a separate thread, blocks until the requests in flight have been acknowledged.
+     */
+    public void awaitDrained() throws InterruptedException, BrokerCommunicationException {
+        acknowledgements.awaitDrained();
+        if (pendingSends != null) {
+            try {
+                pendingSends.throwIfFailed();
+            } catch (JMSException e) {
+                throw new BrokerCommunicationException(e);
+            }
+        }
+    }
 
-            TextMessage txtMessage = session.createTextMessage();
-            txtMessage.setText(serializedResponse);
-            messageProducer.send(txtMessage);
+    public String encode(Response response) {
+        return serializationProvider.serialize(response);
+    }
+
+    public void send(Request request, String serializedResponse) throws BrokerCommunicationException {
+        StringMessage originalMessage = request.getOriginalMessage();
+        if (responseBatches.isBatch(originalMessage)) {
+            //Design: A batch is answered with one message and acknowledged once, when its last response is ready
+            List<String> batchResponses = responseBatches.add(originalMessage, serializedResponse);
+            if (batchResponses == null) {
+                return;
+            }
+            serializedResponse = serializationProvider.serializeBatch(batchResponses);
+        }
 
-            request.getOriginalMessage().acknowledge();
+        try {
+            //Obs: The response is sent in the wire format of the request
+            sendReply(request, originalMessage.createReply(session, serializedResponse));
         } catch (JMSException e) {
             throw new BrokerCommunicationException(e);
         }
     }
 
+    private void sendReply(Request request, Message reply) throws BrokerCommunicationException {
+        try {
+            if (pendingSends != null) {
+                //Design: The request is only acknowledged once the broker has confirmed its response
+                pendingSends.send((ActiveMQMessageProducer) messageProducer, reply, () -> onSent(request));
+                return;
+            }
+            messageProducer.send(reply);
+            onSent(request);
+        } catch (JMSException e) {
+            throw new BrokerCommunicationException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BrokerCommunicationException(e);
+        }
+    }
+
+    private static boolean isJsonBytes(StringMessage message) throws JMSException {
+        return message.getBytes() != null && message.getWireFormat() == WireFormat.JSON;
+    }
+
+    private void onSent(Request request) throws JMSException {
+        //Obs: Transacted responses are rolled back together with the request, so they have to be answered again
+        if (recoveryState != null && !Acknowledgements.isTransacted(acknowledgeStrategy)) {
+            recoveryState.rememberAnswered(request.getOriginalMessage());
+        }
+        acknowledgements.onAnswered(request.getOriginalMessage());
+    }
+
     @Override
     public void close() throws Exception {
         LoggerFactory.getLogger(RemoteBroker.class).debug("Stopping the connection to the broker");
-        session.close();
-        connection.close();
+        //Obs: The requests answered are acknowledged, the ones left unanswered get redelivered
+        if (pendingSends != null) {
+            awaitPendingSends();
+        }
+        boolean complete;
+        try {
+            complete = acknowledgements.flushAnswered();
+        } catch (JMSException e) {
+            LoggerFactory.getLogger(RemoteBroker.class).warn("Could not acknowledge the last batch", e);
+            complete = false;
+        }
+
+        if (!complete && recoveryState != null) {
+            recoveryState.expectRedeliveries(acknowledgements.getUnacknowledgedCount());
+        }
+        try {
+            messageConsumer.close();
+        } finally {
+            releaseSession(complete);
+        }
+    }
+
+    private void awaitPendingSends() {
+        try {
+            if (!pendingSends.awaitConfirmed(CONFIRMED_SEND_TIMEOUT_MILLIS)) {
+                LoggerFactory.getLogger(RemoteBroker.class).warn("Some responses have not been confirmed by the broker");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void releaseSession(boolean reusable) throws JMSException {
+        if (connectionPool != null) {
+            connectionPool.release(brokerSession, brokerURL,
+                    config.getRequestQueueName(), config.getResponseQueueName(), acknowledgeStrategy,
+                    reusable);
+        } else {
+            try {
+                brokerSession.close();
+            } finally {
+                brokerSession.getConnection().close();
+            }
+        }
     }
 }
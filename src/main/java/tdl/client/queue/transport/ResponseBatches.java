@@ -0,0 +1,50 @@
+package tdl.client.queue.transport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the responses to the requests of a batch message until the last one is ready,
+ * so the whole batch is answered with a single message and acknowledged once.
+ *
+ * The responses are added in request order, every processor already sends them in that order.
+ * A batch that is never completed, after a fatal error, is neither answered nor acknowledged and gets redelivered.
+ */
+class ResponseBatches {
+    private final Map<StringMessage, Batch> openBatches = new ConcurrentHashMap<>();
+
+    void expect(StringMessage message, int size) {
+        openBatches.put(message, new Batch(size));
+    }
+
+    boolean isBatch(StringMessage message) {
+        return openBatches.containsKey(message);
+    }
+
+    /**
+     * @return every response of the batch once the last one has been added, null while some are missing
+     */
+    List<String> add(StringMessage message, String serializedResponse) {
+        Batch batch = openBatches.get(message);
+        synchronized (batch) {
+            batch.responses.add(serializedResponse);
+            if (batch.responses.size() < batch.size) {
+                return null;
+            }
+        }
+        openBatches.remove(message);
+        return batch.responses;
+    }
+
+    private static class Batch {
+        private final int size;
+        private final List<String> responses;
+
+        Batch(int size) {
+            this.size = size;
+            this.responses = new ArrayList<>(size);
+        }
+    }
+}
@@ -1,14 +1,35 @@
 package tdl.client.queue.transport;
 
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.activemq.util.ByteSequence;
+import tdl.client.queue.serialization.Utf8Buffer;
+import tdl.client.queue.serialization.WireFormat;
+
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
+import javax.jms.Session;
 import javax.jms.TextMessage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Created by julianghionoiu on 20/06/2015.
  */
 public class StringMessage {
+    /**
+     * Boolean message property used by the server to mark the last message of a stream
+     */
+    public static final String END_OF_STREAM_PROPERTY = "end_of_stream";
+
+    /**
+     * String message property naming the {@link WireFormat} of a bytes message, JSON when it is missing
+     */
+    public static final String CONTENT_TYPE_PROPERTY = "content_type";
+
     private final Message message;
+    private ByteBuffer body;
+    private String decodedBytes;
 
     public StringMessage(Message message) {
         this.message = message;
@@ -18,18 +39,130 @@ public class StringMessage {
         return message != null;
     }
 
+    public boolean isEndOfStream() throws JMSException {
+        return message != null
+                && message.propertyExists(END_OF_STREAM_PROPERTY)
+                && message.getBooleanProperty(END_OF_STREAM_PROPERTY);
+    }
+
+    public String getMessageId() throws JMSException {
+        return message.getJMSMessageID();
+    }
+
+    public boolean isRedelivered() throws JMSException {
+        return message.getJMSRedelivered();
+    }
+
     public String getContent() throws JMSException {
         String messageText = "undecoded";
 
         if (message instanceof TextMessage) {
             TextMessage textMessage = (TextMessage) message;
             messageText = textMessage.getText();
+        } else if (message instanceof BytesMessage) {
+            messageText = getBytesContent();
         }
 
         return messageText;
     }
 
+    public WireFormat getWireFormat() throws JMSException {
+        String contentType = message.getStringProperty(CONTENT_TYPE_PROPERTY);
+        WireFormat wireFormat = WireFormat.forContentType(contentType);
+        if (wireFormat == null) {
+            throw new JMSException("Unsupported content type " + contentType);
+        }
+        return wireFormat;
+    }
+
+    /**
+     * The body of a bytes message, a read only view over the bytes received from the broker when possible.
+     * Null for any other kind of message.
+     */
+    public ByteBuffer getBytes() throws JMSException {
+        if (body == null && message instanceof BytesMessage) {
+            //Obs: A compressed body has to go through the message to be inflated
+            if (message instanceof ActiveMQBytesMessage && !((ActiveMQBytesMessage) message).isCompressed()) {
+                ByteSequence content = ((ActiveMQBytesMessage) message).getContent();
+                body = content != null
+                        ? ByteBuffer.wrap(content.getData(), content.getOffset(), content.getLength()).slice()
+                        : ByteBuffer.allocate(0);
+            } else {
+                BytesMessage bytesMessage = (BytesMessage) message;
+                byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+                bytesMessage.readBytes(bytes);
+                body = ByteBuffer.wrap(bytes);
+            }
+            body = body.asReadOnlyBuffer();
+        }
+        return body;
+    }
+
+    /**
+     * Creates a reply that uses the same kind of message and the same wire format as this message
+     */
+    public Message createReply(Session session, String content) throws JMSException {
+        if (!(message instanceof BytesMessage)) {
+            return session.createTextMessage(content);
+        }
+
+        WireFormat wireFormat = getWireFormat();
+        if (wireFormat == WireFormat.JSON) {
+            Utf8Buffer utf8 = Utf8Buffer.forCurrentThread();
+            utf8.write(content, 0, content.length());
+            return createReply(session, utf8);
+        }
+        BytesMessage reply = session.createBytesMessage();
+        try {
+            reply.writeBytes(wireFormat.fromJson(content));
+        } catch (IOException e) {
+            throw wrap("Could not encode the reply as " + wireFormat, e);
+        }
+        copyContentType(reply, wireFormat);
+        return reply;
+    }
+
+    /**
+     * Creates a bytes reply from JSON that has already been encoded as UTF-8, to a request in the JSON wire format
+     */
+    public Message createReply(Session session, Utf8Buffer json) throws JMSException {
+        BytesMessage reply = session.createBytesMessage();
+        reply.writeBytes(json.array(), 0, json.size());
+        copyContentType(reply, WireFormat.JSON);
+        return reply;
+    }
+
     public void acknowledge() throws JMSException {
         message.acknowledge();
     }
+
+    //~~~ Internals
+
+    private String getBytesContent() throws JMSException {
+        //Obs: The transcoded text is kept, it is read by the batch check and then by the decoder
+        if (decodedBytes == null) {
+            ByteBuffer bytes = getBytes().duplicate();
+            byte[] content = new byte[bytes.remaining()];
+            bytes.get(content);
+            WireFormat wireFormat = getWireFormat();
+            try {
+                decodedBytes = wireFormat.toJson(content);
+            } catch (IOException e) {
+                throw wrap("Could not decode the message as " + wireFormat, e);
+            }
+        }
+        return decodedBytes;
+    }
+
+    private void copyContentType(BytesMessage reply, WireFormat wireFormat) throws JMSException {
+        if (message.propertyExists(CONTENT_TYPE_PROPERTY)) {
+            reply.setStringProperty(CONTENT_TYPE_PROPERTY, wireFormat.getContentType());
+        }
+    }
+
+    private static JMSException wrap(String reason, Exception cause) {
+        JMSException exception = new JMSException(reason + ": " + cause.getMessage());
+        exception.setLinkedException(cause);
+        return exception;
+    }
 }
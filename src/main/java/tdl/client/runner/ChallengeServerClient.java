@@ -14,8 +14,10 @@ class ChallengeServerClient {
     private final String journeyId;
     private final int port;
     private final String acceptHeader;
+    private final HttpClient client;
 
-    ChallengeServerClient(String hostname, int port, String journeyId, boolean useColours) {
+    ChallengeServerClient(String hostname, int port, String journeyId, boolean useColours, HttpClient client) {
+        this.client = client;
         this.hostname = hostname;
         this.port = port;
         this.journeyId = journeyId;
@@ -38,7 +40,6 @@ class ChallengeServerClient {
 
     private String get(String name) throws OtherCommunicationException, ServerErrorException, ClientErrorException {
         try {
-            HttpClient client = HttpClient.newHttpClient();
             String encodedPath = URLEncoder.encode(this.journeyId, StandardCharsets.UTF_8);
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(String.format("http://%s:%d/%s/%s", this.hostname, port, name, encodedPath)))
@@ -60,7 +61,6 @@ class ChallengeServerClient {
     String sendAction(String action) throws
             ClientErrorException, ServerErrorException, OtherCommunicationException {
         try {
-            HttpClient client = HttpClient.newHttpClient();
             String encodedPath = URLEncoder.encode(this.journeyId, StandardCharsets.UTF_8);
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(String.format("http://%s:%d/action/%s/%s", this.hostname, port, action, encodedPath)))
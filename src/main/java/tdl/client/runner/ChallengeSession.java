@@ -3,14 +3,18 @@ package tdl.client.runner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import tdl.client.audit.AuditStream;
+import tdl.client.queue.ExecutionMode;
 import tdl.client.queue.ImplementationRunner;
 
+import java.net.http.HttpClient;
+
 
 public class ChallengeSession {
     private final Logger LOG = LoggerFactory.getLogger(ChallengeSession.class);
     private final ImplementationRunner implementationRunner;
     private ChallengeSessionConfig config;
     private RecordingSystem recordingSystem;
+    private HttpClient httpClient;
     private ActionProvider userInputCallback;
 
     public static ChallengeSession forRunner(ImplementationRunner implementationRunner) {
@@ -34,7 +38,8 @@ public class ChallengeSession {
     //~~~~~~~~ The entry point ~~~~~~~~~
 
     public void start() {
-        recordingSystem = new RecordingSystem(config.getRecordingSystemShouldBeOn());
+        httpClient = newHttpClient(config.getExecutionMode());
+        recordingSystem = new RecordingSystem(config.getRecordingSystemShouldBeOn(), httpClient);
         AuditStream auditStream = config.getAuditStream();
 
         if (!recordingSystem.isRecordingSystemOk()) {
@@ -51,7 +56,8 @@ public class ChallengeSession {
                 config.getHostname(),
                 config.getPort(),
                 config.getJourneyId(),
-                config.getUseColours());
+                config.getUseColours(),
+                httpClient);
 
         try {
             String journeyProgress = challengeServerClient.getJourneyProgress();
@@ -66,6 +72,7 @@ public class ChallengeSession {
                 return;
             }
 
+            auditStream.flush();
 
             String userInput = this.userInputCallback.get();
             auditStream.println("Selected action is: " + userInput);
@@ -100,4 +107,18 @@ public class ChallengeSession {
         }
     }
 
+    /**
+     * One client for the whole session, its exchanges are carried by the threads of the execution mode.
+     *
+     * The calls stay blocking for the session, which runs on the thread of the caller.
+     */
+    private static HttpClient newHttpClient(ExecutionMode executionMode) {
+        HttpClient.Builder builder = HttpClient.newBuilder();
+        if (executionMode.usesVirtualThreads()) {
+            //Obs: A thread per task executor, the number of platform threads is ignored
+            builder.executor(executionMode.newExecutor("tdl-http-", 1));
+        }
+        return builder.build();
+    }
+
 }
@@ -2,6 +2,7 @@ package tdl.client.runner;
 
 import tdl.client.audit.AuditStream;
 import tdl.client.audit.StdoutAuditStream;
+import tdl.client.queue.ExecutionMode;
 
 public class ChallengeSessionConfig {
     private AuditStream auditStream;
@@ -10,6 +11,7 @@ public class ChallengeSessionConfig {
     private String hostname;
     private int port;
     private boolean useColours;
+    private ExecutionMode executionMode;
 
 
     public static ChallengeSessionConfig forJourneyId(String journeyId) {
@@ -21,6 +23,7 @@ public class ChallengeSessionConfig {
         this.useColours = true;
         this.recordingSystemShouldBeOn = true;
         this.auditStream = new StdoutAuditStream();
+        this.executionMode = ExecutionMode.PLATFORM_THREADS;
         this.journeyId = journeyId;
     }
 
@@ -49,6 +52,14 @@ public class ChallengeSessionConfig {
         return this;
     }
 
+    /**
+     * The threads that carry the HTTP exchanges with the challenge server and the recording system
+     */
+    public ChallengeSessionConfig withExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        return this;
+    }
+
     boolean getRecordingSystemShouldBeOn() {
         return recordingSystemShouldBeOn;
     }
@@ -72,4 +83,8 @@ public class ChallengeSessionConfig {
     boolean getUseColours() {
         return useColours;
     }
+
+    ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
 }
@@ -27,9 +27,11 @@ class RecordingSystem implements RoundChangesListener {
 
     private static final String RECORDING_SYSTEM_ENDPOINT = "http://localhost:41375";
     private final boolean recordingRequired;
+    private final HttpClient client;
 
-    RecordingSystem(boolean recordingRequired) {
+    RecordingSystem(boolean recordingRequired, HttpClient client) {
         this.recordingRequired = recordingRequired;
+        this.client = client;
     }
 
     private boolean isRecordingRequired() {
@@ -41,9 +43,8 @@ class RecordingSystem implements RoundChangesListener {
         return isRecordingRequired() ? isRunning() : true;
     }
 
-    private static boolean isRunning() {
+    private boolean isRunning() {
         try {
-            HttpClient client = HttpClient.newHttpClient();
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(RECORDING_SYSTEM_ENDPOINT + "/status"))
                     .GET()
@@ -75,7 +76,6 @@ class RecordingSystem implements RoundChangesListener {
         }
 
         try {
-            HttpClient client = HttpClient.newHttpClient();
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(RECORDING_SYSTEM_ENDPOINT + endpoint))
                     .POST(HttpRequest.BodyPublishers.ofString(body))
@@ -24,4 +24,8 @@ public class SingletonTestBroker {
     public RemoteJmxQueue addQueue(String queueName) throws Exception {
         return BROKER_INSTANCE.addQueue(queueName);
     }
+
+    public void dropClientConnections() throws Exception {
+        BROKER_INSTANCE.dropClientConnections();
+    }
 }
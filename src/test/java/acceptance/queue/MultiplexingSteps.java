@@ -0,0 +1,97 @@
+package acceptance.queue;
+
+import acceptance.SingletonTestBroker;
+import io.cucumber.java.en.*;
+import tdl.client.audit.StdoutAuditStream;
+import tdl.client.queue.ImplementationRunnerConfig;
+import tdl.client.queue.MultiplexingImplementationRunner;
+import tdl.client.queue.abstractions.UserImplementation;
+import utils.jmx.broker.RemoteJmxQueue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * One multiplexing runner serving the request and response queues of several users
+ */
+public class MultiplexingSteps {
+    private final SingletonTestBroker broker;
+
+    // Test broker location
+    private static final String HOSTNAME = "localhost";
+    private static final int PORT = 21616;
+
+    // Variables set by the background tasks
+    private final Map<String, RemoteJmxQueue> requestQueues;
+    private final Map<String, RemoteJmxQueue> responseQueues;
+
+    public MultiplexingSteps(SingletonTestBroker broker) {
+        this.broker = broker;
+        this.requestQueues = new LinkedHashMap<>();
+        this.responseQueues = new LinkedHashMap<>();
+    }
+
+    //~~~~~ Setup
+
+    @Given("^I start with a clean broker having the queues of the users (.*)$")
+    public void broker_setup(String users) throws Throwable {
+        for (String user : users.split(",\\s*")) {
+            RemoteJmxQueue requestQueue = broker.addQueue(user + "-req");
+            requestQueue.purge();
+            requestQueues.put(user, requestQueue);
+
+            RemoteJmxQueue responseQueue = broker.addQueue(user + "-resp");
+            responseQueue.purge();
+            responseQueues.put(user, responseQueue);
+        }
+    }
+
+    @Given("^user (\\w+) sends the following requests:$")
+    public void send_requests(String user, List<QueueSteps.RequestRepresentation> requests) throws Throwable {
+        for (QueueSteps.RequestRepresentation request : requests) {
+            requestQueues.get(user).sendTextMessage(request.payload());
+        }
+    }
+
+    //~~~~~ Run
+
+    @When("^I go live with one runner for every user, with the following processing rules:$")
+    public void go_live(List<QueueSteps.ProcessingRuleRepresentation> listOfRules) {
+        Map<String, UserImplementation> solutions = new LinkedHashMap<>();
+        listOfRules.forEach(rule -> solutions.put(rule.method(), QueueSteps.asImplementation(rule.call())));
+
+        ImplementationRunnerConfig config = new ImplementationRunnerConfig().setHostname(HOSTNAME)
+                .setPort(PORT)
+                .setWorkerThreads(2)
+                .setAuditStream(new StdoutAuditStream());
+        MultiplexingImplementationRunner.Builder builder = new MultiplexingImplementationRunner.Builder()
+                .setConfig(config);
+        for (String user : requestQueues.keySet()) {
+            builder.register(requestQueues.get(user).getName(), responseQueues.get(user).getName(), solutions);
+        }
+        builder.create().run();
+    }
+
+    //~~~~~ Assertions
+
+    @Then("^user (\\w+) should have (\\d+) requests? left on the queue$")
+    public void requests_left(String user, int requestCount) throws Throwable {
+        assertThat("Wrong number of requests left for " + user, requestQueues.get(user).getSize(),
+                equalTo((long) requestCount));
+    }
+
+    @And("^user (\\w+) should receive the following responses:$")
+    public void responses_received(String user, List<QueueSteps.ResponseRepresentation> expectedResponses)
+            throws Throwable {
+        List<String> expectedContents = expectedResponses.stream()
+                .map(QueueSteps.ResponseRepresentation::payload)
+                .collect(Collectors.toList());
+        assertThat("The responses for " + user + " are not correct", responseQueues.get(user).getMessageContents(),
+                equalTo(expectedContents));
+    }
+}
@@ -7,7 +7,11 @@ import io.cucumber.java.en.*;
 import tdl.client.audit.StdoutAuditStream;
 import tdl.client.queue.ImplementationRunnerConfig;
 import tdl.client.queue.QueueBasedImplementationRunner;
+import tdl.client.queue.ReconnectPolicy;
 import tdl.client.queue.abstractions.UserImplementation;
+import tdl.client.queue.serialization.WireFormat;
+import tdl.client.queue.transport.AcknowledgeStrategy;
+import utils.jms.JmsQueue;
 import utils.jmx.broker.RemoteJmxQueue;
 import utils.logging.LogAuditStream;
 
@@ -30,6 +34,9 @@ public class QueueSteps {
     // Variables set by the background tasks
     private RemoteJmxQueue requestQueue;
     private RemoteJmxQueue responseQueue;
+    private JmsQueue requestBytesQueue;
+    private JmsQueue responseBytesQueue;
+    private ImplementationRunnerConfig config;
     private QueueBasedImplementationRunner.Builder queueBasedImplementationRunnerBuilder;
 
     //Testing utils
@@ -55,13 +62,16 @@ public class QueueSteps {
 
         responseQueue = broker.addQueue("some-user-resp");
         responseQueue.purge();
+
+        requestBytesQueue = new JmsQueue(HOSTNAME, PORT, requestQueue.getName());
+        responseBytesQueue = new JmsQueue(HOSTNAME, PORT, responseQueue.getName());
     }
 
     @And("^a client that connects to the queues$")
     public void client_setup() {
         logAuditStream.clearLog();
 
-        ImplementationRunnerConfig config = new ImplementationRunnerConfig().setHostname(HOSTNAME)
+        config = new ImplementationRunnerConfig().setHostname(HOSTNAME)
                 .setPort(PORT)
                 .setRequestQueueName(requestQueue.getName())
                 .setResponseQueueName(responseQueue.getName())
@@ -70,6 +80,41 @@ public class QueueSteps {
                 .setConfig(config);
     }
 
+    @And("^the client processes the requests in a pipeline$")
+    public void client_pipelined() {
+        config.setPipelined(true);
+    }
+
+    @And("^the client processes the requests with (\\d+) worker threads$")
+    public void client_parallel(int workerThreads) {
+        config.setWorkerThreads(workerThreads);
+    }
+
+    @And("^the client acknowledges the requests in batches of (\\d+)$")
+    public void client_batched_acknowledge(int maxMessages) {
+        config.setAcknowledgeStrategy(AcknowledgeStrategy.batched(maxMessages, 10000));
+    }
+
+    @And("^the client acknowledges the requests in transactions of (\\d+)$")
+    public void client_transacted_acknowledge(int maxMessages) {
+        config.setAcknowledgeStrategy(AcknowledgeStrategy.transacted(maxMessages, 10000));
+    }
+
+    @And("^the client waits for the end of the stream$")
+    public void client_waits_for_end_of_stream() {
+        config.setWaitForEndOfStream(true);
+    }
+
+    @And("^the client sends the responses asynchronously with a window of (\\d+)$")
+    public void client_async_send(int asyncSendWindow) {
+        config.setAsyncSendWindow(asyncSendWindow);
+    }
+
+    @And("^the client reconnects up to (\\d+) times$")
+    public void reconnect_when_connection_drops(int maxAttempts) {
+        config.setReconnectPolicy(ReconnectPolicy.exponentialBackoff(maxAttempts, 100, 1000));
+    }
+
     @Given("^the broker is not available$")
     public void client_with_wrong_broker() {
         logAuditStream.clearLog();
@@ -114,6 +159,47 @@ public class QueueSteps {
         initialRequestCount = requests.size() * number;
     }
 
+    @Given("^I receive the following (JSON|CBOR) bytes requests:$")
+    public void initialize_request_queue_with_bytes(String wireFormat, List<RequestRepresentation> requests)
+            throws Throwable {
+        for (RequestRepresentation request : requests) {
+            requestBytesQueue.sendBytesMessage(request.payload, WireFormat.valueOf(wireFormat));
+        }
+        initialRequestCount = requests.size();
+    }
+
+    @Given("^I receive the end of the stream$")
+    public void send_end_of_stream() throws Throwable {
+        requestQueue.sendEndOfStream();
+    }
+
+    @Given("^I receive the end of the stream after (\\d+)ms$")
+    public void send_end_of_stream_later(int delayMillis) {
+        Thread sender = new Thread(() -> {
+            try {
+                Thread.sleep(delayMillis);
+                requestQueue.sendEndOfStream();
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not send the end of the stream", e);
+            }
+        }, "end-of-stream-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @Given("^the broker drops the client connection after (\\d+)ms$")
+    public void drop_connection_later(int delayMillis) {
+        Thread dropper = new Thread(() -> {
+            try {
+                Thread.sleep(delayMillis);
+                broker.dropClientConnections();
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not drop the client connection", e);
+            }
+        }, "connection-dropper");
+        dropper.setDaemon(true);
+        dropper.start();
+    }
 
     //~~~~~ Implementations
 
@@ -145,6 +231,14 @@ public class QueueSteps {
             return IntStream.range(start_incl, end_excl).boxed().collect(Collectors.toList());
         });
         put("some logic", params -> "ok");
+        put("work for 100ms", params -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            return "OK";
+        });
         put("work for 600ms", params -> {
             try {
                 Thread.sleep(600);
@@ -156,7 +250,7 @@ public class QueueSteps {
     }};
 
 
-    private static UserImplementation asImplementation(String call) {
+    static UserImplementation asImplementation(String call) {
         if (USER_IMPLEMENTATIONS.containsKey(call)) {
             return USER_IMPLEMENTATIONS.get(call);
         } else {
@@ -221,6 +315,16 @@ public class QueueSteps {
         assertThat("The responses are not correct",responseQueue.getMessageContents(), equalTo(expectedContents));
     }
 
+    @And("^the client should publish the following bytes responses:$")
+    public void response_queue_contains_expected_bytes(List<ResponseRepresentation> expectedResponses)
+            throws Throwable {
+        List<String> expectedContents = expectedResponses.stream()
+                .map(responseRepresentation -> responseRepresentation.payload)
+                .collect(Collectors.toList());
+        assertThat("The responses are not correct", responseBytesQueue.getBytesMessageContents(),
+                equalTo(expectedContents));
+    }
+
     record OutputRepresentation(String output) {}
 
     @DataTableType
@@ -245,6 +349,12 @@ public class QueueSteps {
         }
     }
 
+    @Then("^the client should leave (\\d+) requests? on the queue$")
+    public void request_queue_size(int expectedSize) throws Throwable {
+        assertThat("Wrong number of requests left on the queue", requestQueue.getSize(),
+                equalTo(asLong(expectedSize)));
+    }
+
     @Then("^the client should not consume any request$")
     public void request_queue_unchanged() throws Throwable {
         assertThat("The request queue has different size. The message has been consumed.",
@@ -267,6 +377,11 @@ public class QueueSteps {
         assertThat(processingTimeMillis, lessThan(threshold));
     }
 
+    @And("^the processing time should be higher than (\\d+)ms$")
+    public void processingTimeShouldBeHigherThanMs(long threshold) {
+        assertThat(processingTimeMillis, greaterThan(threshold));
+    }
+
     //~~~ Utils
 
     private static Long asLong(Integer value) {
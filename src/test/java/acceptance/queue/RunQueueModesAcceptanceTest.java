@@ -0,0 +1,18 @@
+package acceptance.queue;
+
+import org.junit.platform.suite.api.ConfigurationParameter;
+import org.junit.platform.suite.api.IncludeEngines;
+import org.junit.platform.suite.api.SelectClasspathResource;
+import org.junit.platform.suite.api.Suite;
+
+import static io.cucumber.junit.platform.engine.Constants.GLUE_PROPERTY_NAME;
+
+/**
+ * The processing modes of the queue runner, kept next to the shared client spec
+ */
+@Suite
+@IncludeEngines("cucumber")
+@SelectClasspathResource("queue_modes")
+@ConfigurationParameter(key = GLUE_PROPERTY_NAME, value = "acceptance.queue")
+public class RunQueueModesAcceptanceTest {
+}
@@ -0,0 +1,209 @@
+package tdl.client.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class AsyncAuditStreamTest {
+    private static final long WAIT_MILLIS = 5000;
+
+    //~~~ Overflow policies
+
+    @Test
+    public void block_waits_for_room_and_never_drops_a_line() throws Exception {
+        GatedStream delegate = new GatedStream();
+        AsyncAuditStream stream = fillWhileTheWriterIsHeld(delegate, AsyncAuditStream.OverflowPolicy.BLOCK);
+
+        Thread printer = new Thread(() -> stream.println("d"));
+        printer.start();
+        awaitBlocked(printer);
+        assertThat(printer.isAlive(), is(true));
+
+        delegate.open();
+        printer.join(WAIT_MILLIS);
+        stream.close();
+
+        assertThat(printer.isAlive(), is(false));
+        assertThat(delegate.lines(), contains("a", "b", "c", "d"));
+        assertThat(stream.getDroppedLines(), equalTo(0L));
+    }
+
+    @Test
+    public void drop_newest_discards_the_lines_that_find_the_buffer_full() throws Exception {
+        GatedStream delegate = new GatedStream();
+        AsyncAuditStream stream = fillWhileTheWriterIsHeld(delegate, AsyncAuditStream.OverflowPolicy.DROP_NEWEST);
+
+        stream.println("d");
+        stream.println("e");
+        delegate.open();
+        stream.close();
+
+        assertThat(delegate.lines(), contains("a", "b", "c"));
+        assertThat(stream.getDroppedLines(), equalTo(2L));
+    }
+
+    @Test
+    public void drop_oldest_overwrites_the_pending_lines() throws Exception {
+        GatedStream delegate = new GatedStream();
+        AsyncAuditStream stream = fillWhileTheWriterIsHeld(delegate, AsyncAuditStream.OverflowPolicy.DROP_OLDEST);
+
+        stream.println("d");
+        stream.println("e");
+        delegate.open();
+        stream.close();
+
+        assertThat(delegate.lines(), contains("a", "d", "e"));
+        assertThat(stream.getDroppedLines(), equalTo(2L));
+    }
+
+    //~~~ Flush and close
+
+    @Test
+    public void flush_waits_for_the_pending_lines_to_be_written() throws Exception {
+        GatedStream delegate = new GatedStream();
+        AsyncAuditStream stream = fillWhileTheWriterIsHeld(delegate, AsyncAuditStream.OverflowPolicy.BLOCK);
+        List<String> linesAfterFlush = new ArrayList<>();
+
+        Thread flusher = new Thread(() -> {
+            stream.flush();
+            linesAfterFlush.addAll(delegate.lines());
+        });
+        flusher.start();
+        awaitBlocked(flusher);
+        assertThat(flusher.isAlive(), is(true));
+
+        delegate.open();
+        flusher.join(WAIT_MILLIS);
+
+        assertThat(linesAfterFlush, contains("a", "b", "c"));
+        assertThat(delegate.flushes(), greaterThanOrEqualTo(1));
+        stream.close();
+    }
+
+    @Test
+    public void close_writes_every_pending_line() {
+        GatedStream delegate = new GatedStream();
+        delegate.open();
+        delegate.slowDown(5);
+        AsyncAuditStream stream = new AsyncAuditStream(delegate, 64, AsyncAuditStream.OverflowPolicy.BLOCK);
+
+        for (int i = 0; i < 50; i++) {
+            stream.println("line " + i);
+        }
+        stream.close();
+
+        assertThat(delegate.lines().size(), equalTo(50));
+        assertThat(delegate.lines().get(49), equalTo("line 49"));
+        assertThat(delegate.flushes(), greaterThanOrEqualTo(1));
+    }
+
+    @Test
+    public void a_line_printed_after_close_comes_after_the_pending_lines() throws Exception {
+        GatedStream delegate = new GatedStream();
+        AsyncAuditStream stream = fillWhileTheWriterIsHeld(delegate, AsyncAuditStream.OverflowPolicy.BLOCK);
+
+        Thread closer = new Thread(stream::close);
+        closer.start();
+        awaitBlocked(closer);
+        Thread opener = new Thread(() -> {
+            sleep(100);
+            delegate.open();
+        });
+        opener.start();
+        stream.println("late");
+        closer.join(WAIT_MILLIS);
+
+        assertThat(delegate.lines(), contains("a", "b", "c", "late"));
+
+        stream.println("later");
+        assertThat(delegate.lines(), hasItem("later"));
+    }
+
+    //~~~ Utils
+
+    /**
+     * Holds the background thread on the first line, then fills the two slots of the ring buffer
+     */
+    private static AsyncAuditStream fillWhileTheWriterIsHeld(GatedStream delegate,
+                                                             AsyncAuditStream.OverflowPolicy policy)
+            throws InterruptedException {
+        AsyncAuditStream stream = new AsyncAuditStream(delegate, 2, policy);
+        stream.println("a");
+        assertThat(delegate.awaitFirstLine(), is(true));
+        stream.println("b");
+        stream.println("c");
+        return stream;
+    }
+
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records the lines, the writing of each one waits until the gate is open
+     */
+    private static final class GatedStream implements AuditStream {
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final CountDownLatch firstLine = new CountDownLatch(1);
+        private final List<String> lines = new ArrayList<>();
+        private volatile long delayMillis;
+        private int flushes;
+
+        @Override
+        public void println(String s) {
+            firstLine.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sleep(delayMillis);
+            synchronized (this) {
+                lines.add(s);
+            }
+        }
+
+        @Override
+        public synchronized void flush() {
+            flushes++;
+        }
+
+        void open() {
+            gate.countDown();
+        }
+
+        void slowDown(long millis) {
+            delayMillis = millis;
+        }
+
+        boolean awaitFirstLine() throws InterruptedException {
+            return firstLine.await(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        synchronized List<String> lines() {
+            return new ArrayList<>(lines);
+        }
+
+        synchronized int flushes() {
+            return flushes;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package tdl.client.audit;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static utils.queue.TestRequests.request;
+
+public class PresentationUtilsTest {
+
+    //~~~ Same text as the unbounded rendering, within the limits
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @ValueSource(strings = {
+            "[]",
+            "[1,2]",
+            "[\"a\",\"b\"]",
+            "[[1,2,3]]",
+            "[[\"a,b\",\"c\"]]",
+            "[[[1,2],[3,4]]]",
+            "[{\"a\":1,\"b\":[1,2]}]",
+            "[null,true,false]",
+            "[1.5,-0.0,1e10,12345678901234567890]",
+            "[\"quote \\\" backslash \\\\ tab \\t\"]",
+            "[\"line 1\\nline 2\"]",
+            "[\"line 1\\nline 2\\nline 3\"]",
+            "[\"ends with lines\\n\\n\"]",
+            "[\"\\u0001 control \\u2028 separator\"]",
+            "[\"<html> & 'quotes' =\"]",
+            "[[\"line 1\\nline 2\"]]",
+            "[{\"text\":\"a\\nb\"}]",
+    })
+    public void renders_a_request_as_it_always_did(String paramsJson) {
+        List<JsonElement> params = params(paramsJson);
+
+        assertThat(PresentationUtils.toDisplayableRequest(params), equalTo(legacyRequest(params)));
+    }
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @ValueSource(strings = {
+            "[]",
+            "[1,2,3,4,5]",
+            "[[1,2,3,4,5],[]]",
+            "[[[1,2,3],[4,5,6],[7,8,9]],\"after\"]",
+            "[{\"a\":1,\"b\":[1,2,3,4],\"c\":{\"d\":\"e\"}},4]",
+            "[{}]",
+            "[\"abcdefghijklmnopqrstuvwxyz\",[\"abcdefghijklmnop\",\"x\"],5]",
+            "[\"line 1\\nline 2\\nline 3\",[\"a\\nb\"]]",
+            "[null,true,false,1.50,-0.0,1e10]",
+    })
+    public void streams_the_same_text_as_the_tree(String paramsJson) throws IOException {
+        for (DisplayLimits limits : new DisplayLimits[]{DisplayLimits.DEFAULT, DisplayLimits.of(5, 2),
+                DisplayLimits.of(12, 3), DisplayLimits.of(1, 1), DisplayLimits.of(40, 1)}) {
+            assertThat("width " + limits.getMaxWidth() + ", elements " + limits.getMaxElements(),
+                    renderStreamed(paramsJson, limits), equalTo(render(params(paramsJson), limits)));
+        }
+    }
+
+    @Test
+    public void audits_a_request_from_the_text_of_its_params() {
+        String paramsJson = "[[1,2,3],\"a\\nb\",{\"k\":[true,null]},12.50]";
+
+        assertThat(request("X1", "m", paramsJson).getAuditText(),
+                equalTo("id = X1, req = m(" + PresentationUtils.toDisplayableRequest(params(paramsJson)) + ")"));
+        assertThat(request("X2", "m", "[]").getAuditText(), equalTo("id = X2, req = m()"));
+    }
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @ValueSource(strings = {
+            "1",
+            "\"text\"",
+            "\"line 1\\nline 2\"",
+            "[1,2,3]",
+            "{\"a\":[1,2]}",
+            "[\"a\\nb\",\"c\"]",
+    })
+    public void renders_a_json_response_as_it_always_did(String resultJson) {
+        JsonElement result = JsonParser.parseString(resultJson);
+
+        assertThat(PresentationUtils.toDisplayableResponse(result), equalTo(legacyResponse(result)));
+    }
+
+    @Test
+    public void renders_a_java_response_as_its_to_string() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("a", 1);
+        map.put("b", List.of(1, 2));
+        List<Object> selfReferencing = new ArrayList<>();
+        selfReferencing.add(1);
+        selfReferencing.add(selfReferencing);
+
+        for (Object result : new Object[]{42, 1.5, "plain text", "a\\nb", List.of(1, "x", List.of(2, 3)),
+                Arrays.asList(1, null), map, new int[]{1, 2}, selfReferencing}) {
+            assertThat(PresentationUtils.toDisplayableResponse(result), equalTo(legacyResponse(result)));
+        }
+        assertThat(PresentationUtils.toDisplayableResponse(null), equalTo("null"));
+    }
+
+    //~~~ Limits
+
+    @Test
+    public void cuts_an_array_after_the_maximum_number_of_elements() {
+        List<JsonElement> params = params("[[1,2,3,4,5]]");
+
+        assertThat(render(params, DisplayLimits.of(100, 3)), equalTo("[1, 2, 3, ... 2 more]"));
+    }
+
+    @Test
+    public void cuts_the_params_after_the_maximum_number_of_elements() {
+        List<JsonElement> params = params("[1,2,3,4,5]");
+
+        assertThat(render(params, DisplayLimits.of(100, 2)), equalTo("1, 2, ... 3 more"));
+    }
+
+    @Test
+    public void cuts_an_object_after_the_maximum_number_of_fields() {
+        List<JsonElement> params = params("[{\"a\":1,\"b\":2,\"c\":3}]");
+
+        assertThat(render(params, DisplayLimits.of(100, 2)), equalTo("{\"a\":1,\"b\":2,... 1 more}"));
+    }
+
+    @Test
+    public void cuts_a_value_at_the_maximum_width() {
+        List<JsonElement> params = params("[\"abcdefghijkl\",[1,2,3,4,5,6,7,8]]");
+
+        assertThat(render(params, DisplayLimits.of(6, 100)), equalTo("\"abcde..., [1, 2,..."));
+    }
+
+    @Test
+    public void cuts_a_java_response_at_its_limits() {
+        List<Integer> values = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+
+        assertThat(renderResponse(values, DisplayLimits.of(100, 3)), equalTo("[0, 1, 2, ... 7 more]"));
+        assertThat(renderResponse("abcdefghijkl", DisplayLimits.of(5, 100)), equalTo("abcde..."));
+    }
+
+    @Test
+    public void renders_a_large_array_within_the_default_limits() {
+        String large = IntStream.range(0, 1_000_000).mapToObj(String::valueOf)
+                .collect(Collectors.joining(",", "[[", "]]"));
+
+        String text = PresentationUtils.toDisplayableRequest(params(large));
+
+        assertThat(text, endsWith(", ... 999900 more]"));
+        assertThat(text.length(), lessThan(DisplayLimits.DEFAULT.getMaxWidth() + 50));
+    }
+
+    @Test
+    public void appends_after_the_text_already_in_the_line() {
+        StringBuilder line = new StringBuilder("id = X1, req = m(");
+
+        PresentationUtils.appendDisplayableRequest(line, params("[\"abcdefgh\"]"), DisplayLimits.of(4, 10));
+
+        assertThat(line.toString(), equalTo("id = X1, req = m(\"abc..."));
+    }
+
+    @Test
+    public void refuses_limits_below_one() {
+        assertThrows(IllegalArgumentException.class, () -> DisplayLimits.of(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> DisplayLimits.of(10, 0));
+    }
+
+    //~~~ Utils
+
+    private static List<JsonElement> params(String json) {
+        List<JsonElement> params = new ArrayList<>();
+        JsonParser.parseString(json).getAsJsonArray().forEach(params::add);
+        return params;
+    }
+
+    private static String render(List<JsonElement> params, DisplayLimits limits) {
+        StringBuilder line = new StringBuilder();
+        PresentationUtils.appendDisplayableRequest(line, params, limits);
+        return line.toString();
+    }
+
+    private static String renderStreamed(String paramsJson, DisplayLimits limits) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(paramsJson));
+        reader.beginArray();
+        StringBuilder line = new StringBuilder();
+        PresentationUtils.appendDisplayableRequest(line, reader, limits);
+        return line.toString();
+    }
+
+    private static String renderResponse(Object result, DisplayLimits limits) {
+        StringBuilder line = new StringBuilder();
+        PresentationUtils.appendDisplayableResponse(line, result, limits);
+        return line.toString();
+    }
+
+    //~~~ The rendering before the limits, for reference
+
+    private static String legacyRequest(List<JsonElement> items) {
+        StringBuilder sb = new StringBuilder();
+        for (JsonElement item : items) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            String representation = item.toString();
+            if (item.isJsonArray()) {
+                representation = representation.replaceAll(",", ", ");
+            } else if (representation.contains("\\n")) {
+                representation = suppressExtraLines(representation);
+            }
+            sb.append(representation);
+        }
+        return sb.toString();
+    }
+
+    private static String legacyResponse(Object item) {
+        String representation = item instanceof int[] ? item.toString() : String.valueOf(item);
+        return representation.contains("\\n") ? suppressExtraLines(representation) : representation;
+    }
+
+    private static String suppressExtraLines(String representation) {
+        String[] parts = representation.split("\\\\n");
+        int suppressedParts = parts.length - 1;
+        return parts[0] + " .. ( " + suppressedParts + " more line" + (suppressedParts > 1 ? "s" : "") + " )\"";
+    }
+}
@@ -0,0 +1,115 @@
+package tdl.client.queue;
+
+import org.junit.jupiter.api.Test;
+import tdl.client.audit.AuditLevel;
+import tdl.client.audit.Auditable;
+import tdl.client.audit.DisplayLimits;
+import tdl.client.queue.abstractions.response.FatalErrorResponse;
+import tdl.client.queue.abstractions.response.ValidResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static utils.queue.TestRequests.request;
+
+public class AuditLevelTest {
+    private final List<String> lines = new ArrayList<>();
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @Test
+    public void off_writes_nothing_and_renders_nothing() {
+        runWith(AuditLevel.OFF);
+
+        assertThat(lines, empty());
+        assertThat(renders.get(), equalTo(0));
+    }
+
+    @Test
+    public void errors_writes_only_the_failed_requests_in_full() {
+        runWith(AuditLevel.ERRORS);
+
+        assertThat(lines, contains(
+                "Starting client",
+                "id = X2, req = m(2), error = \"user implementation raised exception\", (NOT PUBLISHED)",
+                "Stopping client"));
+        assertThat(renders.get(), equalTo(0));
+    }
+
+    @Test
+    public void summary_writes_every_request_without_its_params_or_result() {
+        runWith(AuditLevel.SUMMARY);
+
+        assertThat(lines, contains(
+                "Starting client",
+                "id = X1, req = m",
+                "id = X2, req = m, error = \"user implementation raised exception\", (NOT PUBLISHED)",
+                "summary of the counted line",
+                "Stopping client"));
+        assertThat(renders.get(), equalTo(0));
+    }
+
+    @Test
+    public void full_writes_every_request_with_its_params_and_result() {
+        runWith(AuditLevel.FULL);
+
+        assertThat(lines, contains(
+                "Starting client",
+                "id = X1, req = m(1), resp = 2",
+                "id = X2, req = m(2), error = \"user implementation raised exception\", (NOT PUBLISHED)",
+                "full text of the counted line",
+                "Stopping client"));
+        assertThat(renders.get(), equalTo(1));
+    }
+
+    //~~~ Utils
+
+    private void runWith(AuditLevel level) {
+        ImplementationRunnerConfig config = new ImplementationRunnerConfig()
+                .setAuditStream(lines::add)
+                .setAuditLevel(level);
+        QueueBasedImplementationRunner.Audit audit = new QueueBasedImplementationRunner.Audit(config,
+                new RunnerMetrics());
+
+        audit.logLine("Starting client");
+        logRequest(audit, request("X1", "m", "[1]"), new ValidResponse("X1", 2));
+        logRequest(audit, request("X2", "m", "[2]"), new FatalErrorResponse("user implementation raised exception"));
+        audit.startLine();
+        audit.log(countingRenders());
+        audit.endLine();
+        audit.logLine("Stopping client");
+    }
+
+    private static void logRequest(QueueBasedImplementationRunner.Audit audit, Auditable request,
+                                   Auditable response) {
+        audit.startLine();
+        audit.log(request);
+        audit.log(response);
+        audit.endLine();
+    }
+
+    /**
+     * A line that counts how often its full text is rendered
+     */
+    private Auditable countingRenders() {
+        return new Auditable() {
+            @Override
+            public String getAuditText() {
+                renders.incrementAndGet();
+                return "full text of the counted line";
+            }
+
+            @Override
+            public void appendAuditText(StringBuilder line, DisplayLimits limits) {
+                line.append(getAuditText());
+            }
+
+            @Override
+            public String getSummaryText() {
+                return "summary of the counted line";
+            }
+        };
+    }
+}
@@ -0,0 +1,203 @@
+package tdl.client.queue;
+
+import org.hamcrest.Matcher;
+import org.junit.jupiter.api.Test;
+import tdl.client.audit.AuditLevel;
+import tdl.client.audit.AuditSampling;
+import tdl.client.audit.Auditable;
+import tdl.client.queue.abstractions.response.FatalErrorResponse;
+import tdl.client.queue.abstractions.response.ValidResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static utils.queue.TestRequests.request;
+
+public class AuditSamplerTest {
+    private long nanos = 1_000_000_000L;
+
+    //~~~ Sampler
+
+    @Test
+    public void writes_the_first_request_and_then_every_nth_one() {
+        AuditSampler sampler = sampler(AuditSampling.everyNth(3));
+
+        assertThat(decisions(sampler, 7), contains(true, false, false, true, false, false, true));
+    }
+
+    @Test
+    public void always_writes_an_error_without_counting_it_as_a_request() {
+        AuditSampler sampler = sampler(AuditSampling.everyNth(3));
+
+        assertThat(sampler.shouldWrite(false), is(true));
+        assertThat(sampler.shouldWrite(true), is(true));
+        assertThat(sampler.shouldWrite(true), is(true));
+        assertThat(decisions(sampler, 3), contains(false, false, true));
+    }
+
+    @Test
+    public void allows_a_burst_of_one_second_of_lines_then_refills_with_time() {
+        AuditSampler sampler = sampler(AuditSampling.maxLinesPerSecond(5));
+
+        assertThat(decisions(sampler, 7), contains(true, true, true, true, true, false, false));
+
+        advanceMillis(200);
+        assertThat(decisions(sampler, 2), contains(true, false));
+
+        advanceMillis(10_000);
+        assertThat(decisions(sampler, 6), contains(true, true, true, true, true, false));
+    }
+
+    @Test
+    public void errors_do_not_use_up_the_rate_limit() {
+        AuditSampler sampler = sampler(AuditSampling.maxLinesPerSecond(2));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(sampler.shouldWrite(true), is(true));
+        }
+        assertThat(decisions(sampler, 3), contains(true, true, false));
+    }
+
+    @Test
+    public void rate_limits_the_lines_left_by_the_sampling() {
+        AuditSampler sampler = sampler(AuditSampling.everyNth(2).withMaxLinesPerSecond(2));
+
+        assertThat(decisions(sampler, 8), contains(true, false, true, false, false, false, false, false));
+    }
+
+    @Test
+    public void reports_the_suppressed_lines_at_most_once_per_interval() {
+        AuditSampler sampler = sampler(AuditSampling.everyNth(2).withSummaryIntervalMillis(1000));
+        decisions(sampler, 4);
+
+        assertThat(sampler.takeSuppressedLines(false), equalTo(0L));
+        advanceMillis(1000);
+        assertThat(sampler.takeSuppressedLines(false), equalTo(2L));
+
+        decisions(sampler, 2);
+        assertThat(sampler.takeSuppressedLines(false), equalTo(0L));
+        assertThat(sampler.takeSuppressedLines(true), equalTo(1L));
+        assertThat(sampler.takeSuppressedLines(true), equalTo(0L));
+    }
+
+    @Test
+    public void refuses_an_interval_or_a_rate_below_one() {
+        assertThrows(IllegalArgumentException.class, () -> AuditSampling.everyNth(0));
+        assertThrows(IllegalArgumentException.class, () -> AuditSampling.maxLinesPerSecond(0));
+        assertThat(AuditSampling.everyRequest().isSampling(), is(false));
+        assertThat(AuditSampling.everyNth(1).isSampling(), is(false));
+    }
+
+    //~~~ Audit
+
+    @Test
+    public void a_suppressed_line_is_never_rendered() {
+        List<String> lines = new ArrayList<>();
+        QueueBasedImplementationRunner.Audit audit = audit(lines, AuditSampling.everyNth(2));
+        AtomicInteger renders = new AtomicInteger();
+
+        for (int i = 0; i < 4; i++) {
+            audit.startLine();
+            audit.log(countingRenders(renders, "line " + i));
+            audit.endLine();
+        }
+
+        assertThat(renders.get(), equalTo(2));
+        assertThat(lines, contains("line 0", "line 2"));
+    }
+
+    @Test
+    public void writes_the_summary_before_the_next_line_and_at_the_end_of_the_run() {
+        List<String> lines = new ArrayList<>();
+        QueueBasedImplementationRunner.Audit audit = audit(lines,
+                AuditSampling.everyNth(3).withSummaryIntervalMillis(0));
+
+        for (int i = 0; i < 4; i++) {
+            logRequest(audit, "X" + i, new ValidResponse("X" + i, i));
+        }
+        logRequest(audit, "X4", new ValidResponse("X4", 4));
+        logRequest(audit, "X5", new FatalErrorResponse("user implementation raised exception"));
+        audit.logSuppressedLines();
+
+        List<Matcher<? super String>> expectedLines = List.of(
+                startsWith("id = X0"),
+                equalTo("Audit sampling suppressed 2 lines"),
+                startsWith("id = X3"),
+                equalTo("Audit sampling suppressed 1 line"),
+                startsWith("id = X5"));
+        assertThat(lines, contains(expectedLines));
+    }
+
+    @Test
+    public void a_flush_reports_the_lines_suppressed_since_the_last_written_one() {
+        List<String> lines = new ArrayList<>();
+        QueueBasedImplementationRunner.Audit audit = audit(lines, AuditSampling.maxLinesPerSecond(1));
+
+        for (int i = 0; i < 3; i++) {
+            logRequest(audit, "X" + i, new ValidResponse("X" + i, i));
+        }
+        audit.flush();
+        audit.flush();
+
+        assertThat(lines, hasSize(2));
+        assertThat(lines.get(0), startsWith("id = X0"));
+        assertThat(lines.get(1), equalTo("Audit sampling suppressed 2 lines"));
+    }
+
+    @Test
+    public void never_samples_the_lines_without_a_request() {
+        List<String> lines = new ArrayList<>();
+        QueueBasedImplementationRunner.Audit audit = audit(lines, AuditSampling.maxLinesPerSecond(1));
+
+        for (int i = 0; i < 3; i++) {
+            audit.logLine("Starting client");
+        }
+
+        assertThat(lines, contains("Starting client", "Starting client", "Starting client"));
+    }
+
+    //~~~ Utils
+
+    private AuditSampler sampler(AuditSampling sampling) {
+        return new AuditSampler(sampling, () -> nanos);
+    }
+
+    private void advanceMillis(long millis) {
+        nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static List<Boolean> decisions(AuditSampler sampler, int requests) {
+        List<Boolean> decisions = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            decisions.add(sampler.shouldWrite(false));
+        }
+        return decisions;
+    }
+
+    private static QueueBasedImplementationRunner.Audit audit(List<String> lines, AuditSampling sampling) {
+        ImplementationRunnerConfig config = new ImplementationRunnerConfig()
+                .setAuditStream(lines::add)
+                .setAuditLevel(AuditLevel.FULL)
+                .setAuditSampling(sampling);
+        return new QueueBasedImplementationRunner.Audit(config, new RunnerMetrics());
+    }
+
+    private static void logRequest(QueueBasedImplementationRunner.Audit audit, String id, Auditable response) {
+        audit.startLine();
+        audit.log(request(id, "m", "[]"));
+        audit.log(response);
+        audit.endLine();
+    }
+
+    private static Auditable countingRenders(AtomicInteger renders, String text) {
+        return () -> {
+            renders.incrementAndGet();
+            return text;
+        };
+    }
+}
@@ -0,0 +1,113 @@
+package tdl.client.queue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import tdl.client.queue.abstractions.response.FatalErrorResponse;
+import tdl.client.queue.abstractions.response.Response;
+import tdl.client.queue.abstractions.response.ValidResponse;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static utils.queue.TestRequests.request;
+
+public class ComputeWatchdogTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final RunnerMetrics metrics = new RunnerMetrics();
+    private final ComputeWatchdog watchdog = new ComputeWatchdog(new ImplementationRunnerConfig(), metrics);
+
+    @AfterEach
+    public void releaseStuckSolutions() {
+        release.countDown();
+    }
+
+    @Test
+    public void answers_within_the_deadline() {
+        Response response = watchdog.getResponseFor(request("X1", "m", "[]"), 1000,
+                () -> new ValidResponse("X1", "ok"));
+
+        assertThat(response.getResult(), equalTo("ok"));
+        assertThat(metrics.getDeadlineOverruns(), equalTo(0L));
+    }
+
+    @Test
+    public void a_solution_that_stops_when_interrupted_is_not_stuck() throws InterruptedException {
+        Response response = watchdog.getResponseFor(request("X1", "m", "[]"), 50, () -> {
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ValidResponse("X1", "late");
+        });
+
+        assertThat(response, instanceOf(FatalErrorResponse.class));
+        assertThat(response.getResult(), equalTo("user implementation exceeded the deadline of 50 ms"));
+        assertThat(metrics.getDeadlineOverruns(), equalTo(1L));
+        awaitStuckThreads(0);
+    }
+
+    @Test
+    public void counts_a_solution_that_ignores_the_interrupt_as_stuck_until_it_ends() throws InterruptedException {
+        watchdog.getResponseFor(request("X1", "m", "[]"), 50, ignoringInterrupts());
+
+        assertThat(metrics.getStuckComputeThreads(), equalTo(1));
+        release.countDown();
+        awaitStuckThreads(0);
+    }
+
+    @Test
+    public void refuses_new_work_once_too_many_threads_are_stuck() throws InterruptedException {
+        for (int i = 0; i < ComputeWatchdog.MAX_STUCK_THREADS; i++) {
+            watchdog.getResponseFor(request("X" + i, "m", "[]"), 20, ignoringInterrupts());
+        }
+        assertThat(metrics.getStuckComputeThreads(), equalTo(ComputeWatchdog.MAX_STUCK_THREADS));
+
+        Response refused = watchdog.getResponseFor(request("X9", "m", "[]"), 1000,
+                () -> new ValidResponse("X9", "ok"));
+        assertThat(refused, instanceOf(FatalErrorResponse.class));
+        assertThat(refused.getResult(),
+                equalTo("user implementation not called, 4 abandoned solutions are still running"));
+
+        release.countDown();
+        awaitStuckThreads(0);
+        Response accepted = watchdog.getResponseFor(request("X10", "m", "[]"), 1000,
+                () -> new ValidResponse("X10", "ok"));
+        assertThat(accepted.getResult(), equalTo("ok"));
+    }
+
+    @Test
+    public void runs_on_the_calling_thread_without_a_deadline() {
+        Thread caller = Thread.currentThread();
+
+        Response response = watchdog.getResponseFor(request("X1", "m", "[]"), 0,
+                () -> new ValidResponse("X1", Thread.currentThread() == caller));
+
+        assertThat(response.getResult(), equalTo(true));
+    }
+
+    //~~~ Utils
+
+    private Supplier<Response> ignoringInterrupts() {
+        return () -> {
+            while (true) {
+                try {
+                    release.await();
+                    return new ValidResponse("X", "late");
+                } catch (InterruptedException ignored) {
+                    //Keeps running, like a solution stuck in a loop
+                }
+            }
+        };
+    }
+
+    private void awaitStuckThreads(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (metrics.getStuckComputeThreads() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(metrics.getStuckComputeThreads(), equalTo(expected));
+    }
+}
@@ -0,0 +1,107 @@
+package tdl.client.queue;
+
+import org.junit.jupiter.api.Test;
+import tdl.client.queue.abstractions.ProcessingRule;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static utils.queue.TestRequests.request;
+
+public class MemoizingProcessingRuleTest {
+
+    @Test
+    public void the_key_is_the_compact_json_of_the_params() throws Exception {
+        assertThat(MemoizingProcessingRule.keyOf(request("X1", "m", "[ 1 , \"a b\" , [2, 3], {\"k\" : null} ]")),
+                equalTo("[1,\"a b\",[2,3],{\"k\":null}]"));
+        assertThat(MemoizingProcessingRule.keyOf(request("X1", "m", "[]")), equalTo("[]"));
+        assertThat(MemoizingProcessingRule.keyOf(request("{\"method\":\"m\",\"id\":\"X1\"}")), equalTo("[]"));
+    }
+
+    @Test
+    public void the_key_does_not_depend_on_the_id_or_the_spacing() throws Exception {
+        assertThat(MemoizingProcessingRule.keyOf(request("X1", "m", "[1,[2,3]]")),
+                equalTo(MemoizingProcessingRule.keyOf(request("X2", "m", "[ 1, [ 2,3 ] ]"))));
+    }
+
+    @Test
+    public void the_key_tells_apart_values_of_different_types() throws Exception {
+        assertThat(MemoizingProcessingRule.keyOf(request("X1", "m", "[1]")),
+                not(equalTo(MemoizingProcessingRule.keyOf(request("X1", "m", "[\"1\"]")))));
+        assertThat(MemoizingProcessingRule.keyOf(request("X1", "m", "[[1,2]]")),
+                not(equalTo(MemoizingProcessingRule.keyOf(request("X1", "m", "[1,2]")))));
+    }
+
+    @Test
+    public void answers_repeated_params_from_the_cache() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        MemoizingProcessingRule rule = memoized(calls, 10);
+
+        assertThat(rule.process(request("X1", "m", "[1,2]")), equalTo(3));
+        assertThat(rule.process(request("X2", "m", "[1, 2]")), equalTo(3));
+        assertThat(rule.process(request("X3", "m", "[2,2]")), equalTo(4));
+
+        assertThat(calls.get(), equalTo(2));
+        assertThat(rule.getStats().getHits(), equalTo(1L));
+        assertThat(rule.getStats().getMisses(), equalTo(2L));
+    }
+
+    @Test
+    public void caches_a_null_result() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        MemoizingProcessingRule rule = new MemoizingProcessingRule("m", new ProcessingRule(params -> {
+            calls.incrementAndGet();
+            return null;
+        }), 10);
+
+        assertThat(rule.process(request("X1", "m", "[1]")), nullValue());
+        assertThat(rule.process(request("X2", "m", "[1]")), nullValue());
+        assertThat(calls.get(), equalTo(1));
+    }
+
+    @Test
+    public void never_caches_a_failure() {
+        AtomicInteger calls = new AtomicInteger();
+        MemoizingProcessingRule rule = new MemoizingProcessingRule("m", new ProcessingRule(params -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("faulty user code");
+        }), 10);
+
+        assertThrows(IllegalStateException.class, () -> rule.process(request("X1", "m", "[1]")));
+        assertThrows(IllegalStateException.class, () -> rule.process(request("X2", "m", "[1]")));
+        assertThat(calls.get(), equalTo(2));
+    }
+
+    @Test
+    public void evicts_the_least_recently_used_params() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        MemoizingProcessingRule rule = memoized(calls, 2);
+
+        rule.process(request("X1", "m", "[1,1]"));
+        rule.process(request("X2", "m", "[2,2]"));
+        rule.process(request("X3", "m", "[1,1]"));
+        rule.process(request("X4", "m", "[3,3]"));
+        assertThat(rule.getStats().getEvictions(), equalTo(1L));
+
+        rule.process(request("X5", "m", "[1,1]"));
+        assertThat(calls.get(), equalTo(3));
+        rule.process(request("X6", "m", "[2,2]"));
+        assertThat(calls.get(), equalTo(4));
+    }
+
+    @Test
+    public void refuses_an_empty_cache() {
+        assertThrows(IllegalArgumentException.class, () -> memoized(new AtomicInteger(), 0));
+    }
+
+    //~~~ Utils
+
+    private static MemoizingProcessingRule memoized(AtomicInteger calls, int maxEntries) {
+        return new MemoizingProcessingRule("m", new ProcessingRule(params -> {
+            calls.incrementAndGet();
+            return params.get(0).getAsInt() + params.get(1).getAsInt();
+        }), maxEntries);
+    }
+}
@@ -0,0 +1,78 @@
+package tdl.client.queue;
+
+import org.junit.jupiter.api.Test;
+import tdl.client.queue.abstractions.response.FatalErrorResponse;
+import tdl.client.queue.abstractions.response.Response;
+import tdl.client.queue.abstractions.response.ValidResponse;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static utils.queue.TestRequests.request;
+
+public class ProcessingRulesTest {
+
+    @Test
+    public void dispatches_every_method_to_its_own_rule() {
+        ProcessingRules rules = new ProcessingRules();
+        for (int i = 0; i < 20; i++) {
+            String result = "rule " + i;
+            rules.on("method" + i).call(params -> result).build();
+        }
+        ProcessingRules frozen = rules.freeze();
+
+        for (int i = 0; i < 20; i++) {
+            Response response = frozen.getResponseFor(request("X" + i, "method" + i, "[]"));
+            assertThat(response, instanceOf(ValidResponse.class));
+            assertThat(response.getResult(), equalTo("rule " + i));
+        }
+    }
+
+    @Test
+    public void answers_an_unknown_method_with_an_error() {
+        ProcessingRules rules = new ProcessingRules();
+        rules.on("known").call(params -> "ok").build();
+
+        Response response = rules.freeze().getResponseFor(request("X1", "unknown", "[]"));
+
+        assertThat(response, instanceOf(FatalErrorResponse.class));
+        assertThat(response.getResult(), equalTo("method 'unknown' did not match any processing rule"));
+    }
+
+    @Test
+    public void answers_a_request_without_a_method_with_an_error() {
+        ProcessingRules rules = new ProcessingRules();
+        rules.on("known").call(params -> "ok").build();
+
+        Response response = rules.freeze().getResponseFor(request("{\"params\":[],\"id\":\"X1\"}"));
+
+        assertThat(response, instanceOf(FatalErrorResponse.class));
+        assertThat(response.getResult(), equalTo("method '' did not match any processing rule"));
+    }
+
+    @Test
+    public void a_frozen_copy_ignores_the_rules_added_later() {
+        ProcessingRules rules = new ProcessingRules();
+        rules.on("first").call(params -> "ok").build();
+        ProcessingRules frozen = rules.freeze();
+        rules.on("second").call(params -> "ok").build();
+
+        assertThat(frozen.getResponseFor(request("X1", "first", "[]")), instanceOf(ValidResponse.class));
+        assertThat(frozen.getResponseFor(request("X2", "second", "[]")), instanceOf(FatalErrorResponse.class));
+    }
+
+    @Test
+    public void frozen_rules_cannot_be_changed() {
+        ProcessingRules frozen = new ProcessingRules().freeze();
+
+        assertThrows(IllegalStateException.class, () -> frozen.on("late").call(params -> "ok").build());
+    }
+
+    @Test
+    public void only_frozen_rules_can_be_watched() {
+        ProcessingRules rules = new ProcessingRules();
+
+        assertThrows(IllegalStateException.class,
+                () -> rules.watchedBy(new ComputeWatchdog(new ImplementationRunnerConfig(), new RunnerMetrics())));
+    }
+}
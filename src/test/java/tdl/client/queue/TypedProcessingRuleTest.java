@@ -0,0 +1,91 @@
+package tdl.client.queue;
+
+import org.junit.jupiter.api.Test;
+import tdl.client.queue.abstractions.SolutionFor;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static utils.queue.TestRequests.request;
+
+public class TypedProcessingRuleTest {
+
+    @SuppressWarnings("unused")
+    static class ViewAndArray {
+        @SolutionFor("f")
+        public String f(IntBuffer a, int[] b) {
+            StringBuilder text = new StringBuilder();
+            while (a.hasRemaining()) {
+                text.append(a.get()).append(' ');
+            }
+            return text + "| " + Arrays.toString(b);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static class ViewAndListOfArrays {
+        @SolutionFor("g")
+        public int g(List<int[]> b, IntBuffer a) {
+            return a.get(0) * 100 + b.get(0)[0];
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static class TwoViews {
+        @SolutionFor("h")
+        public int h(IntBuffer a, IntBuffer b) {
+            return 0;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static class Scalars {
+        @SolutionFor("sum")
+        public long sum(int a, long b, String c) {
+            return a + b + c.length();
+        }
+    }
+
+    @Test
+    public void a_view_followed_by_an_array_keeps_its_values() throws Exception {
+        TypedProcessingRule rule = bindOnly(new ViewAndArray());
+
+        Object result = rule.process(request("X1", "f", "[[1,2,3],[7,8]]"));
+
+        assertThat(result, equalTo("1 2 3 | [7, 8]"));
+    }
+
+    @Test
+    public void a_view_read_after_a_list_of_arrays_keeps_its_values() throws Exception {
+        TypedProcessingRule rule = bindOnly(new ViewAndListOfArrays());
+
+        Object result = rule.process(request("X1", "g", "[[[5,6],[7]],[3]]"));
+
+        assertThat(result, equalTo(305));
+    }
+
+    @Test
+    public void two_views_of_the_same_type_are_rejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> TypedProcessingRule.bindAll(new TwoViews()));
+
+        assertThat(e.getMessage(), containsString("IntBuffer params share one buffer"));
+    }
+
+    @Test
+    public void binds_scalars() throws Exception {
+        TypedProcessingRule rule = bindOnly(new Scalars());
+
+        assertThat(rule.process(request("X1", "sum", "[1, 2, \"abc\"]")), equalTo(6L));
+    }
+
+    private static TypedProcessingRule bindOnly(Object implementation) {
+        List<TypedProcessingRule.TypedSolution> solutions = TypedProcessingRule.bindAll(implementation);
+        assertThat(solutions, hasSize(1));
+        return solutions.get(0).rule;
+    }
+}
@@ -0,0 +1,250 @@
+package tdl.client.queue.journal;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tdl.client.audit.DisplayLimits;
+import tdl.client.queue.abstractions.Request;
+import tdl.client.queue.abstractions.response.FatalErrorResponse;
+import tdl.client.queue.abstractions.response.Response;
+import tdl.client.queue.abstractions.response.ValidResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static utils.queue.TestRequests.request;
+
+public class AuditJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void replays_the_text_of_the_live_audit() throws IOException {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        map.put("a", 1);
+        Request mapRequest = request("X1", "m", "[1,\"x\",[2,3]]");
+        Response mapResponse = new ValidResponse("X1", map);
+        Request arrayRequest = request("X2", "a", "[]");
+        Response arrayResponse = new ValidResponse("X2", new int[]{1, 2});
+
+        try (AuditJournal journal = AuditJournal.open(directory)) {
+            journal.append(mapRequest, mapResponse, DisplayLimits.DEFAULT);
+            journal.append(arrayRequest, arrayResponse, DisplayLimits.DEFAULT);
+        }
+
+        List<JournalRecord> records = readAll(JournalReader.of(directory));
+        assertThat(records.get(0).getAuditText(), equalTo("id = X1, req = m(1, \"x\", [2, 3]), resp = {a=1}"));
+        assertThat(records.get(0).getAuditText(), equalTo(liveText(mapRequest, mapResponse, DisplayLimits.DEFAULT)));
+        assertThat(records.get(1).getAuditText(), startsWith("id = X2, req = a(), resp = [I@"));
+        assertThat(records.get(1).getAuditText(),
+                equalTo(liveText(arrayRequest, arrayResponse, DisplayLimits.DEFAULT)));
+    }
+
+    @Test
+    public void replays_the_text_cut_to_the_limits_of_the_live_audit() throws IOException {
+        DisplayLimits limits = DisplayLimits.of(8, 2);
+        Request request = request("X1", "sum", "[[1,2,3,4],\"abcdefghijkl\"]");
+        Response response = new ValidResponse("X1", List.of(10, 20, 30));
+
+        try (AuditJournal journal = AuditJournal.open(directory)) {
+            journal.append(request, response, limits);
+        }
+
+        JournalRecord record = readAll(JournalReader.of(directory)).get(0);
+        assertThat(record.getDisplayLimits().getMaxWidth(), equalTo(8));
+        assertThat(record.getDisplayLimits().getMaxElements(), equalTo(2));
+        assertThat(record.getAuditText(), equalTo(liveText(request, response, limits)));
+        assertThat(record.getAuditText(),
+                equalTo("id = X1, req = sum([1, 2, ... 2 more], \"abcdefg...), resp = [10, 20,..."));
+        StringBuilder line = new StringBuilder("prefix ");
+        record.appendAuditText(line, DisplayLimits.DEFAULT);
+        assertThat(line.toString(),
+                equalTo("prefix id = X1, req = sum([1, 2, 3, 4], \"abcdefghijkl\"), resp = [10, 20, 30]"));
+    }
+
+    @Test
+    public void replays_the_values_json_gives_back_as_values_and_the_others_as_text() throws IOException {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        map.put("a", 1);
+        Object[] results = {List.of(1, "x", List.of(2.5, true)), null, Arrays.asList("a", null), map,
+                List.of(map), new int[]{1, 2}, JsonParser.parseString("[\"a\",{\"b\":1}]")};
+
+        List<Response> responses = new ArrayList<>();
+        try (AuditJournal journal = AuditJournal.open(directory)) {
+            for (int i = 0; i < results.length; i++) {
+                Response response = new ValidResponse("X" + i, results[i]);
+                responses.add(response);
+                journal.append(request("X" + i, "m", "[]"), response, DisplayLimits.of(20, 3));
+            }
+        }
+
+        List<JournalRecord> records = readAll(JournalReader.of(directory));
+        assertThat(records.get(0).getResult(), instanceOf(List.class));
+        assertThat(records.get(3).getResult(), equalTo("{a=1}"));
+        assertThat(records.get(4).getResult(), equalTo("[{a=1}]"));
+        assertThat(records.get(6).getResult(), instanceOf(JsonElement.class));
+        for (int i = 0; i < results.length; i++) {
+            assertThat(records.get(i).getAuditText(),
+                    equalTo(liveText(request("X" + i, "m", "[]"), responses.get(i), DisplayLimits.of(20, 3))));
+        }
+    }
+
+    @Test
+    public void never_renders_the_audit_text_while_writing() throws IOException {
+        Response response = new ValidResponse("X1", List.of(1, 2)) {
+            @Override
+            public void appendAuditText(StringBuilder line, DisplayLimits limits) {
+                throw new AssertionError("The journal rendered the response");
+            }
+        };
+
+        try (AuditJournal journal = AuditJournal.open(directory)) {
+            journal.append(request("X1", "m", "[1]"), response, DisplayLimits.DEFAULT);
+        }
+
+        assertThat(readAll(JournalReader.of(directory)).get(0).getAuditText(),
+                equalTo("id = X1, req = m(1), resp = [1, 2]"));
+    }
+
+    @Test
+    public void keeps_the_params_the_result_and_the_timings() throws IOException {
+        Request request = request("X1", "m", "[1,\"x\"]");
+        request.getTimings().setDecodeNanos(1500);
+        request.getTimings().setComputeNanos(0);
+
+        try (AuditJournal journal = AuditJournal.open(directory)) {
+            journal.append(request, new ValidResponse("X1", List.of("a", 2)), DisplayLimits.DEFAULT);
+        }
+
+        JournalRecord record = readAll(JournalReader.of(directory)).get(0);
+        assertThat(record.getId(), equalTo("X1"));
+        assertThat(record.getMethodName(), equalTo("m"));
+        assertThat(record.getParamsJson(), equalTo("[1,\"x\"]"));
+        assertThat(record.getParams().size(), equalTo(2));
+        assertThat(record.isError(), is(false));
+        assertThat(record.getResult().toString(), equalTo("[a, 2]"));
+        assertThat(record.getTimings().getDecodeNanos(), equalTo(1500L));
+        assertThat(record.getTimings().getComputeNanos(), equalTo(0L));
+    }
+
+    @Test
+    public void replays_an_error() throws IOException {
+        Request request = request("X1", "m", "[]");
+        Response response = new FatalErrorResponse("user implementation raised exception");
+
+        try (AuditJournal journal = AuditJournal.open(directory)) {
+            journal.append(request, response, DisplayLimits.DEFAULT);
+        }
+
+        JournalRecord record = readAll(JournalReader.of(directory)).get(0);
+        assertThat(record.isError(), is(true));
+        assertThat(record.getResult(), equalTo("user implementation raised exception"));
+        assertThat(record.getAuditText(), equalTo(liveText(request, response, DisplayLimits.DEFAULT)));
+        assertThat(record.getAuditText(), endsWith("(NOT PUBLISHED)"));
+    }
+
+    @Test
+    public void filters_by_method_and_id() throws IOException {
+        try (AuditJournal journal = AuditJournal.open(directory)) {
+            for (int i = 0; i < 6; i++) {
+                String method = i % 2 == 0 ? "even" : "odd";
+                journal.append(request("X" + i, method, "[" + i + "]"), new ValidResponse("X" + i, i),
+                        DisplayLimits.DEFAULT);
+            }
+        }
+
+        assertThat(ids(JournalReader.of(directory).withMethod("odd")), contains("X1", "X3", "X5"));
+        assertThat(ids(JournalReader.of(directory).withId("X4")), contains("X4"));
+        assertThat(ids(JournalReader.of(directory).withMethod("odd").withId("X4")), empty());
+    }
+
+    @Test
+    public void rolls_over_to_new_segments_and_reads_them_in_order() throws IOException {
+        try (AuditJournal journal = AuditJournal.open(directory, 4096)) {
+            for (int i = 0; i < 200; i++) {
+                journal.append(request("X" + i, "m", "[\"" + "v".repeat(50) + "\"]"), new ValidResponse("X" + i, i),
+                        DisplayLimits.DEFAULT);
+            }
+        }
+
+        assertThat(segmentCount(), greaterThan(1L));
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            expected.add("X" + i);
+        }
+        assertThat(ids(JournalReader.of(directory)), equalTo(expected));
+    }
+
+    @Test
+    public void gives_a_record_larger_than_a_segment_its_own_segment() throws IOException {
+        String large = "x".repeat(10000);
+        try (AuditJournal journal = AuditJournal.open(directory, 4096)) {
+            journal.append(request("X1", "m", "[]"), new ValidResponse("X1", 1), DisplayLimits.DEFAULT);
+            journal.append(request("X2", "m", "[\"" + large + "\"]"), new ValidResponse("X2", large),
+                    DisplayLimits.DEFAULT);
+            journal.append(request("X3", "m", "[]"), new ValidResponse("X3", 3), DisplayLimits.DEFAULT);
+        }
+
+        List<JournalRecord> records = readAll(JournalReader.of(directory));
+        assertThat(records.size(), equalTo(3));
+        assertThat(records.get(1).getResult(), equalTo(large));
+    }
+
+    @Test
+    public void a_reopened_journal_starts_a_new_segment_after_the_existing_ones() throws IOException {
+        try (AuditJournal journal = AuditJournal.open(directory)) {
+            journal.append(request("X1", "m", "[]"), new ValidResponse("X1", 1), DisplayLimits.DEFAULT);
+        }
+        try (AuditJournal journal = AuditJournal.open(directory)) {
+            journal.append(request("X2", "m", "[]"), new ValidResponse("X2", 2), DisplayLimits.DEFAULT);
+        }
+
+        assertThat(segmentCount(), equalTo(2L));
+        assertThat(ids(JournalReader.of(directory)), contains("X1", "X2"));
+    }
+
+    @Test
+    public void refuses_a_segment_smaller_than_a_page() {
+        assertThrows(IllegalArgumentException.class, () -> AuditJournal.open(directory, 100));
+    }
+
+    //~~~ Utils
+
+    private static String liveText(Request request, Response response, DisplayLimits limits) {
+        StringBuilder line = new StringBuilder();
+        request.appendAuditText(line, limits);
+        line.append(", ");
+        response.appendAuditText(line, limits);
+        return line.toString();
+    }
+
+    private static List<JournalRecord> readAll(JournalReader reader) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        reader.forEach(records::add);
+        return records;
+    }
+
+    private static List<String> ids(JournalReader reader) throws IOException {
+        List<String> ids = new ArrayList<>();
+        reader.forEach(record -> ids.add(record.getId()));
+        return ids;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> JournalFormat.segmentIndex(file) >= 0).count();
+        }
+    }
+}
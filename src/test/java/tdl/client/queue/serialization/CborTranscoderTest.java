@@ -0,0 +1,255 @@
+package tdl.client.queue.serialization;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The encoded items are the examples of RFC 8949, Appendix A, the invalid ones come from Appendix F.
+ */
+public class CborTranscoderTest {
+
+    //~~~ Decoding
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', value = {
+            "00 | 0",
+            "01 | 1",
+            "0a | 10",
+            "17 | 23",
+            "1818 | 24",
+            "1819 | 25",
+            "1864 | 100",
+            "1903e8 | 1000",
+            "1a000f4240 | 1000000",
+            "1b000000e8d4a51000 | 1000000000000",
+            "1bffffffffffffffff | 18446744073709551615",
+            "c249010000000000000000 | 18446744073709551616",
+            "3bffffffffffffffff | -18446744073709551616",
+            "c349010000000000000000 | -18446744073709551617",
+            "20 | -1",
+            "29 | -10",
+            "3863 | -100",
+            "3903e7 | -1000",
+    })
+    public void decodes_integers(String cbor, String json) throws IOException {
+        assertThat(CborTranscoder.toJson(hex(cbor)), equalTo(json));
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', value = {
+            "f90000 | 0.0",
+            "f98000 | -0.0",
+            "f93c00 | 1.0",
+            "fb3ff199999999999a | 1.1",
+            "f93e00 | 1.5",
+            "f97bff | 65504.0",
+            "fa47c35000 | 100000.0",
+            "fa7f7fffff | 3.4028235E38",
+            "fb7e37e43c8800759c | 1.0E300",
+            "f90001 | 5.9604645E-8",
+            "f90400 | 6.1035156E-5",
+            "f9c400 | -4.0",
+            "fbc010666666666666 | -4.1",
+            "f97c00 | Infinity",
+            "f97e00 | NaN",
+            "f9fc00 | -Infinity",
+            "fa7f800000 | Infinity",
+            "fa7fc00000 | NaN",
+            "faff800000 | -Infinity",
+            "fb7ff0000000000000 | Infinity",
+            "fb7ff8000000000000 | NaN",
+            "fbfff0000000000000 | -Infinity",
+    })
+    public void decodes_half_single_and_double_floats(String cbor, String json) throws IOException {
+        assertThat(CborTranscoder.toJson(hex(cbor)), equalTo(json));
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', value = {
+            "f4 | false",
+            "f5 | true",
+            "f6 | null",
+            "f7 | null",
+            "40 | \"\"",
+            "4401020304 | \"AQIDBA\"",
+            "60 | \"\"",
+            "6161 | \"a\"",
+            "6449455446 | \"IETF\"",
+            "62225c | \"\\\"\\\\\"",
+            "62c3bc | \"\u00fc\"",
+            "63e6b0b4 | \"\u6c34\"",
+            "64f0908591 | \"\ud800\udd51\"",
+    })
+    public void decodes_simple_values_and_strings(String cbor, String json) throws IOException {
+        assertThat(CborTranscoder.toJson(hex(cbor)), equalTo(json));
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', value = {
+            "c074323031332d30332d32315432303a30343a30305a | \"2013-03-21T20:04:00Z\"",
+            "c11a514b67b0 | 1363896240",
+            "c1fb41d452d9ec200000 | 1.3638962405E9",
+            "d74401020304 | \"AQIDBA\"",
+            "d818456449455446 | \"ZElFVEY\"",
+            "d82076687474703a2f2f7777772e6578616d706c652e636f6d | \"http://www.example.com\"",
+            "d9d9f783010203 | [1,2,3]",
+    })
+    public void drops_the_tags_that_only_annotate_their_content(String cbor, String json) throws IOException {
+        assertThat(CborTranscoder.toJson(hex(cbor)), equalTo(json));
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', value = {
+            "80 | []",
+            "83010203 | [1,2,3]",
+            "8301820203820405 | [1,[2,3],[4,5]]",
+            "98190102030405060708090a0b0c0d0e0f101112131415161718181819 | "
+                    + "[1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,20,21,22,23,24,25]",
+            "a0 | {}",
+            "a201020304 | {\"1\":2,\"3\":4}",
+            "a26161016162820203 | {\"a\":1,\"b\":[2,3]}",
+            "826161a161626163 | [\"a\",{\"b\":\"c\"}]",
+            "a56161614161626142616361436164614461656145 | {\"a\":\"A\",\"b\":\"B\",\"c\":\"C\",\"d\":\"D\",\"e\":\"E\"}",
+    })
+    public void decodes_nested_arrays_and_maps(String cbor, String json) throws IOException {
+        assertThat(CborTranscoder.toJson(hex(cbor)), equalTo(json));
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', value = {
+            "5f42010243030405ff | \"AQIDBAU\"",
+            "7f657374726561646d696e67ff | \"streaming\"",
+            "9fff | []",
+            "9f018202039f0405ffff | [1,[2,3],[4,5]]",
+            "9f01820203820405ff | [1,[2,3],[4,5]]",
+            "83018202039f0405ff | [1,[2,3],[4,5]]",
+            "83019f0203ff820405 | [1,[2,3],[4,5]]",
+            "bf61610161629f0203ffff | {\"a\":1,\"b\":[2,3]}",
+            "826161bf61626163ff | [\"a\",{\"b\":\"c\"}]",
+            "bf6346756ef563416d7421ff | {\"Fun\":true,\"Amt\":-2}",
+    })
+    public void decodes_indefinite_length_items(String cbor, String json) throws IOException {
+        assertThat(CborTranscoder.toJson(hex(cbor)), equalTo(json));
+    }
+
+    //~~~ Invalid input
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @ValueSource(strings = {
+            "", "18", "19", "1a", "1b", "1901", "1a0102", "1b01020304050607",
+            "38", "58", "78", "98", "9a01ff00", "b8", "d8", "f900", "fa0000", "fb000000",
+            "41", "61", "4201", "6201", "81", "818181818181818181", "8200", "a1", "a20102", "a100",
+            "5f4100", "7f6100", "9f", "9f0102", "bf", "bf01020102", "c2",
+    })
+    public void rejects_truncated_items(String cbor) {
+        IOException e = assertThrows(IOException.class, () -> CborTranscoder.toJson(hex(cbor)));
+
+        assertThat(e.getMessage(), containsString("Truncated"));
+    }
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @ValueSource(strings = {
+            "1c", "1d", "1e", "3c", "5c", "7c", "9c", "bc", "dc", "fc", "fd", "fe",
+            "1f", "3f", "df", "ff", "f0", "f8", "f818", "f8ff",
+            "5f00ff", "5f21ff", "5f6100ff", "5f80ff", "5fa0ff", "5fc000ff", "5fe0ff", "7f4100ff", "5f5f4100ffff",
+            "9f01ff02", "0102",
+    })
+    public void rejects_malformed_items(String cbor) {
+        assertThrows(IOException.class, () -> CborTranscoder.toJson(hex(cbor)));
+    }
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @ValueSource(strings = {"c48221196ab3", "c5822003", "d8258201", "d9010080"})
+    public void rejects_the_tags_that_change_the_meaning_of_their_content(String cbor) {
+        IOException e = assertThrows(IOException.class, () -> CborTranscoder.toJson(hex(cbor)));
+
+        assertThat(e.getMessage(), containsString("Unsupported CBOR tag"));
+    }
+
+    @Test
+    public void rejects_a_bignum_that_is_not_a_byte_string() {
+        assertThrows(IOException.class, () -> CborTranscoder.toJson(hex("c201")));
+    }
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @ValueSource(strings = {"61ff", "62c328", "63e28228", "64f0908028", "a161ff01"})
+    public void rejects_text_that_is_not_utf8(String cbor) {
+        IOException e = assertThrows(IOException.class, () -> CborTranscoder.toJson(hex(cbor)));
+
+        assertThat(e.getMessage(), containsString("not UTF-8"));
+    }
+
+    @Test
+    public void rejects_items_nested_too_deep_without_overflowing_the_stack() {
+        byte[] cbor = new byte[100_000];
+        java.util.Arrays.fill(cbor, (byte) 0x81);
+
+        IOException e = assertThrows(IOException.class, () -> CborTranscoder.toJson(cbor));
+
+        assertThat(e.getMessage(), containsString("nested deeper"));
+    }
+
+    //~~~ Encoding
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', value = {
+            "0 | 00",
+            "23 | 17",
+            "24 | 1818",
+            "1000000000000 | 1b000000e8d4a51000",
+            "18446744073709551615 | c248ffffffffffffffff",
+            "18446744073709551616 | c249010000000000000000",
+            "-1 | 20",
+            "-1000 | 3903e7",
+            "-18446744073709551617 | c349010000000000000000",
+            "1.5 | fa3fc00000",
+            "1.1 | fb3ff199999999999a",
+            "1.0E300 | fb7e37e43c8800759c",
+            "true | f5",
+            "null | f6",
+            "\"IETF\" | 6449455446",
+            "\"\u00fc\" | 62c3bc",
+            "[] | 9fff",
+            "[1,[2,3]] | 9f019f0203ffff",
+            "{\"a\":1,\"b\":[2,3]} | bf61610161629f0203ffff",
+    })
+    public void encodes_json_values(String json, String cbor) throws IOException {
+        assertThat(toHex(CborTranscoder.fromJson(json)), equalTo(cbor));
+    }
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @ValueSource(strings = {
+            "{\"method\":\"sum\",\"params\":[1,2],\"id\":\"X1\"}",
+            "{\"result\":[0.5,-7,12345678901,null,true,\"\u6c34\"],\"error\":null,\"id\":\"X2\"}",
+            "[{\"a\":{\"b\":[[],{}]}},-18446744073709551617,\"\"]",
+    })
+    public void round_trips_json_text(String json) throws IOException {
+        assertThat(CborTranscoder.toJson(CborTranscoder.fromJson(json)), equalTo(json));
+    }
+
+    //~~~ Utils
+
+    private static byte[] hex(String text) {
+        byte[] bytes = new byte[text.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(text.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder text = new StringBuilder();
+        for (byte b : bytes) {
+            text.append(String.format("%02x", b & 0xff));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,99 @@
+package tdl.client.queue.serialization;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static utils.queue.TestRequests.request;
+
+public class ParamReaderTest {
+
+    @Test
+    public void reads_scalars_in_order() throws IOException {
+        ParamReader params = request("X1", "f", "[1, 12345678901, 2.5, true, \"text\", null]").readParams();
+
+        assertThat(params.nextInt(), equalTo(1));
+        assertThat(params.nextLong(), equalTo(12345678901L));
+        assertThat(params.nextDouble(), equalTo(2.5));
+        assertThat(params.nextBoolean(), equalTo(true));
+        assertThat(params.nextString(), equalTo("text"));
+        assertThat(params.nextString(), nullValue());
+        assertThat(params.hasNext(), equalTo(false));
+    }
+
+    @Test
+    public void reads_numeric_arrays() throws IOException {
+        ParamReader params = request("X1", "f", "[[1,2,3], [4,5], [0.5,1.5], []]").readParams();
+
+        assertThat(params.nextIntArray(), equalTo(new int[]{1, 2, 3}));
+        assertThat(params.nextLongArray(), equalTo(new long[]{4, 5}));
+        assertThat(params.nextDoubleArray(), equalTo(new double[]{0.5, 1.5}));
+        assertThat(params.nextIntArray(), equalTo(new int[0]));
+    }
+
+    @Test
+    public void reads_arrays_larger_than_the_initial_scratch() throws IOException {
+        int[] expected = IntStream.range(0, 5000).toArray();
+        String json = Arrays.stream(expected).mapToObj(Integer::toString).collect(Collectors.joining(",", "[[", "]]"));
+
+        assertThat(request("X1", "f", json).readParams().nextIntArray(), equalTo(expected));
+        assertThat(request("X2", "f", json).readParams().nextIntBuffer().remaining(), equalTo(5000));
+    }
+
+    @Test
+    public void a_view_is_not_overwritten_by_the_arrays_read_after_it() throws IOException {
+        ParamReader params = request("X1", "f", "[[1,2,3], [7,8], [[9,9,9,9]], [10], [0.5]]").readParams();
+
+        IntBuffer view = params.nextIntBuffer();
+        int[] array = params.nextIntArray();
+        List<int[]> list = params.nextList(ParamReader::nextIntArray);
+        LongBuffer longView = params.nextLongBuffer();
+        DoubleBuffer doubleView = params.nextDoubleBuffer();
+
+        assertThat(toArray(view), equalTo(new int[]{1, 2, 3}));
+        assertThat(array, equalTo(new int[]{7, 8}));
+        assertThat(list.get(0), equalTo(new int[]{9, 9, 9, 9}));
+        assertThat(longView.get(0), equalTo(10L));
+        assertThat(doubleView.get(0), equalTo(0.5));
+    }
+
+    @Test
+    public void a_view_is_not_overwritten_by_the_arrays_of_the_next_request() throws IOException {
+        IntBuffer view = request("X1", "f", "[[1,2,3]]").readParams().nextIntBuffer();
+
+        request("X2", "f", "[[7,8,9,10]]").readParams().nextIntArray();
+
+        assertThat(toArray(view), equalTo(new int[]{1, 2, 3}));
+    }
+
+    @Test
+    public void reads_lists_of_strings() throws IOException {
+        ParamReader params = request("X1", "f", "[[\"a\",\"b\"], null]").readParams();
+
+        assertThat(params.nextList(ParamReader::nextString), contains("a", "b"));
+        assertThat(params.nextList(ParamReader::nextString), nullValue());
+    }
+
+    @Test
+    public void reads_the_params_of_a_decoded_tree() throws IOException {
+        ParamReader params = ParamReader.of(request("X1", "f", "[[1,2], \"x\"]").getParams());
+
+        assertThat(params.nextIntArray(), equalTo(new int[]{1, 2}));
+        assertThat(params.nextString(), equalTo("x"));
+    }
+
+    private static int[] toArray(IntBuffer view) {
+        int[] values = new int[view.remaining()];
+        view.duplicate().get(values);
+        return values;
+    }
+}
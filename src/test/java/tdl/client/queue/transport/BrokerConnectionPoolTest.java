@@ -0,0 +1,180 @@
+package tdl.client.queue.transport;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.ActiveMQSession;
+import org.apache.activemq.command.Command;
+import org.apache.activemq.command.Response;
+import org.apache.activemq.transport.Transport;
+import org.apache.activemq.transport.TransportSupport;
+import org.apache.activemq.util.ServiceStopper;
+import org.apache.activemq.wireformat.WireFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import java.security.cert.X509Certificate;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BrokerConnectionPoolTest {
+    private static final String BROKER_URL = "tcp://broker:61616";
+    private static final AcknowledgeStrategy PER_MESSAGE = AcknowledgeStrategy.perMessage();
+
+    private int openedConnections;
+    private final BrokerConnectionPool pool = new BrokerConnectionPool(this::openConnection);
+
+    @AfterEach
+    public void closePool() {
+        pool.close();
+    }
+
+    //~~~ Reuse
+
+    @Test
+    public void reuses_the_session_of_the_same_url_queues_and_strategy() throws JMSException {
+        BrokerSession first = pool.acquire(BROKER_URL, "req", "resp", PER_MESSAGE);
+        pool.release(first, BROKER_URL, "req", "resp", PER_MESSAGE, true);
+
+        BrokerSession second = pool.acquire(BROKER_URL, "req", "resp", PER_MESSAGE);
+
+        assertThat(second, sameInstance(first));
+        assertThat(openedConnections, equalTo(1));
+    }
+
+    @Test
+    public void keeps_a_session_apart_for_other_queues_or_another_strategy() throws JMSException {
+        BrokerSession session = pool.acquire(BROKER_URL, "req", "resp", PER_MESSAGE);
+        pool.release(session, BROKER_URL, "req", "resp", PER_MESSAGE, true);
+
+        BrokerSession otherQueue = pool.acquire(BROKER_URL, "req", "other-resp", PER_MESSAGE);
+        BrokerSession otherStrategy = pool.acquire(BROKER_URL, "req", "resp", AcknowledgeStrategy.batched(10, 100));
+
+        assertThat(otherQueue, not(sameInstance(session)));
+        assertThat(otherStrategy, not(sameInstance(session)));
+        assertThat(otherStrategy.getConnection(), sameInstance(session.getConnection()));
+        assertThat(openedConnections, equalTo(1));
+    }
+
+    @Test
+    public void hands_out_a_session_in_use_only_once() throws JMSException {
+        BrokerSession first = pool.acquire(BROKER_URL, "req", "resp", PER_MESSAGE);
+        BrokerSession second = pool.acquire(BROKER_URL, "req", "resp", PER_MESSAGE);
+
+        assertThat(second, not(sameInstance(first)));
+    }
+
+    //~~~ Discard
+
+    @Test
+    public void discards_the_session_of_a_failed_run() throws JMSException {
+        BrokerSession failed = pool.acquire(BROKER_URL, "req", "resp", PER_MESSAGE);
+        pool.release(failed, BROKER_URL, "req", "resp", PER_MESSAGE, false);
+
+        BrokerSession next = pool.acquire(BROKER_URL, "req", "resp", PER_MESSAGE);
+
+        assertThat(next, not(sameInstance(failed)));
+        assertThat(((ActiveMQSession) failed.getSession()).isClosed(), is(true));
+        assertThat(next.getConnection(), sameInstance(failed.getConnection()));
+        assertThat(openedConnections, equalTo(1));
+    }
+
+    @Test
+    public void replaces_a_broken_connection() throws JMSException {
+        BrokerSession session = pool.acquire(BROKER_URL, "req", "resp", PER_MESSAGE);
+        session.getConnection().close();
+        pool.release(session, BROKER_URL, "req", "resp", PER_MESSAGE, true);
+
+        BrokerSession next = pool.acquire(BROKER_URL, "req", "resp", PER_MESSAGE);
+
+        assertThat(next, not(sameInstance(session)));
+        assertThat(next.isHealthy(), is(true));
+        assertThat(openedConnections, equalTo(2));
+    }
+
+    @Test
+    public void closes_everything_and_refuses_to_hand_out_sessions_once_closed() throws JMSException {
+        BrokerSession idle = pool.acquire(BROKER_URL, "req", "resp", PER_MESSAGE);
+        BrokerSession inUse = pool.acquire(BROKER_URL, "req", "resp", PER_MESSAGE);
+        pool.release(idle, BROKER_URL, "req", "resp", PER_MESSAGE, true);
+
+        pool.close();
+        pool.release(inUse, BROKER_URL, "req", "resp", PER_MESSAGE, true);
+
+        assertThat(idle.isHealthy(), is(false));
+        assertThat(((ActiveMQSession) inUse.getSession()).isClosed(), is(true));
+        assertThrows(javax.jms.IllegalStateException.class,
+                () -> pool.acquire(BROKER_URL, "req", "resp", PER_MESSAGE));
+    }
+
+    //~~~ Utils
+
+    private Connection openConnection(String brokerURL) throws JMSException {
+        openedConnections++;
+        ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(brokerURL) {
+            @Override
+            protected Transport createTransport() {
+                return new StubTransport();
+            }
+        };
+        Connection connection = connectionFactory.createConnection();
+        connection.start();
+        return connection;
+    }
+
+    /**
+     * Answers every request with an empty response, as a broker accepting every command would
+     */
+    private static final class StubTransport extends TransportSupport {
+
+        @Override
+        public void oneway(Object command) {
+        }
+
+        @Override
+        public Object request(Object command) {
+            Response response = new Response();
+            response.setCorrelationId(((Command) command).getCommandId());
+            return response;
+        }
+
+        @Override
+        public Object request(Object command, int timeout) {
+            return request(command);
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            return BROKER_URL;
+        }
+
+        @Override
+        public int getReceiveCounter() {
+            return 0;
+        }
+
+        @Override
+        public X509Certificate[] getPeerCertificates() {
+            return null;
+        }
+
+        @Override
+        public void setPeerCertificates(X509Certificate[] certificates) {
+        }
+
+        @Override
+        public WireFormat getWireFormat() {
+            return null;
+        }
+
+        @Override
+        protected void doStart() {
+        }
+
+        @Override
+        protected void doStop(ServiceStopper stopper) {
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package tdl.client.queue.transport;
+
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.junit.jupiter.api.Test;
+
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PrefetchPolicyTest {
+    private final AtomicInteger commits = new AtomicInteger();
+
+    //~~~ Consumer options
+
+    @Test
+    public void sets_the_prefetch_size_as_a_consumer_option() {
+        assertThat(PrefetchPolicy.lowLatency().consumerOptions(), equalTo("consumer.prefetchSize=1"));
+        assertThat(PrefetchPolicy.highThroughput().consumerOptions(), equalTo("consumer.prefetchSize=1000"));
+        assertThat(PrefetchPolicy.prefetch(50).withLookahead(5).consumerOptions(),
+                equalTo("consumer.prefetchSize=50"));
+    }
+
+    @Test
+    public void describes_the_policy() {
+        assertThat(PrefetchPolicy.highThroughput().toString(), equalTo("prefetch 1000, optimized acknowledge"));
+        assertThat(PrefetchPolicy.prefetch(10).withLookahead(4).toString(), equalTo("prefetch 10, lookahead 4"));
+    }
+
+    //~~~ Acknowledge strategy
+
+    @Test
+    public void optimized_acknowledge_batches_two_thirds_of_the_prefetch() {
+        AcknowledgeStrategy strategy = PrefetchPolicy.highThroughput()
+                .acknowledgeStrategyFor(AcknowledgeStrategy.perMessage());
+
+        assertThat(strategy.getMode(), equalTo(AcknowledgeStrategy.Mode.BATCHED));
+        assertThat(strategy.getMaxMessages(), equalTo(650));
+        assertThat(strategy.getMaxDelayMillis(), equalTo(300L));
+    }
+
+    @Test
+    public void optimized_acknowledge_batches_at_least_one_request() {
+        AcknowledgeStrategy strategy = PrefetchPolicy.lowLatency().withOptimizeAcknowledge(true)
+                .acknowledgeStrategyFor(AcknowledgeStrategy.perMessage());
+
+        assertThat(strategy.getMaxMessages(), equalTo(1));
+    }
+
+    @Test
+    public void keeps_the_configured_strategy_unless_optimized_and_per_message() {
+        AcknowledgeStrategy perMessage = AcknowledgeStrategy.perMessage();
+        AcknowledgeStrategy batched = AcknowledgeStrategy.batched(10, 100);
+        AcknowledgeStrategy transacted = AcknowledgeStrategy.transacted(10, 100);
+
+        assertThat(PrefetchPolicy.lowLatency().acknowledgeStrategyFor(perMessage), sameInstance(perMessage));
+        assertThat(PrefetchPolicy.highThroughput().acknowledgeStrategyFor(batched), sameInstance(batched));
+        assertThat(PrefetchPolicy.highThroughput().acknowledgeStrategyFor(transacted), sameInstance(transacted));
+    }
+
+    //~~~ Lookahead
+
+    @Test
+    public void without_a_lookahead_keeps_receiving_while_requests_are_in_flight() throws JMSException {
+        Acknowledgements acknowledgements = acknowledgementsFor(PrefetchPolicy.prefetch(10),
+                AcknowledgeStrategy.perMessage());
+
+        receive(acknowledgements, 100);
+
+        assertThat(acknowledgements.mustDrainBeforeReceiving(), is(false));
+    }
+
+    @Test
+    public void stops_receiving_once_the_lookahead_is_full() throws JMSException {
+        Acknowledgements acknowledgements = acknowledgementsFor(PrefetchPolicy.prefetch(10).withLookahead(2),
+                AcknowledgeStrategy.perMessage());
+
+        receive(acknowledgements, 1);
+        assertThat(acknowledgements.mustDrainBeforeReceiving(), is(false));
+        receive(acknowledgements, 1);
+        assertThat(acknowledgements.mustDrainBeforeReceiving(), is(true));
+
+        acknowledgements.onAnswered(message());
+        assertThat(acknowledgements.mustDrainBeforeReceiving(), is(false));
+    }
+
+    @Test
+    public void a_full_lookahead_holds_back_a_batched_run_too() throws JMSException {
+        Acknowledgements acknowledgements = acknowledgementsFor(PrefetchPolicy.prefetch(10).withLookahead(3),
+                AcknowledgeStrategy.batched(100, 60_000));
+
+        receive(acknowledgements, 3);
+        assertThat(acknowledgements.mustDrainBeforeReceiving(), is(true));
+
+        acknowledgements.onAnswered(message());
+        assertThat(acknowledgements.mustDrainBeforeReceiving(), is(false));
+        assertThat(acknowledgements.getUnacknowledgedCount(), equalTo(3));
+    }
+
+    @Test
+    public void a_due_transaction_drains_even_without_a_lookahead() throws JMSException {
+        Acknowledgements acknowledgements = acknowledgementsFor(PrefetchPolicy.prefetch(10),
+                AcknowledgeStrategy.transacted(2, 60_000));
+
+        receive(acknowledgements, 3);
+        acknowledgements.onAnswered(message());
+        acknowledgements.onAnswered(message());
+        assertThat(acknowledgements.mustDrainBeforeReceiving(), is(true));
+        assertThat(commits.get(), equalTo(0));
+
+        acknowledgements.onAnswered(message());
+        assertThat(acknowledgements.mustDrainBeforeReceiving(), is(false));
+        assertThat(commits.get(), equalTo(1));
+    }
+
+    @Test
+    public void an_answer_wakes_up_the_receiver_waiting_on_the_lookahead() throws Exception {
+        Acknowledgements acknowledgements = acknowledgementsFor(PrefetchPolicy.prefetch(10).withLookahead(1),
+                AcknowledgeStrategy.perMessage());
+        receive(acknowledgements, 1);
+
+        Thread receiver = new Thread(() -> {
+            try {
+                acknowledgements.awaitDrained();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        receiver.start();
+        receiver.join(100);
+        assertThat(receiver.isAlive(), is(true));
+
+        acknowledgements.onAnswered(message());
+        receiver.join(5000);
+        assertThat(receiver.isAlive(), is(false));
+    }
+
+    //~~~ Utils
+
+    private Acknowledgements acknowledgementsFor(PrefetchPolicy policy, AcknowledgeStrategy configured) {
+        Session session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("commit")) {
+                        commits.incrementAndGet();
+                    }
+                    return null;
+                });
+        return new Acknowledgements(policy.acknowledgeStrategyFor(configured), session, policy.getLookahead());
+    }
+
+    private static void receive(Acknowledgements acknowledgements, int requests) throws JMSException {
+        for (int i = 0; i < requests; i++) {
+            acknowledgements.beforeReceive();
+            acknowledgements.afterReceive(message());
+        }
+    }
+
+    private static StringMessage message() {
+        return new StringMessage(new ActiveMQTextMessage());
+    }
+}
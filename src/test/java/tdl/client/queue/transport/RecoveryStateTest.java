@@ -0,0 +1,114 @@
+package tdl.client.queue.transport;
+
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.junit.jupiter.api.Test;
+
+import javax.jms.JMSException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RecoveryStateTest {
+    private static final long LONG_TIMEOUT_MILLIS = 60_000;
+
+    //~~~ Answered requests
+
+    @Test
+    public void recognises_the_redelivery_of_an_answered_request() throws JMSException {
+        RecoveryState state = new RecoveryState(LONG_TIMEOUT_MILLIS);
+
+        state.rememberAnswered(message("ID:1", false));
+
+        assertThat(state.isAlreadyAnswered(message("ID:1", true)), is(true));
+        assertThat(state.getRecoveredCount(), equalTo(1L));
+    }
+
+    @Test
+    public void a_redelivered_request_never_answered_is_processed_again() throws JMSException {
+        RecoveryState state = new RecoveryState(LONG_TIMEOUT_MILLIS);
+
+        state.rememberAnswered(message("ID:1", false));
+
+        assertThat(state.isAlreadyAnswered(message("ID:2", true)), is(false));
+        assertThat(state.getRecoveredCount(), equalTo(0L));
+    }
+
+    @Test
+    public void a_first_delivery_is_never_taken_as_answered() throws JMSException {
+        RecoveryState state = new RecoveryState(LONG_TIMEOUT_MILLIS);
+
+        state.rememberAnswered(message("ID:1", false));
+
+        assertThat(state.isAlreadyAnswered(message("ID:1", false)), is(false));
+        assertThat(state.getRecoveredCount(), equalTo(0L));
+    }
+
+    @Test
+    public void forgets_the_oldest_answered_requests_past_its_capacity() throws JMSException {
+        RecoveryState state = new RecoveryState(LONG_TIMEOUT_MILLIS);
+
+        for (int i = 0; i <= 10000; i++) {
+            state.rememberAnswered(message("ID:" + i, false));
+        }
+
+        assertThat(state.isAlreadyAnswered(message("ID:0", true)), is(false));
+        assertThat(state.isAlreadyAnswered(message("ID:1", true)), is(true));
+        assertThat(state.isAlreadyAnswered(message("ID:10000", true)), is(true));
+    }
+
+    //~~~ Redeliveries
+
+    @Test
+    public void awaits_the_expected_redeliveries_until_they_have_all_come_back() throws JMSException {
+        RecoveryState state = new RecoveryState(LONG_TIMEOUT_MILLIS);
+        assertThat(state.isAwaitingRedeliveries(), is(false));
+
+        state.expectRedeliveries(2);
+        assertThat(state.isAwaitingRedeliveries(), is(true));
+
+        state.isAlreadyAnswered(message("ID:1", false));
+        assertThat(state.isAwaitingRedeliveries(), is(true));
+        state.isAlreadyAnswered(message("ID:1", true));
+        assertThat(state.isAwaitingRedeliveries(), is(true));
+        state.isAlreadyAnswered(message("ID:2", true));
+        assertThat(state.isAwaitingRedeliveries(), is(false));
+
+        state.isAlreadyAnswered(message("ID:3", true));
+        state.expectRedeliveries(1);
+        assertThat(state.isAwaitingRedeliveries(), is(true));
+    }
+
+    @Test
+    public void adds_up_the_redeliveries_of_several_dropped_connections() throws JMSException {
+        RecoveryState state = new RecoveryState(LONG_TIMEOUT_MILLIS);
+
+        state.expectRedeliveries(1);
+        state.expectRedeliveries(0);
+        state.expectRedeliveries(1);
+
+        state.isAlreadyAnswered(message("ID:1", true));
+        assertThat(state.isAwaitingRedeliveries(), is(true));
+        state.isAlreadyAnswered(message("ID:2", true));
+        assertThat(state.isAwaitingRedeliveries(), is(false));
+    }
+
+    @Test
+    public void stops_awaiting_the_redeliveries_after_the_timeout() throws InterruptedException {
+        RecoveryState state = new RecoveryState(50);
+
+        state.expectRedeliveries(3);
+        assertThat(state.isAwaitingRedeliveries(), is(true));
+
+        Thread.sleep(100);
+        assertThat(state.isAwaitingRedeliveries(), is(false));
+    }
+
+    //~~~ Utils
+
+    private static StringMessage message(String messageId, boolean redelivered) throws JMSException {
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        message.setJMSMessageID(messageId);
+        message.setJMSRedelivered(redelivered);
+        return new StringMessage(message);
+    }
+}
@@ -0,0 +1,79 @@
+package utils.jms;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import tdl.client.queue.serialization.WireFormat;
+import tdl.client.queue.transport.StringMessage;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.Message;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * A queue of the test broker reached over JMS, for the bytes messages the JMX operations cannot send or browse.
+ */
+public class JmsQueue {
+    //Obs: The JMX operations send with the lowest priority, a default send would overtake their messages
+    private static final int JMX_PRIORITY = 0;
+
+    private final ActiveMQConnectionFactory connectionFactory;
+    private final String name;
+
+    public JmsQueue(String hostname, int port, String name) {
+        this.connectionFactory = new ActiveMQConnectionFactory("tcp://" + hostname + ":" + port);
+        this.name = name;
+    }
+
+    //~~~~ Queue operations
+
+    /**
+     * @param wireFormat the content type property is only set for the formats other than JSON
+     */
+    public void sendBytesMessage(String json, WireFormat wireFormat) throws Exception {
+        byte[] body = wireFormat.fromJson(json);
+        Connection connection = connectionFactory.createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            BytesMessage message = session.createBytesMessage();
+            message.writeBytes(body);
+            if (wireFormat != WireFormat.JSON) {
+                message.setStringProperty(StringMessage.CONTENT_TYPE_PROPERTY, wireFormat.getContentType());
+            }
+            session.createProducer(session.createQueue(name))
+                    .send(message, DeliveryMode.NON_PERSISTENT, JMX_PRIORITY, Message.DEFAULT_TIME_TO_LIVE);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * @return the content of every message as JSON, decoded from its content type, fails on a text message
+     */
+    public List<String> getBytesMessageContents() throws Exception {
+        Connection connection = connectionFactory.createConnection();
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Enumeration<?> messages = session.createBrowser(session.createQueue(name)).getEnumeration();
+            List<String> contents = new ArrayList<>();
+            while (messages.hasMoreElements()) {
+                Object message = messages.nextElement();
+                if (!(message instanceof BytesMessage)) {
+                    throw new IllegalStateException("Not a bytes message: " + message);
+                }
+                BytesMessage bytesMessage = (BytesMessage) message;
+                byte[] body = new byte[(int) bytesMessage.getBodyLength()];
+                bytesMessage.readBytes(body);
+                String contentType = bytesMessage.getStringProperty(StringMessage.CONTENT_TYPE_PROPERTY);
+                contents.add(WireFormat.forContentType(contentType).toJson(body));
+            }
+            return contents;
+        } finally {
+            connection.close();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package utils.jmx.broker;
 
+import com.google.gson.JsonElement;
+
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -36,4 +38,25 @@ public class RemoteJmxBroker {
         jolokiaSession.request(operation);
         return new RemoteJmxQueue(jolokiaSession, brokerName, queueName);
     }
+
+    //~~~~ Connection management
+
+    /**
+     * Stops every client connection, the clients see the connection drop as if the network failed
+     */
+    public void dropClientConnections() throws Exception {
+        Map<String, Object> search = new HashMap<>();
+        search.put("type", "search");
+        search.put("mbean", "org.apache.activemq:type=Broker,brokerName=" + brokerName
+                + ",connector=clientConnectors,connectionViewType=clientId,*");
+        JsonElement connections = jolokiaSession.request(search);
+
+        for (JsonElement connection : connections.getAsJsonArray()) {
+            Map<String, Object> operation = new HashMap<>();
+            operation.put("type", "exec");
+            operation.put("mbean", connection.getAsString());
+            operation.put("operation", "stop");
+            jolokiaSession.request(operation);
+        }
+    }
 }
@@ -34,6 +34,18 @@ public class RemoteJmxQueue {
         jolokiaSession.request(operation);
     }
 
+    /**
+     * An empty message flagged with the end_of_stream property, sent as text "true" like every JMX header
+     */
+    public void sendEndOfStream() throws Exception {
+        Map<String, Object> operation = new HashMap<>();
+        operation.put("type", "exec");
+        operation.put("mbean", queueBean);
+        operation.put("operation", "sendTextMessage(java.util.Map,java.lang.String)");
+        operation.put("arguments", Arrays.asList(Collections.singletonMap("end_of_stream", "true"), ""));
+        jolokiaSession.request(operation);
+    }
+
     public Long getSize() throws Exception {
         Map<String, Object> attribute = new HashMap<>();
         attribute.put("type", "read");
@@ -0,0 +1,28 @@
+package utils.queue;
+
+import org.apache.activemq.command.ActiveMQTextMessage;
+import tdl.client.queue.abstractions.Request;
+import tdl.client.queue.serialization.JsonRpcSerializationProvider;
+import tdl.client.queue.transport.StringMessage;
+
+/**
+ * Requests decoded from their JSON text, the way the runner receives them, without a broker.
+ */
+public class TestRequests {
+    private static final JsonRpcSerializationProvider PROVIDER = new JsonRpcSerializationProvider();
+
+    public static Request request(String json) {
+        try {
+            ActiveMQTextMessage message = new ActiveMQTextMessage();
+            message.setText(json);
+            return PROVIDER.deserialize(new StringMessage(message))
+                    .orElseThrow(() -> new IllegalArgumentException("Not a request: " + json));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static Request request(String id, String method, String paramsJson) {
+        return request("{\"method\":\"" + method + "\",\"params\":" + paramsJson + ",\"id\":\"" + id + "\"}");
+    }
+}
@@ -0,0 +1,119 @@
+Feature: Acknowledge the requests in batches
+  One acknowledge, or one transaction, covers several requests instead of one per response.
+
+  Background:
+    Given I start with a clean broker having a request and a response queue
+    And a client that connects to the queues
+
+  Scenario: Consume every request acknowledged in batches
+    Given the client acknowledges the requests in batches of 2
+    And I receive the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"increment","params":[2],"id":"X2"}    |
+      | {"method":"increment","params":[3],"id":"X3"}    |
+      | {"method":"increment","params":[4],"id":"X4"}    |
+      | {"method":"increment","params":[5],"id":"X5"}    |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+    Then the client should consume all requests
+    And the client should publish the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+      | {"result":3,"error":null,"id":"X2"}     |
+      | {"result":4,"error":null,"id":"X3"}     |
+      | {"result":5,"error":null,"id":"X4"}     |
+      | {"result":6,"error":null,"id":"X5"}     |
+
+  Scenario: Leave only the unanswered requests on the queue after an error
+    Given the client acknowledges the requests in batches of 2
+    And I receive the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"increment","params":[2],"id":"X2"}    |
+      | {"method":"increment","params":[3],"id":"X3"}    |
+      | {"method":"fail","params":[],"id":"X4"}          |
+      | {"method":"increment","params":[5],"id":"X5"}    |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+      | fail      | throw exception  |
+    Then the client should leave 2 requests on the queue
+    And the client should publish the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+      | {"result":3,"error":null,"id":"X2"}     |
+      | {"result":4,"error":null,"id":"X3"}     |
+
+  Scenario: Leave only the unanswered requests on the queue after an error in parallel
+    Given the client processes the requests with 4 worker threads
+    And the client acknowledges the requests in batches of 6
+    And I receive the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"increment","params":[2],"id":"X2"}    |
+      | {"method":"increment","params":[3],"id":"X3"}    |
+      | {"method":"increment","params":[4],"id":"X4"}    |
+      | {"method":"fail","params":[],"id":"X5"}          |
+      | {"method":"increment","params":[6],"id":"X6"}    |
+      | {"method":"increment","params":[7],"id":"X7"}    |
+      | {"method":"increment","params":[8],"id":"X8"}    |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+      | fail      | throw exception  |
+    Then the client should leave 4 requests on the queue
+    And the client should publish the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+      | {"result":3,"error":null,"id":"X2"}     |
+      | {"result":4,"error":null,"id":"X3"}     |
+      | {"result":5,"error":null,"id":"X4"}     |
+
+  Scenario: Consume every request in transactions
+    Given the client acknowledges the requests in transactions of 2
+    And I receive the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"increment","params":[2],"id":"X2"}    |
+      | {"method":"increment","params":[3],"id":"X3"}    |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+    Then the client should consume all requests
+    And the client should publish the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+      | {"result":3,"error":null,"id":"X2"}     |
+      | {"result":4,"error":null,"id":"X3"}     |
+
+  Scenario: Roll back the responses of the last transaction after an error
+    Given the client acknowledges the requests in transactions of 2
+    And I receive the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"increment","params":[2],"id":"X2"}    |
+      | {"method":"increment","params":[3],"id":"X3"}    |
+      | {"method":"fail","params":[],"id":"X4"}          |
+      | {"method":"increment","params":[5],"id":"X5"}    |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+      | fail      | throw exception  |
+    Then the client should leave 3 requests on the queue
+    And the client should publish the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+      | {"result":3,"error":null,"id":"X2"}     |
+
+  Scenario: Acknowledge in batches while processing in parallel
+    Given the client processes the requests with 4 worker threads
+    And the client acknowledges the requests in batches of 2
+    And I receive 50 identical requests like:
+      | payload                                          |
+      | {"method":"sum","params":[1,2],"id":"X1"}        |
+    When I go live with the following processing rules:
+      | method | call            |
+      | sum    | add two numbers |
+    Then the client should consume all requests
@@ -0,0 +1,64 @@
+Feature: Send the responses asynchronously
+  Up to a window of responses wait for the broker confirmation, a request is acknowledged once its response is confirmed.
+
+  Background:
+    Given I start with a clean broker having a request and a response queue
+    And a client that connects to the queues
+    And the client sends the responses asynchronously with a window of 4
+
+  Scenario: Publish the responses in the order of the requests
+    Given I receive the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"increment","params":[2],"id":"X2"}    |
+      | {"method":"increment","params":[3],"id":"X3"}    |
+      | {"method":"increment","params":[4],"id":"X4"}    |
+      | {"method":"increment","params":[5],"id":"X5"}    |
+      | {"method":"increment","params":[6],"id":"X6"}    |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+    Then the client should consume all requests
+    And the client should publish the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+      | {"result":3,"error":null,"id":"X2"}     |
+      | {"result":4,"error":null,"id":"X3"}     |
+      | {"result":5,"error":null,"id":"X4"}     |
+      | {"result":6,"error":null,"id":"X5"}     |
+      | {"result":7,"error":null,"id":"X6"}     |
+
+  Scenario: Keep up with a large backlog
+    Given I receive 200 identical requests like:
+      | payload                                          |
+      | {"method":"sum","params":[1,2],"id":"X1"}        |
+    When I go live with the following processing rules:
+      | method | call            |
+      | sum    | add two numbers |
+    Then the client should consume all requests
+
+  Scenario: Keep up with a large backlog in a pipeline
+    Given the client processes the requests in a pipeline
+    And I receive 200 identical requests like:
+      | payload                                          |
+      | {"method":"sum","params":[1,2],"id":"X1"}        |
+    When I go live with the following processing rules:
+      | method | call            |
+      | sum    | add two numbers |
+    Then the client should consume all requests
+
+  Scenario: Stop at the first error and leave the rest of the requests on the queue
+    Given I receive the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"fail","params":[],"id":"X2"}          |
+      | {"method":"increment","params":[3],"id":"X3"}    |
+      | {"method":"increment","params":[4],"id":"X4"}    |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+      | fail      | throw exception  |
+    Then the client should leave 3 requests on the queue
+    And the client should publish the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
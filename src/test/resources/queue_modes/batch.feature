@@ -0,0 +1,69 @@
+Feature: Answer JSON-RPC batch messages
+  A message holding an array of requests is answered with one message holding the array of their responses.
+
+  Background:
+    Given I start with a clean broker having a request and a response queue
+    And a client that connects to the queues
+
+  Scenario: Answer a batch with one message, in the order of its requests
+    Given I receive the following requests:
+      | payload                                                                                                                               |
+      | [{"method":"increment","params":[1],"id":"X1"},{"method":"increment","params":[2],"id":"X2"},{"method":"increment","params":[3],"id":"X3"}] |
+      | {"method":"increment","params":[4],"id":"X4"}                                                                                         |
+      | [{"method":"increment","params":[5],"id":"X5"}]                                                                                       |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+    Then the client should consume all requests
+    And the client should publish the following responses:
+      | payload                                                                                                         |
+      | [{"result":2,"error":null,"id":"X1"},{"result":3,"error":null,"id":"X2"},{"result":4,"error":null,"id":"X3"}]   |
+      | {"result":5,"error":null,"id":"X4"}                                                                             |
+      | [{"result":6,"error":null,"id":"X5"}]                                                                           |
+    And the client should display to console:
+      | output                                |
+      | id = X1, req = increment(1), resp = 2 |
+      | id = X3, req = increment(3), resp = 4 |
+
+  Scenario: Answer batches processed in parallel
+    Given the client processes the requests with 4 worker threads
+    And I receive the following requests:
+      | payload                                                                                                                               |
+      | [{"method":"increment","params":[1],"id":"X1"},{"method":"increment","params":[2],"id":"X2"},{"method":"increment","params":[3],"id":"X3"}] |
+      | [{"method":"increment","params":[4],"id":"X4"},{"method":"increment","params":[5],"id":"X5"}]                                         |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+    Then the client should consume all requests
+    And the client should publish the following responses:
+      | payload                                                                                                         |
+      | [{"result":2,"error":null,"id":"X1"},{"result":3,"error":null,"id":"X2"},{"result":4,"error":null,"id":"X3"}]   |
+      | [{"result":5,"error":null,"id":"X4"},{"result":6,"error":null,"id":"X5"}]                                       |
+
+  Scenario: Leave the whole batch on the queue when one of its requests fails
+    Given I receive the following requests:
+      | payload                                                                                       |
+      | {"method":"increment","params":[1],"id":"X1"}                                                 |
+      | [{"method":"increment","params":[2],"id":"X2"},{"method":"fail","params":[],"id":"X3"}]       |
+      | [{"method":"increment","params":[4],"id":"X4"}]                                               |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+      | fail      | throw exception  |
+    Then the client should leave 2 requests on the queue
+    And the client should publish the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+
+  Scenario: Reject an empty batch
+    Given I receive the following requests:
+      | payload |
+      | []      |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+    Then the client should leave 1 request on the queue
+    And the client should not publish any response
+    And the client should display to console:
+      | output                 |
+      | Invalid message format |
@@ -0,0 +1,56 @@
+Feature: Answer the requests sent as bytes messages
+  A request in a bytes message is answered with a bytes message, in the format of its content type.
+
+  Background:
+    Given I start with a clean broker having a request and a response queue
+    And a client that connects to the queues
+
+  Scenario: Answer JSON bytes requests with JSON bytes responses
+    Given I receive the following JSON bytes requests:
+      | payload                                                      |
+      | {"method":"sum","params":[[1,2,3,4]],"id":"X1"}              |
+      | {"method":"replay","params":["żółć é 😀"],"id":"X2"} |
+    When I go live with the following processing rules:
+      | method | call                         |
+      | sum    | sum the elements of an array |
+      | replay | replay the value             |
+    Then the client should consume all requests
+    And the client should publish the following bytes responses:
+      | payload                                             |
+      | {"result":10,"error":null,"id":"X1"}                |
+      | {"result":"żółć é 😀","error":null,"id":"X2"}       |
+    And the client should display to console:
+      | output                                         |
+      | id = X1, req = sum([1, 2, 3, 4]), resp = 10    |
+
+  Scenario: Answer CBOR requests with CBOR responses
+    Given I receive the following CBOR bytes requests:
+      | payload                                                      |
+      | {"method":"range","params":[1,4],"id":"X1"}                  |
+      | [{"method":"increment","params":[1],"id":"X2"},{"method":"increment","params":[2],"id":"X3"}] |
+    When I go live with the following processing rules:
+      | method    | call                       |
+      | range     | generate array of integers |
+      | increment | increment number           |
+    Then the client should consume all requests
+    And the client should publish the following bytes responses:
+      | payload                                                                       |
+      | {"result":[1,2,3],"error":null,"id":"X1"}                                     |
+      | [{"result":2,"error":null,"id":"X2"},{"result":3,"error":null,"id":"X3"}]     |
+
+  Scenario: Answer bytes requests in a pipeline
+    Given the client processes the requests in a pipeline
+    And I receive the following JSON bytes requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"increment","params":[2],"id":"X2"}    |
+      | {"method":"increment","params":[3],"id":"X3"}    |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+    Then the client should consume all requests
+    And the client should publish the following bytes responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+      | {"result":3,"error":null,"id":"X2"}     |
+      | {"result":4,"error":null,"id":"X3"}     |
@@ -0,0 +1,65 @@
+Feature: End the run on an end of stream message
+  The server flags the last message with the end_of_stream property, instead of relying on the request timeout.
+
+  Background:
+    Given I start with a clean broker having a request and a response queue
+    And a client that connects to the queues
+
+  Scenario: Consume the end of the stream without a response
+    Given the client waits for the end of the stream
+    And I receive the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"increment","params":[2],"id":"X2"}    |
+    And I receive the end of the stream
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+    Then the client should consume all requests
+    And the client should publish the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+      | {"result":3,"error":null,"id":"X2"}     |
+
+  Scenario: Keep waiting on an idle queue until the end of the stream
+    Given the client waits for the end of the stream
+    And I receive the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+    And I receive the end of the stream after 1500ms
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+    Then the client should consume all requests
+    And the processing time should be higher than 1000ms
+
+  Scenario: Stop at the end of the stream even without waiting for it
+    Given I receive the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+    And I receive the end of the stream
+    And I receive the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[2],"id":"X2"}    |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+    Then the client should leave 1 request on the queue
+    And the client should publish the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+
+  Scenario: Stop at the end of the stream in a pipeline
+    Given the client processes the requests in a pipeline
+    And the client waits for the end of the stream
+    And I receive 20 identical requests like:
+      | payload                                          |
+      | {"method":"sum","params":[1,2],"id":"X1"}        |
+    And I receive the end of the stream
+    And I receive the following requests:
+      | payload                                          |
+      | {"method":"sum","params":[1,2],"id":"X2"}        |
+    When I go live with the following processing rules:
+      | method | call            |
+      | sum    | add two numbers |
+    Then the client should leave 1 request on the queue
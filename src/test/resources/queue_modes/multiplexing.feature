@@ -0,0 +1,68 @@
+Feature: Serve the queues of many users from one runner
+  Every user has a request and a response queue, one runner serves them all over a shared connection.
+
+  Background:
+    Given I start with a clean broker having the queues of the users alice, bob
+
+  Scenario: Serve two request queues from one runner
+    Given user alice sends the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"increment","params":[2],"id":"X2"}    |
+      | {"method":"increment","params":[3],"id":"X3"}    |
+    And user bob sends the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[10],"id":"Y1"}   |
+      | {"method":"increment","params":[20],"id":"Y2"}   |
+    When I go live with one runner for every user, with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+    Then user alice should have 0 requests left on the queue
+    And user bob should have 0 requests left on the queue
+
+  Scenario: Publish each response on the response queue paired with its request queue
+    Given user alice sends the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"increment","params":[2],"id":"X2"}    |
+    And user bob sends the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[10],"id":"Y1"}   |
+      | {"method":"increment","params":[20],"id":"Y2"}   |
+    When I go live with one runner for every user, with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+    Then user alice should receive the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+      | {"result":3,"error":null,"id":"X2"}     |
+    And user bob should receive the following responses:
+      | payload                                 |
+      | {"result":11,"error":null,"id":"Y1"}    |
+      | {"result":21,"error":null,"id":"Y2"}    |
+
+  Scenario: Stop serving a queue at its first fatal error, the other queues go on
+    Given user alice sends the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"fail","params":[],"id":"X2"}          |
+      | {"method":"increment","params":[3],"id":"X3"}    |
+    And user bob sends the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[10],"id":"Y1"}   |
+      | {"method":"increment","params":[20],"id":"Y2"}   |
+      | {"method":"increment","params":[30],"id":"Y3"}   |
+    When I go live with one runner for every user, with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+      | fail      | throw exception  |
+    Then user alice should have 2 requests left on the queue
+    And user alice should receive the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+    And user bob should have 0 requests left on the queue
+    And user bob should receive the following responses:
+      | payload                                 |
+      | {"result":11,"error":null,"id":"Y1"}    |
+      | {"result":21,"error":null,"id":"Y2"}    |
+      | {"result":31,"error":null,"id":"Y3"}    |
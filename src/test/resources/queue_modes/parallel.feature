@@ -0,0 +1,57 @@
+Feature: Process the requests in parallel
+  The user implementation runs on several worker threads, the responses are still published in order.
+
+  Background:
+    Given I start with a clean broker having a request and a response queue
+    And a client that connects to the queues
+    And the client processes the requests with 4 worker threads
+
+  Scenario: Publish the responses in the order of the requests
+    Given I receive the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"increment","params":[2],"id":"X2"}    |
+      | {"method":"increment","params":[3],"id":"X3"}    |
+      | {"method":"increment","params":[4],"id":"X4"}    |
+      | {"method":"increment","params":[5],"id":"X5"}    |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+    Then the client should consume all requests
+    And the client should publish the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+      | {"result":3,"error":null,"id":"X2"}     |
+      | {"result":4,"error":null,"id":"X3"}     |
+      | {"result":5,"error":null,"id":"X4"}     |
+      | {"result":6,"error":null,"id":"X5"}     |
+
+  Scenario: Run slow solutions at the same time
+    Given I receive 4 identical requests like:
+      | payload                                          |
+      | {"method":"slow","params":[],"id":"X1"}          |
+    When I go live with the following processing rules:
+      | method | call           |
+      | slow   | work for 600ms |
+    Then the client should consume all requests
+    And the processing time should be lower than 2000ms
+
+  Scenario: Stop at the first error and leave the rest of the requests on the queue
+    Given I receive the following requests:
+      | payload                                          |
+      | {"method":"increment","params":[1],"id":"X1"}    |
+      | {"method":"fail","params":[],"id":"X2"}          |
+      | {"method":"increment","params":[3],"id":"X3"}    |
+      | {"method":"increment","params":[4],"id":"X4"}    |
+    When I go live with the following processing rules:
+      | method    | call             |
+      | increment | increment number |
+      | fail      | throw exception  |
+    Then the client should leave 3 requests on the queue
+    And the client should publish the following responses:
+      | payload                                 |
+      | {"result":2,"error":null,"id":"X1"}     |
+    And the client should display to console:
+      | output                                                                       |
+      | id = X1, req = increment(1), resp = 2                                        |
+      | id = X2, req = fail(), error = "user implementation raised exception", (NOT PUBLISHED) |
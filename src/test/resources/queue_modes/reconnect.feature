@@ -0,0 +1,63 @@
+Feature: Reconnect when the connection to the broker drops
+  The requests answered before the drop come back from the broker, they are acknowledged without a second response.
+
+  Background:
+    Given I start with a clean broker having a request and a response queue
+    And a client that connects to the queues
+
+  Scenario: Publish each response once when the connection drops mid-run
+    Given the client reconnects up to 5 times
+    And I receive the following requests:
+      | payload                                 |
+      | {"method":"work","params":[],"id":"X1"} |
+      | {"method":"work","params":[],"id":"X2"} |
+      | {"method":"work","params":[],"id":"X3"} |
+      | {"method":"work","params":[],"id":"X4"} |
+      | {"method":"work","params":[],"id":"X5"} |
+      | {"method":"work","params":[],"id":"X6"} |
+      | {"method":"work","params":[],"id":"X7"} |
+      | {"method":"work","params":[],"id":"X8"} |
+    And the broker drops the client connection after 350ms
+    When I go live with the following processing rules:
+      | method | call           |
+      | work   | work for 100ms |
+    Then the client should consume all requests
+    And the client should publish the following responses:
+      | payload                                |
+      | {"result":"OK","error":null,"id":"X1"} |
+      | {"result":"OK","error":null,"id":"X2"} |
+      | {"result":"OK","error":null,"id":"X3"} |
+      | {"result":"OK","error":null,"id":"X4"} |
+      | {"result":"OK","error":null,"id":"X5"} |
+      | {"result":"OK","error":null,"id":"X6"} |
+      | {"result":"OK","error":null,"id":"X7"} |
+      | {"result":"OK","error":null,"id":"X8"} |
+
+  Scenario: Publish each response once when the connection drops in the middle of a batch
+    Given the client acknowledges the requests in batches of 4
+    And the client reconnects up to 5 times
+    And I receive the following requests:
+      | payload                                 |
+      | {"method":"work","params":[],"id":"X1"} |
+      | {"method":"work","params":[],"id":"X2"} |
+      | {"method":"work","params":[],"id":"X3"} |
+      | {"method":"work","params":[],"id":"X4"} |
+      | {"method":"work","params":[],"id":"X5"} |
+      | {"method":"work","params":[],"id":"X6"} |
+      | {"method":"work","params":[],"id":"X7"} |
+      | {"method":"work","params":[],"id":"X8"} |
+    And the broker drops the client connection after 350ms
+    When I go live with the following processing rules:
+      | method | call           |
+      | work   | work for 100ms |
+    Then the client should consume all requests
+    And the client should publish the following responses:
+      | payload                                |
+      | {"result":"OK","error":null,"id":"X1"} |
+      | {"result":"OK","error":null,"id":"X2"} |
+      | {"result":"OK","error":null,"id":"X3"} |
+      | {"result":"OK","error":null,"id":"X4"} |
+      | {"result":"OK","error":null,"id":"X5"} |
+      | {"result":"OK","error":null,"id":"X6"} |
+      | {"result":"OK","error":null,"id":"X7"} |
+      | {"result":"OK","error":null,"id":"X8"} |